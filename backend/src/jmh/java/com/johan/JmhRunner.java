@@ -0,0 +1,124 @@
+package com.johan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Entry point of the jmh profile. Runs the benchmarks with the GC profiler, writes JMH's JSON result and
+ * compares it with a baseline. A benchmark regresses when its score moves the wrong way, or the bytes it
+ * allocates per operation grow, by more than the tolerance; any regression fails the build. Scores only
+ * compare on the same hardware, so the baseline is recorded on the machine that checks against it.
+ *
+ * <p>Arguments: include pattern, result file, baseline file, tolerance (0.10 is 10%), update baseline.
+ */
+public class JmhRunner {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    // a few bytes per operation come and go with escape analysis
+    private static final double ALLOCATION_SLACK_BYTES = 16;
+
+    public static void main(String[] args) throws Exception {
+        String include = args[0];
+        Path result = Path.of(args[1]);
+        Path baseline = Path.of(args[2]);
+        double tolerance = Double.parseDouble(args[3]);
+        boolean updateBaseline = Boolean.parseBoolean(args[4]);
+
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build();
+        new Runner(options).run();
+
+        if (updateBaseline) {
+            Files.copy(result, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.printf("Baseline %s updated%n", baseline);
+            return;
+        }
+        if (!Files.exists(baseline)) {
+            System.out.printf("No baseline at %s; record one with -Djmh.update-baseline=true%n", baseline);
+            return;
+        }
+        List<String> regressions = compare(read(baseline), read(result), tolerance);
+        if (!regressions.isEmpty()) {
+            System.out.printf("%d regression(s) against %s:%n", regressions.size(), baseline);
+            regressions.forEach(regression -> System.out.println("  " + regression));
+            System.exit(1);
+        }
+        System.out.printf("No regressions against %s%n", baseline);
+    }
+
+    static List<String> compare(Map<String, JsonNode> baseline, Map<String, JsonNode> current, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            JsonNode after = entry.getValue();
+            double scoreBefore = before.path("primaryMetric").path("score").asDouble();
+            double scoreAfter = after.path("primaryMetric").path("score").asDouble();
+            String unit = after.path("primaryMetric").path("scoreUnit").asText();
+            // throughput should not drop; every other mode reports time per operation, which should not grow
+            boolean higherIsBetter = "thrpt".equals(after.path("mode").asText());
+            double change = (scoreAfter - scoreBefore) / scoreBefore;
+            if (higherIsBetter ? change < -tolerance : change > tolerance) {
+                regressions.add("%s: %.3f -> %.3f %s (%+.1f%%)".formatted(
+                        entry.getKey(), scoreBefore, scoreAfter, unit, change * 100));
+            }
+            double allocatedBefore = allocation(before);
+            double allocatedAfter = allocation(after);
+            if (allocatedAfter > allocatedBefore * (1 + tolerance) + ALLOCATION_SLACK_BYTES) {
+                regressions.add("%s: %.1f -> %.1f B/op allocated".formatted(
+                        entry.getKey(), allocatedBefore, allocatedAfter));
+            }
+        }
+        return regressions;
+    }
+
+    // by benchmark method and parameters, e.g. com.johan.repository.CustomerDaoJmh.getByCustomerId{dao=jdbc}
+    static Map<String, JsonNode> read(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = result.path("params").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                params.put(field.getKey(), field.getValue().asText());
+            }
+            results.put(result.path("benchmark").asText() + (params.isEmpty() ? "" : params.toString()), result);
+        }
+        return results;
+    }
+
+    // older JMH versions prefix the secondary metric names with a middle dot
+    private static double allocation(JsonNode result) {
+        Iterator<Map.Entry<String, JsonNode>> metrics = result.path("secondaryMetrics").fields();
+        while (metrics.hasNext()) {
+            Map.Entry<String, JsonNode> metric = metrics.next();
+            if (metric.getKey().endsWith(ALLOCATION)) {
+                return metric.getValue().path("score").asDouble();
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,72 @@
+package com.johan.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+// mvn -Pjmh -DskipTests test -Djmh.include=CustomerRowMapperJmh
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerRowMapperJmh {
+
+    private final CustomerRowMapper mapper = new CustomerRowMapper();
+    private RowMapper<Customer> projection;
+    // the JDK's in-memory ResultSet looks columns up by label like a driver does, without a mock's overhead
+    private CachedRowSet row;
+
+    @Setup
+    public void setUp() throws SQLException {
+        projection = mapper.selecting(EnumSet.of(CustomerField.NAME, CustomerField.EMAIL));
+        String[] labels = {"id", "name", "email", "age", "gender", "version"};
+        int[] types = {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.VARCHAR, Types.BIGINT};
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            metaData.setColumnName(i + 1, labels[i]);
+            metaData.setColumnLabel(i + 1, labels[i]);
+            metaData.setColumnType(i + 1, types[i]);
+        }
+        row = RowSetProvider.newFactory().createCachedRowSet();
+        row.setMetaData(metaData);
+        row.moveToInsertRow();
+        row.updateLong(1, 1L);
+        row.updateString(2, "Joko");
+        row.updateString(3, "joko@gmail.com");
+        row.updateInt(4, 20);
+        row.updateString(5, "MALE");
+        row.updateLong(6, 3L);
+        row.insertRow();
+        row.moveToCurrentRow();
+        row.first();
+    }
+
+    @Benchmark
+    public Customer mapRow() throws SQLException {
+        return mapper.mapRow(row, 1);
+    }
+
+    @Benchmark
+    public Customer mapProjectedRow() throws SQLException {
+        return projection.mapRow(row, 1);
+    }
+}
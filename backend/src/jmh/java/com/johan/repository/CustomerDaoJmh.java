@@ -0,0 +1,110 @@
+package com.johan.repository;
+
+import com.johan.Main;
+import com.johan.model.Customer;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerSort;
+import com.johan.model.Gender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Every CustomerDao bean of the application, wired as it runs, against a Postgres container (needs Docker)
+// mvn -Pjmh -DskipTests test -Djmh.include=CustomerDaoJmh
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerDaoJmh {
+
+    private static final int ROWS = 10_000;
+    private static final CustomerFilter FILTER = new CustomerFilter(null, 20, 40);
+
+    @Param({"list", "journal", "jdbc", "jpa", "cached"})
+    public String dao;
+
+    private PostgreSQLContainer<?> postgreSQLContainer;
+    private ConfigurableApplicationContext context;
+    private CustomerDao customerDao;
+    private int[] ids;
+
+    @Setup
+    public void setUp() throws IOException {
+        postgreSQLContainer = new PostgreSQLContainer<>("postgres:latest")
+                .withDatabaseName("johan-jmh")
+                .withUsername("johan")
+                .withPassword("password");
+        postgreSQLContainer.start();
+        String r2dbcUrl = "r2dbc:postgresql://%s:%d/%s".formatted(postgreSQLContainer.getHost(),
+                postgreSQLContainer.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT),
+                postgreSQLContainer.getDatabaseName());
+        context = new SpringApplicationBuilder(Main.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + postgreSQLContainer.getJdbcUrl(),
+                        "spring.datasource.username=" + postgreSQLContainer.getUsername(),
+                        "spring.datasource.password=" + postgreSQLContainer.getPassword(),
+                        "spring.r2dbc.url=" + r2dbcUrl,
+                        "spring.r2dbc.username=" + postgreSQLContainer.getUsername(),
+                        "spring.r2dbc.password=" + postgreSQLContainer.getPassword(),
+                        "spring.jpa.show-sql=false",
+                        "journal.dir=" + Files.createTempDirectory("customer-journal-jmh"),
+                        "customer-jobs.dir=" + Files.createTempDirectory("customer-jobs-jmh"))
+                .run();
+        customerDao = context.getBean(dao, CustomerDao.class);
+        ids = new int[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            Optional<Long> id = customerDao.insertCustomerIfAbsent(new Customer("Customer " + i,
+                    "customer-" + i + "@johan.com", 18 + i % 60, i % 2 == 0 ? Gender.MALE : Gender.FEMALE));
+            ids[i] = id.orElseThrow().intValue();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        postgreSQLContainer.stop();
+    }
+
+    @Benchmark
+    public Optional<Customer> getByCustomerId() {
+        return customerDao.getByCustomerId(ids[ThreadLocalRandom.current().nextInt(ROWS)]);
+    }
+
+    @Benchmark
+    public List<Customer> selectCustomerPage() {
+        return customerDao.selectCustomerPage(FILTER, CustomerField.ALL, CustomerSort.ID, null, 50);
+    }
+
+    @Benchmark
+    public Customer updateCustomer() {
+        int i = ThreadLocalRandom.current().nextInt(ROWS);
+        Customer customer = new Customer((long) ids[i], "Customer " + i + " " + System.nanoTime(),
+                "customer-" + i + "@johan.com", 18 + i % 60, i % 2 == 0 ? Gender.MALE : Gender.FEMALE);
+        customerDao.updateCustomer(customer);
+        return customer;
+    }
+}
@@ -0,0 +1,79 @@
+package com.johan.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johan.model.Customer;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerResponse;
+import com.johan.model.Gender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// mvn -Pjmh -DskipTests test -Djmh.include=CustomerJsonJmh
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerJsonJmh {
+
+    private static final int PAGE_SIZE = 100;
+
+    // configured like the application's mapper
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+    private Customer customer;
+    private List<Customer> page;
+
+    @Setup
+    public void setUp() {
+        customer = new Customer(1L, "Joko", "joko@gmail.com", 20, Gender.MALE);
+        customer.setVersion(3L);
+        page = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page.add(new Customer((long) i, "Customer " + i, "customer-" + i + "@johan.com", 18 + i % 80,
+                    i % 2 == 0 ? Gender.MALE : Gender.FEMALE));
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeCustomer() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(customer);
+    }
+
+    // what GET /{id} returns
+    @Benchmark
+    public byte[] encodeResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(CustomerResponse.from(customer));
+    }
+
+    // what the streamed list writes per page of rows
+    @Benchmark
+    public int streamPage() throws IOException {
+        out.reset();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            CustomerArrayWriter writer = new CustomerArrayWriter(generator, CustomerField.ALL);
+            writer.start();
+            page.forEach(writer);
+            writer.finish();
+        }
+        return out.size();
+    }
+}
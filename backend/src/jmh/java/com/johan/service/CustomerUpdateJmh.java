@@ -0,0 +1,80 @@
+package com.johan.service;
+
+import com.johan.exception.RequestValidationException;
+import com.johan.model.Customer;
+import com.johan.model.CustomerRegistrationRequest;
+import com.johan.model.Gender;
+import com.johan.repository.CustomerDao;
+import com.johan.repository.CustomerListDataAccessService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// CustomerService.updateCustomer over the in-memory DAO, so the change detection and bookkeeping around
+// the write are what is measured
+// mvn -Pjmh -DskipTests test -Djmh.include=CustomerUpdateJmh
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerUpdateJmh {
+
+    private static final int ROWS = 10_000;
+    private static final CustomerRegistrationRequest[] RENAMES = {
+            new CustomerRegistrationRequest("Renamed", null, 31, null),
+            new CustomerRegistrationRequest("Customer", null, 30, null)};
+    private static final CustomerRegistrationRequest UNCHANGED = new CustomerRegistrationRequest("Customer", null, 30, null);
+
+    private CustomerService customerService;
+    private int[] ids;
+    // left alone by updateChanged
+    private int unchangedId;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        CustomerDao customerDao = new CustomerListDataAccessService();
+        // never rebuilt, so every email is a possible hit; only names and ages change here
+        CustomerEmailFilter customerEmailFilter = new CustomerEmailFilter(customerDao, null, ROWS, 0.01, Duration.ZERO);
+        CustomerStatistics customerStatistics = new CustomerStatistics(null, Duration.ZERO);
+        customerService = new CustomerService(customerDao, customerEmailFilter, customerStatistics);
+        ids = new int[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            ids[i] = customerDao.insertCustomerIfAbsent(
+                    new Customer("Customer", "customer-" + i + "@johan.com", 30, Gender.FEMALE)).orElseThrow().intValue();
+        }
+        unchangedId = customerDao.insertCustomerIfAbsent(
+                new Customer("Customer", "unchanged@johan.com", 30, Gender.FEMALE)).orElseThrow().intValue();
+    }
+
+    // each row flips between two states, so every call finds a change
+    @Benchmark
+    public int updateChanged() {
+        int call = next++;
+        int id = ids[call % ROWS];
+        customerService.updateCustomer(id, RENAMES[(call / ROWS) & 1]);
+        return id;
+    }
+
+    @Benchmark
+    public RequestValidationException updateUnchanged() {
+        try {
+            customerService.updateCustomer(unchangedId, UNCHANGED);
+            throw new IllegalStateException("Expected no change");
+        } catch (RequestValidationException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.johan.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johan.model.WireFormat;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Mappers for responses written by hand rather than through the message converters, such as the streamed
+// customer list; built the same way as the converters' so both produce identical bytes
+@Component
+public class WireFormats {
+
+    private final Map<WireFormat, ObjectMapper> mappers = new EnumMap<>(WireFormat.class);
+
+    public WireFormats(ObjectMapper objectMapper, ApplicationContext applicationContext) {
+        mappers.put(WireFormat.JSON, objectMapper);
+        mappers.put(WireFormat.CBOR, Jackson2ObjectMapperBuilder.cbor().applicationContext(applicationContext).build());
+        mappers.put(WireFormat.SMILE, Jackson2ObjectMapperBuilder.smile().applicationContext(applicationContext).build());
+    }
+
+    public JsonGenerator createGenerator(WireFormat format, OutputStream out) throws IOException {
+        return mappers.get(format).createGenerator(out);
+    }
+}
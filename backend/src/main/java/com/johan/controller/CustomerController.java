@@ -1,31 +1,146 @@
 package com.johan.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johan.config.WireFormats;
+import com.johan.model.Customer;
+import com.johan.model.CustomerBatchResult;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerPageResponse;
 import com.johan.model.CustomerRegistrationRequest;
+import com.johan.model.CustomerResponse;
+import com.johan.model.CustomerSearchMatch;
+import com.johan.model.CustomerSort;
+import com.johan.model.CustomerStats;
+import com.johan.model.ExportFormat;
+import com.johan.model.Gender;
+import com.johan.model.WireFormat;
+import com.johan.service.CustomerArrayWriter;
+import com.johan.service.CustomerExportWriter;
 import com.johan.service.CustomerService;
-import com.johan.model.Customer;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("api/v1/customer")
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final ObjectMapper objectMapper;
+    private final WireFormats wireFormats;
 
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService, ObjectMapper objectMapper, WireFormats wireFormats) {
         this.customerService = customerService;
+        this.objectMapper = objectMapper;
+        this.wireFormats = wireFormats;
     }
 
     //    @RequestMapping(path = "api/ve1/customer", method = RequestMethod.GET)
     @GetMapping
-    public List<Customer> getCustomers() {
-        return customerService.getAllCustomers();
+    public ResponseEntity<StreamingResponseBody> getCustomers(@RequestParam(required = false) Gender gender,
+                                                              @RequestParam(required = false) Integer minAge,
+                                                              @RequestParam(required = false) Integer maxAge,
+                                                              @RequestParam(required = false) String fields,
+                                                              WebRequest request)
+            throws HttpMediaTypeNotAcceptableException {
+        CustomerFilter filter = new CustomerFilter(gender, minAge, maxAge);
+        Set<CustomerField> projection = customerService.checkCustomerQuery(filter, fields);
+        WireFormat format = WireFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        // the cache's write counter decides whether the client's copy is current; only when writes may have gone
+        // unheard does an aggregate over the matching rows
+        OptionalLong revision = customerService.getCollectionRevision();
+        String eTag = revision.isPresent()
+                ? CustomerETags.ofRevision(revision.getAsLong(), projection, format)
+                : CustomerETags.of(customerService.getCollectionVersion(filter), projection, format);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = wireFormats.createGenerator(format, outputStream)) {
+                CustomerArrayWriter writer = new CustomerArrayWriter(generator, projection);
+                writer.start();
+                customerService.streamCustomers(filter, projection, writer);
+                writer.finish();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body);
+    }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<CustomerPageResponse> getCustomerPage(@RequestParam int limit,
+                                                                @RequestParam(required = false) String after,
+                                                                @RequestParam(defaultValue = "ID") CustomerSort sort,
+                                                                @RequestParam(required = false) Gender gender,
+                                                                @RequestParam(required = false) Integer minAge,
+                                                                @RequestParam(required = false) Integer maxAge,
+                                                                @RequestParam(required = false) String fields) {
+        return negotiated(CustomerPageResponse.from(
+                customerService.getCustomerPage(new CustomerFilter(gender, minAge, maxAge), fields, after, limit, sort)));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCustomers(@RequestParam(defaultValue = "NDJSON") ExportFormat format) {
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            CustomerExportWriter exportWriter = new CustomerExportWriter(writer, format, objectMapper);
+            exportWriter.writeHeader();
+            customerService.exportCustomers(exportWriter);
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, format.getContentType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"customers.%s\"".formatted(format.getExtension()))
+                .body(body);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<CustomerResponse>> searchCustomers(@RequestParam String q,
+                                                                  @RequestParam(defaultValue = "SUBSTRING") CustomerSearchMatch match,
+                                                                  @RequestParam(defaultValue = "20") int limit) {
+        return negotiated(customerService.searchCustomers(q, match, limit).stream()
+                .map(CustomerResponse::from)
+                .toList());
+    }
+
+    @GetMapping("/stats")
+    public CustomerStats getCustomerStats() {
+        return customerService.getCustomerStats();
     }
 
     @GetMapping("/{id}")
-    public Customer getCustomers(@PathVariable int id) {
-        return customerService.getCustomer(id);
+    public CustomerResponse getCustomers(@PathVariable int id,
+                                         @RequestParam(required = false) String fields,
+                                         WebRequest request,
+                                         HttpServletResponse response)
+            throws HttpMediaTypeNotAcceptableException {
+        Customer customer = customerService.getCustomer(id, fields);
+        WireFormat format = WireFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        // set before the check, so a 304 carries it too
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (request.checkNotModified(CustomerETags.of(customer.getVersion(), CustomerField.parse(fields), format))) {
+            return null;
+        }
+        return CustomerResponse.from(customer);
     }
 
     @PostMapping
@@ -33,15 +148,33 @@ public class CustomerController {
         customerService.addCustomer(customerRegistrationRequest);
     }
 
+    @PostMapping("/batch")
+    public List<CustomerBatchResult> registerCustomers(@RequestBody List<CustomerRegistrationRequest> customerRegistrationRequests){
+        return customerService.addCustomers(customerRegistrationRequests);
+    }
+
     @DeleteMapping("/{id}")
     public void deleteCustomerByID(@PathVariable int id) {
         customerService.deleteCustomer(id);
     }
 
     @PutMapping("{id}")
-    public void updateCustomer(@PathVariable int id, @RequestBody CustomerRegistrationRequest customerRegistrationRequest){
-        customerService.updateCustomer(id,customerRegistrationRequest);
+    public void updateCustomer(@PathVariable int id,
+                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                               @RequestBody CustomerRegistrationRequest customerRegistrationRequest){
+        customerService.updateCustomer(id, customerRegistrationRequest, CustomerETags.expectedVersion(ifMatch));
     }
 
+    @PatchMapping("{id}")
+    public ResponseEntity<CustomerResponse> patchCustomer(@PathVariable int id, @RequestBody CustomerRegistrationRequest customerRegistrationRequest){
+        return negotiated(CustomerResponse.from(customerService.patchCustomer(id,customerRegistrationRequest)));
+    }
+
+    // the body goes out in whichever format Accept picks, so caches must key on it
+    private static <T> ResponseEntity<T> negotiated(T body) {
+        return ResponseEntity.ok()
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body);
+    }
 
 }
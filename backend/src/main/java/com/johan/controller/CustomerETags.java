@@ -0,0 +1,63 @@
+package com.johan.controller;
+
+import com.johan.exception.PreconditionFailedException;
+import com.johan.model.CustomerCollectionVersion;
+import com.johan.model.CustomerField;
+import com.johan.model.WireFormat;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Strong ETags: a customer's is its version, a list's is the version of the rows it covers. A projection
+// follows after a ';' and binary representations carry their format after a '+', since a strong tag must
+// differ between representations.
+final class CustomerETags {
+
+    private CustomerETags() {
+    }
+
+    static String of(Long version, Set<CustomerField> projection, WireFormat format) {
+        return tag(String.valueOf(version == null ? 0 : version), projection, format);
+    }
+
+    static String of(CustomerCollectionVersion version, Set<CustomerField> projection, WireFormat format) {
+        return tag("%d-%x".formatted(version.customers(), version.checksum()), projection, format);
+    }
+
+    // prefixed so a revision can never pass for a count and checksum
+    static String ofRevision(long revision, Set<CustomerField> projection, WireFormat format) {
+        return tag("r%x".formatted(revision), projection, format);
+    }
+
+    private static String tag(String value, Set<CustomerField> projection, WireFormat format) {
+        if (!projection.containsAll(CustomerField.ALL)) {
+            // in declaration order, so id,name and name,id share a tag as they share a body
+            value += projection.stream().sorted().map(CustomerField::getColumn).collect(Collectors.joining(",", ";", ""));
+        }
+        return format.getTag() == null ? "\"%s\"".formatted(value) : "\"%s+%s\"".formatted(value, format.getTag());
+    }
+
+    // the version an If-Match header asks for; null when absent or "*", which any existing row satisfies
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.strip();
+        // weak tags never match under If-Match, and a list of tags is not something our clients send
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new PreconditionFailedException("If-Match [%s] does not match".formatted(ifMatch));
+        }
+        String value = tag.substring(1, tag.length() - 1);
+        // the version ends at a projection or a format, whichever comes first
+        int end = value.length();
+        for (char separator : new char[]{';', '+'}) {
+            int at = value.indexOf(separator);
+            end = at < 0 ? end : Math.min(end, at);
+        }
+        try {
+            return Long.parseLong(value.substring(0, end));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match [%s] does not match".formatted(ifMatch));
+        }
+    }
+}
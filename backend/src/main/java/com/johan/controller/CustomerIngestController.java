@@ -0,0 +1,87 @@
+package com.johan.controller;
+
+import com.johan.exception.ResourceNotFound;
+import com.johan.model.CustomerIngestReport;
+import com.johan.model.CustomerIngestResponse;
+import com.johan.repository.CustomerCsvIngester;
+import com.johan.service.CustomerEmailFilter;
+import com.johan.service.CustomerStatistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("api/v1/customer/ingest")
+public class CustomerIngestController {
+
+    private final CustomerCsvIngester customerCsvIngester;
+    private final CustomerEmailFilter customerEmailFilter;
+    private final CustomerStatistics customerStatistics;
+    private final Path rejectDir;
+
+    public CustomerIngestController(CustomerCsvIngester customerCsvIngester,
+                                    CustomerEmailFilter customerEmailFilter,
+                                    CustomerStatistics customerStatistics,
+                                    @Value("${ingest.reject-dir:${java.io.tmpdir}}") Path rejectDir) {
+        this.customerCsvIngester = customerCsvIngester;
+        this.customerEmailFilter = customerEmailFilter;
+        this.customerStatistics = customerStatistics;
+        this.rejectDir = rejectDir;
+    }
+
+    @PostMapping(consumes = "text/csv")
+    public CustomerIngestResponse ingestCustomers(InputStream body) throws IOException {
+        // spool to disk so the ingester can memory-map the upload
+        Path csv = Files.createTempFile("customer-ingest-", ".csv");
+        try {
+            Files.copy(body, csv, StandardCopyOption.REPLACE_EXISTING);
+            String id = UUID.randomUUID().toString();
+            CustomerIngestReport report = customerCsvIngester.ingest(csv, rejects(id));
+            customerEmailFilter.rebuildAsync();
+            // ingested rows bypass the service, so recount rather than wait for the next reconcile
+            customerStatistics.reconcileAsync();
+            return CustomerIngestResponse.from(id, report);
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    @GetMapping("/{id}/rejects")
+    public ResponseEntity<Resource> getRejects(@PathVariable String id) {
+        Path rejects;
+        try {
+            // only ids we handed out, so the path cannot leave the reject directory
+            rejects = rejects(UUID.fromString(id).toString());
+        } catch (IllegalArgumentException e) {
+            throw new ResourceNotFound("Ingest with id [%s] not found".formatted(id));
+        }
+        if (!Files.isRegularFile(rejects)) {
+            throw new ResourceNotFound("Ingest with id [%s] not found".formatted(id));
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, "text/csv")
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"%s\"".formatted(rejects.getFileName()))
+                .body(new FileSystemResource(rejects));
+    }
+
+    private Path rejects(String id) {
+        return rejectDir.resolve("customer-ingest-%s.rejects.csv".formatted(id));
+    }
+}
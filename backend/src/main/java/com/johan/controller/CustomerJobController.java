@@ -0,0 +1,148 @@
+package com.johan.controller;
+
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerJob;
+import com.johan.model.CustomerRegistrationRequest;
+import com.johan.model.ExportFormat;
+import com.johan.model.Gender;
+import com.johan.service.CustomerJobService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("api/v1/customer/jobs")
+public class CustomerJobController {
+
+    private static final Duration EVENT_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration EVENT_TIMEOUT = Duration.ofHours(1);
+
+    private final CustomerJobService customerJobService;
+    // one thread polls the job rows for every open event stream
+    private final ScheduledExecutorService events = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "customer-job-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CustomerJobController(CustomerJobService customerJobService) {
+        this.customerJobService = customerJobService;
+    }
+
+    @PreDestroy
+    public void stop() {
+        events.shutdownNow();
+    }
+
+    @PostMapping("/import")
+    public ResponseEntity<CustomerJob> submitImport(@RequestBody List<CustomerRegistrationRequest> customerRegistrationRequests) {
+        return accepted(customerJobService.submitImport(customerRegistrationRequests));
+    }
+
+    @PostMapping("/export")
+    public ResponseEntity<CustomerJob> submitExport(@RequestParam(required = false) Gender gender,
+                                                    @RequestParam(required = false) Integer minAge,
+                                                    @RequestParam(required = false) Integer maxAge,
+                                                    @RequestParam(defaultValue = "NDJSON") ExportFormat format) {
+        return accepted(customerJobService.submitExport(new CustomerFilter(gender, minAge, maxAge), format));
+    }
+
+    @PostMapping("/update")
+    public ResponseEntity<CustomerJob> submitUpdate(@RequestParam(required = false) Gender gender,
+                                                    @RequestParam(required = false) Integer minAge,
+                                                    @RequestParam(required = false) Integer maxAge,
+                                                    @RequestBody CustomerRegistrationRequest changes) {
+        return accepted(customerJobService.submitUpdate(new CustomerFilter(gender, minAge, maxAge), changes));
+    }
+
+    @GetMapping("/{id}")
+    public CustomerJob getJob(@PathVariable long id) {
+        return customerJobService.getJob(id);
+    }
+
+    // sends the job whenever it changed and completes once it has finished
+    @GetMapping("/{id}/events")
+    public SseEmitter streamJob(@PathVariable long id) throws IOException {
+        CustomerJob job = customerJobService.getJob(id);
+        SseEmitter emitter = new SseEmitter(EVENT_TIMEOUT.toMillis());
+        emitter.send(SseEmitter.event().name("progress").data(job));
+        if (job.status().isFinished()) {
+            emitter.complete();
+            return emitter;
+        }
+        AtomicReference<CustomerJob> last = new AtomicReference<>(job);
+        AtomicReference<ScheduledFuture<?>> poll = new AtomicReference<>();
+        Runnable cancel = () -> {
+            ScheduledFuture<?> future = poll.get();
+            if (future != null) {
+                future.cancel(false);
+            }
+        };
+        poll.set(events.scheduleWithFixedDelay(() -> {
+            try {
+                CustomerJob current = customerJobService.getJob(id);
+                if (!current.equals(last.getAndSet(current))) {
+                    emitter.send(SseEmitter.event().name("progress").data(current));
+                }
+                if (current.status().isFinished()) {
+                    cancel.run();
+                    emitter.complete();
+                }
+            } catch (IOException | RuntimeException e) {
+                // the client went away or the job row is gone
+                cancel.run();
+                emitter.completeWithError(e);
+            }
+        }, EVENT_INTERVAL.toMillis(), EVENT_INTERVAL.toMillis(), TimeUnit.MILLISECONDS));
+        emitter.onCompletion(cancel);
+        emitter.onTimeout(cancel);
+        return emitter;
+    }
+
+    @GetMapping("/{id}/output")
+    public ResponseEntity<Resource> getOutput(@PathVariable long id) {
+        CustomerJob job = customerJobService.getJob(id);
+        Path output = customerJobService.getOutput(job);
+        ExportFormat format = customerJobService.getOutputFormat(job);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, format.getContentType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"%s\"".formatted(output.getFileName()))
+                .body(new FileSystemResource(output));
+    }
+
+    @DeleteMapping("/{id}")
+    public CustomerJob cancelJob(@PathVariable long id) {
+        return customerJobService.cancelJob(id);
+    }
+
+    private static ResponseEntity<CustomerJob> accepted(CustomerJob job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/customer/jobs/" + job.id()))
+                .body(job);
+    }
+}
@@ -0,0 +1,34 @@
+package com.johan.controller;
+
+import com.johan.model.CustomerAgeReport;
+import com.johan.service.CustomerReportService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("api/v1/customer/report")
+public class CustomerReportController {
+
+    private final CustomerReportService customerReportService;
+
+    public CustomerReportController(CustomerReportService customerReportService) {
+        this.customerReportService = customerReportService;
+    }
+
+    @GetMapping("/age")
+    public CustomerAgeReport getAgeReport(@RequestParam(defaultValue = "0") int minAge,
+                                          @RequestParam(defaultValue = "150") int maxAge) {
+        return customerReportService.getAgeReport(minAge, maxAge);
+    }
+
+    @GetMapping("/age/histogram")
+    public Map<Integer, Long> getAgeHistogram() {
+        return customerReportService.getAgeHistogram();
+    }
+}
@@ -0,0 +1,77 @@
+package com.johan.controller;
+
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerRegistrationRequest;
+import com.johan.model.CustomerResponse;
+import com.johan.model.Gender;
+import com.johan.model.WireFormat;
+import com.johan.service.ReactiveCustomerService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.NotAcceptableStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Served instead of CustomerController when the application runs on WebFlux (the "reactive" profile).
+// The list is written as rows arrive and rows are only fetched as fast as the client reads them.
+@RestController
+@RequestMapping("api/v1/customer")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Profile("reactive")
+public class ReactiveCustomerController {
+
+    private final ReactiveCustomerService customerService;
+
+    public ReactiveCustomerController(ReactiveCustomerService customerService) {
+        this.customerService = customerService;
+    }
+
+    @GetMapping
+    public Flux<CustomerResponse> getCustomers(@RequestParam(required = false) Gender gender,
+                                               @RequestParam(required = false) Integer minAge,
+                                               @RequestParam(required = false) Integer maxAge,
+                                               @RequestParam(required = false) String fields) {
+        return customerService.getCustomers(new CustomerFilter(gender, minAge, maxAge), fields)
+                .map(CustomerResponse::from);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<CustomerResponse> getCustomer(@PathVariable int id,
+                                              @RequestParam(required = false) String fields,
+                                              ServerWebExchange exchange) {
+        WireFormat format;
+        try {
+            format = WireFormat.negotiate(exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT));
+        } catch (HttpMediaTypeNotAcceptableException e) {
+            return Mono.error(new NotAcceptableStatusException(e.getSupportedMediaTypes()));
+        }
+        // set before the check, so a 304 carries it too
+        exchange.getResponse().getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return customerService.getCustomer(id, fields)
+                .filter(customer -> !exchange.checkNotModified(
+                        CustomerETags.of(customer.getVersion(), CustomerField.parse(fields), format)))
+                .map(CustomerResponse::from);
+    }
+
+    @PostMapping
+    public Mono<Void> registerCustomer(@RequestBody CustomerRegistrationRequest customerRegistrationRequest) {
+        return customerService.addCustomer(customerRegistrationRequest);
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<Void> deleteCustomerByID(@PathVariable int id) {
+        return customerService.deleteCustomer(id);
+    }
+
+    @PutMapping("{id}")
+    public Mono<Void> updateCustomer(@PathVariable int id,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                     @RequestBody CustomerRegistrationRequest customerRegistrationRequest) {
+        return customerService.updateCustomer(id, customerRegistrationRequest, CustomerETags.expectedVersion(ifMatch));
+    }
+}
@@ -39,6 +39,10 @@ public class Customer {
     @Enumerated(EnumType.STRING)
     private Gender gender;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     public Customer() {
     }
 
@@ -90,6 +94,14 @@ public class Customer {
         this.email = email;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Integer getAge() {
         return age;
     }
@@ -98,6 +110,7 @@ public class Customer {
         this.age = age;
     }
 
+    // the version is bookkeeping, so two reads of the same data are equal whatever their version
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
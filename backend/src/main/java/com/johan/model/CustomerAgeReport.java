@@ -0,0 +1,10 @@
+package com.johan.model;
+
+import java.util.Map;
+
+public record CustomerAgeReport(int minAge,
+                                int maxAge,
+                                long customers,
+                                Map<Gender, Long> customersByGender,
+                                Double averageAge) {
+}
@@ -0,0 +1,11 @@
+package com.johan.model;
+
+public record CustomerBatchResult(int index, String email, Status status) {
+
+    public enum Status {
+        CREATED,
+        INVALID,
+        DUPLICATE_IN_BATCH,
+        EMAIL_TAKEN
+    }
+}
@@ -0,0 +1,15 @@
+package com.johan.model;
+
+// Changes whenever a matching row is inserted, updated or deleted. The checksum adds up a hash of every
+// row's id and version, so unlike a sum of versions, an update cannot cancel out a row leaving the filter.
+public record CustomerCollectionVersion(long customers, long checksum) {
+
+    // the in-memory counterpart of hashint8extended(id, version) in SQL; they need not agree, since a
+    // store's tags are only ever compared with its own
+    public static long rowHash(long id, long version) {
+        long z = id * 0x9E3779B97F4A7C15L + version;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
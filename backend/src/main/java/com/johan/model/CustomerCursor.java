@@ -0,0 +1,35 @@
+package com.johan.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Keyset position: the sort key and id of the last row of the previous page
+public record CustomerCursor(CustomerSort sort, String key, long id) {
+
+    public static CustomerCursor of(CustomerSort sort, Customer customer) {
+        return new CustomerCursor(sort, sort.keyOf(customer), customer.getId());
+    }
+
+    public String encode() {
+        String raw = sort.name() + ":" + id + (key == null ? "" : ":" + key);
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CustomerCursor decode(String token) {
+        String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        String[] parts = raw.split(":", 3);
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        CustomerSort sort = CustomerSort.valueOf(parts[0]);
+        if (sort != CustomerSort.ID && parts.length != 3) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        if (sort == CustomerSort.AGE) {
+            Integer.parseInt(parts[2]);
+        }
+        return new CustomerCursor(sort, parts.length == 3 ? parts[2] : null, Long.parseLong(parts[1]));
+    }
+}
@@ -0,0 +1,68 @@
+package com.johan.model;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+public enum CustomerField {
+    ID("id"),
+    NAME("name"),
+    EMAIL("email"),
+    AGE("age"),
+    GENDER("gender");
+
+    public static final Set<CustomerField> ALL = Collections.unmodifiableSet(EnumSet.allOf(CustomerField.class));
+
+    private final String column;
+
+    CustomerField(String column) {
+        this.column = column;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public Object get(Customer customer) {
+        return switch (this) {
+            case ID -> customer.getId();
+            case NAME -> customer.getName();
+            case EMAIL -> customer.getEmail();
+            case AGE -> customer.getAge();
+            case GENDER -> customer.getGender();
+        };
+    }
+
+    public void set(Customer customer, Object value) {
+        switch (this) {
+            case ID -> customer.setId((Long) value);
+            case NAME -> customer.setName((String) value);
+            case EMAIL -> customer.setEmail((String) value);
+            case AGE -> customer.setAge((Integer) value);
+            case GENDER -> customer.setGender((Gender) value);
+        }
+    }
+
+    // comma-separated column names such as "id,name"; blank means every field
+    public static Set<CustomerField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<CustomerField> parsed = EnumSet.noneOf(CustomerField.class);
+        for (String field : fields.split(",", -1)) {
+            parsed.add(valueOf(field.strip().toUpperCase(Locale.ROOT)));
+        }
+        return parsed;
+    }
+
+    // a copy holding only the given fields and the version; the others stay null and are left out of the JSON
+    public static Customer project(Customer customer, Set<CustomerField> fields) {
+        Customer projected = new Customer();
+        projected.setVersion(customer.getVersion());
+        for (CustomerField field : fields) {
+            field.set(projected, field.get(customer));
+        }
+        return projected;
+    }
+}
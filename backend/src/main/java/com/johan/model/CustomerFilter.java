@@ -0,0 +1,17 @@
+package com.johan.model;
+
+// Optional list filters; a null field does not constrain
+public record CustomerFilter(Gender gender, Integer minAge, Integer maxAge) {
+
+    public static final CustomerFilter NONE = new CustomerFilter(null, null, null);
+
+    public boolean isEmpty() {
+        return gender == null && minAge == null && maxAge == null;
+    }
+
+    public boolean matches(Customer customer) {
+        return (gender == null || gender == customer.getGender())
+                && (minAge == null || customer.getAge() >= minAge)
+                && (maxAge == null || customer.getAge() <= maxAge);
+    }
+}
@@ -0,0 +1,4 @@
+package com.johan.model;
+
+public record CustomerIngestProgress(long bytesRead, long totalBytes, long rowsRead, long rowsRejected) {
+}
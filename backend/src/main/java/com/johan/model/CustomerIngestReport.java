@@ -0,0 +1,11 @@
+package com.johan.model;
+
+public record CustomerIngestReport(long rowsRead,
+                                   long rowsInserted,
+                                   long rowsRejected,
+                                   long elapsedMillis) {
+
+    public long rowsPerSecond() {
+        return elapsedMillis == 0 ? rowsRead : rowsRead * 1000 / elapsedMillis;
+    }
+}
@@ -0,0 +1,15 @@
+package com.johan.model;
+
+// What a client sees of an ingest: the rejected rows are fetched by id, never by a path on the server
+public record CustomerIngestResponse(String id,
+                                     long rowsRead,
+                                     long rowsInserted,
+                                     long rowsRejected,
+                                     long rowsPerSecond,
+                                     long elapsedMillis) {
+
+    public static CustomerIngestResponse from(String id, CustomerIngestReport report) {
+        return new CustomerIngestResponse(id, report.rowsRead(), report.rowsInserted(), report.rowsRejected(),
+                report.rowsPerSecond(), report.elapsedMillis());
+    }
+}
@@ -0,0 +1,20 @@
+package com.johan.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+
+public record CustomerJob(long id,
+                          CustomerJobType type,
+                          CustomerJobStatus status,
+                          long total,
+                          long processed,
+                          long failed,
+                          String error,
+                          Instant createdAt,
+                          Instant updatedAt,
+                          // runner state, not part of the API
+                          @JsonIgnore String parameters,
+                          @JsonIgnore long lastKey,
+                          @JsonIgnore long outputSize) {
+}
@@ -0,0 +1,14 @@
+package com.johan.model;
+
+// What an export or update job applies to, stored with the job as JSON; format is only set for exports
+// and changes only for updates
+public record CustomerJobParameters(Gender gender,
+                                    Integer minAge,
+                                    Integer maxAge,
+                                    ExportFormat format,
+                                    CustomerRegistrationRequest changes) {
+
+    public CustomerFilter filter() {
+        return new CustomerFilter(gender, minAge, maxAge);
+    }
+}
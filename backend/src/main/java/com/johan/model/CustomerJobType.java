@@ -0,0 +1,10 @@
+package com.johan.model;
+
+public enum CustomerJobType {
+    // inserts the submitted rows, skipping taken emails like the batch endpoint
+    IMPORT,
+    // writes the matching customers to an NDJSON file
+    EXPORT,
+    // applies the same changes to every matching customer
+    UPDATE
+}
@@ -0,0 +1,6 @@
+package com.johan.model;
+
+import java.util.List;
+
+public record CustomerPage(List<Customer> customers, String nextCursor) {
+}
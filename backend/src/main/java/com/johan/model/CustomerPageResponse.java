@@ -0,0 +1,11 @@
+package com.johan.model;
+
+import java.util.List;
+
+public record CustomerPageResponse(List<CustomerResponse> customers, String nextCursor) {
+
+    public static CustomerPageResponse from(CustomerPage page) {
+        return new CustomerPageResponse(page.customers().stream().map(CustomerResponse::from).toList(),
+                page.nextCursor());
+    }
+}
@@ -0,0 +1,20 @@
+package com.johan.model;
+
+// previous is the row as it was before an UPDATED patch
+public record CustomerPatchResult(Status status, Customer customer, Customer previous) {
+
+    public enum Status {
+        UPDATED,
+        UNCHANGED,
+        NOT_FOUND,
+        EMAIL_TAKEN
+    }
+
+    public CustomerPatchResult(Status status, Customer customer) {
+        this(status, customer, null);
+    }
+
+    public static CustomerPatchResult of(Status status) {
+        return new CustomerPatchResult(status, null);
+    }
+}
@@ -1,4 +1,8 @@
 package com.johan.model;
 
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+// read from JSON, CBOR or Smile with the same names; add fields, never rename
+@JsonPropertyOrder({"name", "email", "age", "gender"})
 public record CustomerRegistrationRequest(String name, String email, Integer age, Gender gender) {
 }
@@ -0,0 +1,16 @@
+package com.johan.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+// The wire shape of a customer, kept apart from the entity; fields left out by a ?fields= projection are
+// null and omitted. These names are the schema for JSON, CBOR and Smile alike: add fields, never rename.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"id", "name", "email", "age", "gender"})
+public record CustomerResponse(Long id, String name, String email, Integer age, Gender gender) {
+
+    public static CustomerResponse from(Customer customer) {
+        return new CustomerResponse(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge(),
+                customer.getGender());
+    }
+}
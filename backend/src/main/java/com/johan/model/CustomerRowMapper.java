@@ -5,16 +5,44 @@ import org.springframework.stereotype.Component;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Set;
 
 @Component
 public class CustomerRowMapper implements RowMapper<Customer> {
     @Override
     public Customer mapRow(ResultSet rs, int rowNum) throws SQLException {
-        return new Customer(
+        Customer customer = new Customer(
                 rs.getLong("id"),
                 rs.getString("name"),
                 rs.getString("email"),
                 rs.getInt("age"),
                 Gender.valueOf(rs.getString("gender")));
+        customer.setVersion(rs.getLong("version"));
+        return customer;
+    }
+
+    // for a SELECT of only these columns plus version; the fields not selected stay null
+    public RowMapper<Customer> selecting(Set<CustomerField> fields) {
+        if (fields.containsAll(CustomerField.ALL)) {
+            return this;
+        }
+        return (rs, rowNum) -> {
+            Customer customer = new Customer();
+            for (CustomerField field : fields) {
+                field.set(customer, column(rs, field));
+            }
+            customer.setVersion(rs.getLong("version"));
+            return customer;
+        };
+    }
+
+    private static Object column(ResultSet rs, CustomerField field) throws SQLException {
+        return switch (field) {
+            case ID -> rs.getLong("id");
+            case NAME -> rs.getString("name");
+            case EMAIL -> rs.getString("email");
+            case AGE -> rs.getInt("age");
+            case GENDER -> Gender.valueOf(rs.getString("gender"));
+        };
     }
 }
@@ -0,0 +1,6 @@
+package com.johan.model;
+
+public enum CustomerSearchMatch {
+    PREFIX,
+    SUBSTRING
+}
@@ -0,0 +1,33 @@
+package com.johan.model;
+
+public enum CustomerSort {
+    ID("id"),
+    NAME("name"),
+    AGE("age");
+
+    private final String column;
+
+    CustomerSort(String column) {
+        this.column = column;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public CustomerField getField() {
+        return switch (this) {
+            case ID -> CustomerField.ID;
+            case NAME -> CustomerField.NAME;
+            case AGE -> CustomerField.AGE;
+        };
+    }
+
+    public String keyOf(Customer customer) {
+        return switch (this) {
+            case ID -> null;
+            case NAME -> customer.getName();
+            case AGE -> String.valueOf(customer.getAge());
+        };
+    }
+}
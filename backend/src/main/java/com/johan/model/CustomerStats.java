@@ -0,0 +1,12 @@
+package com.johan.model;
+
+import java.time.Instant;
+import java.util.Map;
+
+// reconciledAt is null until the counters were first checked against the table
+public record CustomerStats(long customers,
+                            Map<Gender, Long> customersByGender,
+                            Map<Integer, Long> ageHistogram,
+                            Map<String, Integer> agePercentiles,
+                            Instant reconciledAt) {
+}
@@ -0,0 +1,57 @@
+package com.johan.model;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// JSON stays first so that browsers, which accept */*, keep getting it
+public enum WireFormat {
+    JSON(MediaType.APPLICATION_JSON, null),
+    CBOR(MediaType.APPLICATION_CBOR, "cbor"),
+    SMILE(new MediaType("application", "x-jackson-smile"), "smile");
+
+    private final MediaType mediaType;
+    private final String tag;
+
+    WireFormat(MediaType mediaType, String tag) {
+        this.mediaType = mediaType;
+        this.tag = tag;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    // distinguishes the ETags of this format's representations from JSON's; null for JSON
+    public String getTag() {
+        return tag;
+    }
+
+    public static WireFormat negotiate(String accept) throws HttpMediaTypeNotAcceptableException {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            throw new HttpMediaTypeNotAcceptableException(e.getMessage());
+        }
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            for (WireFormat format : values()) {
+                if (mediaType.includes(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        throw new HttpMediaTypeNotAcceptableException(Arrays.stream(values()).map(WireFormat::getMediaType).toList());
+    }
+}
@@ -0,0 +1,194 @@
+package com.johan.repository;
+
+import com.johan.model.Customer;
+import com.johan.model.CustomerCollectionVersion;
+import com.johan.model.CustomerCursor;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerPatchResult;
+import com.johan.model.CustomerSearchMatch;
+import com.johan.model.CustomerSort;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache in front of the JDBC DAO for lookups by id. Every other read goes straight to the
+ * delegate; writes evict the affected ids once they return and again when a surrounding transaction
+ * completes, so a reader cannot re-cache the old row between the statement and the commit.
+ */
+@Repository("cached")
+public class CachingCustomerDao implements CustomerDao, MeterBinder {
+
+    private final CustomerDao delegate;
+    private final CustomerCache cache;
+
+    public CachingCustomerDao(@Qualifier("jdbc") CustomerDao delegate, CustomerCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public List<Customer> selectAllCustomer() {
+        return delegate.selectAllCustomer();
+    }
+
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        return delegate.streamAllCustomers();
+    }
+
+    @Override
+    public Stream<String> streamAllEmails() {
+        return delegate.streamAllEmails();
+    }
+
+    @Override
+    public Stream<Customer> streamCustomers(CustomerFilter filter, Set<CustomerField> fields) {
+        return delegate.streamCustomers(filter, fields);
+    }
+
+    @Override
+    public List<Customer> selectCustomerPage(CustomerFilter filter, CustomerSort sort, CustomerCursor after, int limit) {
+        return delegate.selectCustomerPage(filter, sort, after, limit);
+    }
+
+    @Override
+    public List<Customer> selectCustomerPage(CustomerFilter filter, Set<CustomerField> fields, CustomerSort sort,
+                                             CustomerCursor after, int limit) {
+        return delegate.selectCustomerPage(filter, fields, sort, after, limit);
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String query, CustomerSearchMatch match, int limit) {
+        return delegate.searchCustomers(query, match, limit);
+    }
+
+    @Override
+    public Optional<Customer> getByCustomerId(Integer customerId) {
+        return cache.get(customerId, delegate::getByCustomerId);
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        try {
+            delegate.insertCustomer(customer);
+        } finally {
+            invalidate(cache::invalidateNegatives);
+        }
+    }
+
+    @Override
+    public Optional<Long> insertCustomerIfAbsent(Customer customer) {
+        Optional<Long> id = delegate.insertCustomerIfAbsent(customer);
+        id.ifPresent(value -> invalidate(() -> cache.invalidate(value.intValue())));
+        return id;
+    }
+
+    @Override
+    public int[] insertCustomers(List<Customer> customers) {
+        try {
+            return delegate.insertCustomers(customers);
+        } finally {
+            invalidate(cache::invalidateNegatives);
+        }
+    }
+
+    @Override
+    public boolean existsPersonWithEmail(String email) {
+        return delegate.existsPersonWithEmail(email);
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return delegate.selectExistingEmails(emails);
+    }
+
+    @Override
+    public Optional<Customer> deleteCustomer(Integer customerId) {
+        try {
+            return delegate.deleteCustomer(customerId);
+        } finally {
+            invalidate(() -> cache.invalidate(customerId));
+        }
+    }
+
+    @Override
+    public void updateCustomer(Customer customer) {
+        try {
+            delegate.updateCustomer(customer);
+        } finally {
+            invalidate(() -> cache.invalidate(customer.getId().intValue()));
+        }
+    }
+
+    @Override
+    public boolean updateCustomer(Customer customer, long expectedVersion) {
+        try {
+            return delegate.updateCustomer(customer, expectedVersion);
+        } finally {
+            invalidate(() -> cache.invalidate(customer.getId().intValue()));
+        }
+    }
+
+    @Override
+    public CustomerCollectionVersion collectionVersion(CustomerFilter filter) {
+        return delegate.collectionVersion(filter);
+    }
+
+    @Override
+    public OptionalLong collectionRevision() {
+        return cache.generation();
+    }
+
+    @Override
+    public CustomerPatchResult patchCustomer(Integer customerId, Customer changes) {
+        try {
+            return delegate.patchCustomer(customerId, changes);
+        } finally {
+            invalidate(() -> cache.invalidate(customerId));
+        }
+    }
+
+    private void invalidate(Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("customer.cache.gets", cache, CustomerCache::hitCount)
+                .tag("result", "hit")
+                .description("Customer lookups by id answered from the cache")
+                .register(registry);
+        FunctionCounter.builder("customer.cache.gets", cache, CustomerCache::missCount)
+                .tag("result", "miss")
+                .description("Customer lookups by id that went to the database")
+                .register(registry);
+        FunctionCounter.builder("customer.cache.evictions", cache, CustomerCache::evictionCount)
+                .description("Customers evicted to keep the cache within its maximum size")
+                .register(registry);
+        Gauge.builder("customer.cache.size", cache, CustomerCache::size)
+                .description("Customers and absent ids currently cached")
+                .register(registry);
+    }
+}
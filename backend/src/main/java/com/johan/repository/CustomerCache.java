@@ -0,0 +1,196 @@
+package com.johan.repository;
+
+import com.johan.model.Customer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Size-bounded LRU cache of customers by id, split into independently locked segments so readers of
+ * different ids do not contend. Absent ids are cached too, with their own (shorter) time to live.
+ * Customers are copied on the way in and out because callers mutate the instances they get back.
+ */
+@Component
+public class CustomerCache implements CustomerChangeHandler {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LongSupplier clock;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // bumped by every invalidation; a random start keeps two nodes, or two runs, from sharing values
+    private final AtomicLong generation = new AtomicLong(ThreadLocalRandom.current().nextLong());
+    private volatile boolean listening;
+
+    @Autowired
+    public CustomerCache(@Value("${customer-cache.maximum-size:10000}") int maximumSize,
+                         @Value("${customer-cache.ttl:30s}") Duration ttl,
+                         @Value("${customer-cache.negative-ttl:5s}") Duration negativeTtl) {
+        this(maximumSize, ttl, negativeTtl, System::nanoTime);
+    }
+
+    CustomerCache(int maximumSize, Duration ttl, Duration negativeTtl, LongSupplier clock) {
+        int segmentCapacity = Math.max(1, (maximumSize + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.clock = clock;
+    }
+
+    public Optional<Customer> get(Integer id, Function<Integer, Optional<Customer>> loader) {
+        Segment segment = segmentFor(id);
+        long generation;
+        synchronized (segment) {
+            Entry entry = segment.get(id);
+            if (entry != null && entry.expiresAt - clock.getAsLong() > 0) {
+                hits.increment();
+                return Optional.ofNullable(entry.customer).map(CustomerCache::copy);
+            }
+            if (entry != null) {
+                segment.remove(id);
+            }
+            generation = segment.generation;
+        }
+        misses.increment();
+        Optional<Customer> loaded = loader.apply(id);
+        long ttl = loaded.isPresent() ? ttlNanos : negativeTtlNanos;
+        Entry entry = new Entry(loaded.map(CustomerCache::copy).orElse(null), clock.getAsLong() + ttl);
+        synchronized (segment) {
+            // a write that invalidated this segment while we were loading may have made the row stale
+            if (segment.generation == generation) {
+                segment.put(id, entry);
+            }
+        }
+        return loaded;
+    }
+
+    public void invalidate(Integer id) {
+        Segment segment = segmentFor(id);
+        synchronized (segment) {
+            segment.remove(id);
+            segment.generation++;
+        }
+        generation.incrementAndGet();
+    }
+
+    // inserts without a known id may turn any cached "not found" into a real row
+    public void invalidateNegatives() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.values().removeIf(entry -> entry.customer == null);
+                segment.generation++;
+            }
+        }
+        generation.incrementAndGet();
+    }
+
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+                segment.generation++;
+            }
+        }
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public void customersChanged(Collection<Integer> customerIds) {
+        customerIds.forEach(this::invalidate);
+    }
+
+    @Override
+    public void customersInserted() {
+        invalidateNegatives();
+    }
+
+    @Override
+    public void allCustomersChanged() {
+        invalidateAll();
+    }
+
+    @Override
+    public void listeningChanged(boolean listening) {
+        this.listening = listening;
+    }
+
+    // moves with every write this node hears of, so it validates anything read from the table after it;
+    // empty while writes on other nodes may go unheard
+    public OptionalLong generation() {
+        return listening ? OptionalLong.of(generation.get()) : OptionalLong.empty();
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private Segment segmentFor(Integer id) {
+        int hash = id.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static Customer copy(Customer customer) {
+        Customer copy = new Customer(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge(),
+                customer.getGender());
+        copy.setVersion(customer.getVersion());
+        return copy;
+    }
+
+    private record Entry(Customer customer, long expiresAt) {
+    }
+
+    private final class Segment extends LinkedHashMap<Integer, Entry> {
+        private final int capacity;
+        private long generation;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
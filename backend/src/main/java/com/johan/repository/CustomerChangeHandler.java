@@ -0,0 +1,21 @@
+package com.johan.repository;
+
+import java.util.Collection;
+
+/**
+ * Receives the customer changes {@link CustomerChangeListener} hears about from any node.
+ */
+public interface CustomerChangeHandler {
+
+    void customersChanged(Collection<Integer> customerIds);
+
+    // rows were inserted whose ids the writer did not announce
+    void customersInserted();
+
+    // notifications may have been missed, so anything derived from the table is suspect
+    void allCustomersChanged();
+
+    // whether notifications are arriving; while they are not, writes on other nodes go unheard
+    default void listeningChanged(boolean listening) {
+    }
+}
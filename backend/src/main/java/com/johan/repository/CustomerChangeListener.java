@@ -0,0 +1,222 @@
+package com.johan.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Passes what any node publishes on {@value CustomerChangeNotifier#CHANNEL} to the local {@link CustomerChangeHandler}s.
+ * Listens on its own connection outside the pool, since it is held for the lifetime of the application.
+ * Notifications sent while that connection is down are lost, so every (re)connect reports all customers changed.
+ */
+@Component
+public class CustomerChangeListener implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerChangeListener.class);
+    private static final int POLL_MILLIS = 10_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final List<CustomerChangeHandler> handlers;
+    private final DataSourceProperties dataSourceProperties;
+    private final boolean enabled;
+    private final Duration coalesceWindow;
+    private final int maxBatch;
+    private final Duration reconnectDelay;
+    private final LongAdder notifications = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread thread;
+
+    public CustomerChangeListener(List<CustomerChangeHandler> handlers,
+                                  DataSourceProperties dataSourceProperties,
+                                  @Value("${customer-cache.notifications.enabled:true}") boolean enabled,
+                                  @Value("${customer-cache.notifications.coalesce-window:20ms}") Duration coalesceWindow,
+                                  @Value("${customer-cache.notifications.max-batch:1000}") int maxBatch,
+                                  @Value("${customer-cache.notifications.reconnect-delay:1s}") Duration reconnectDelay) {
+        this.handlers = handlers;
+        this.dataSourceProperties = dataSourceProperties;
+        this.enabled = enabled;
+        this.coalesceWindow = coalesceWindow;
+        this.maxBatch = maxBatch;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "customer-change-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        closeQuietly(connection);
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection listening = DriverManager.getConnection(
+                    dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(),
+                    dataSourceProperties.determinePassword())) {
+                connection = listening;
+                try (Statement statement = listening.createStatement()) {
+                    statement.execute("LISTEN " + CustomerChangeNotifier.CHANNEL);
+                }
+                // changes made while we were not listening were never seen, so nothing derived can be trusted
+                handlers.forEach(CustomerChangeHandler::allCustomersChanged);
+                handlers.forEach(handler -> handler.listeningChanged(true));
+                resyncs.increment();
+                try {
+                    listen(listening);
+                } finally {
+                    handlers.forEach(handler -> handler.listeningChanged(false));
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    LOGGER.warn("Customer change listener disconnected, reconnecting in {}", reconnectDelay, e);
+                    handlers.forEach(CustomerChangeHandler::allCustomersChanged);
+                    sleep(reconnectDelay);
+                }
+            }
+        }
+    }
+
+    private void listen(Connection listening) throws SQLException {
+        PGConnection pgConnection = listening.unwrap(PGConnection.class);
+        while (running) {
+            PGNotification[] received = pgConnection.getNotifications(POLL_MILLIS);
+            if (received == null || received.length == 0) {
+                // an idle socket does not notice a dead peer on its own
+                if (!listening.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    throw new SQLException("Listener connection is no longer valid");
+                }
+                continue;
+            }
+            Changes changes = new Changes(maxBatch);
+            changes.add(received);
+            // a burst of writes is applied as one eviction pass instead of one per notification
+            long deadline = System.nanoTime() + coalesceWindow.toNanos();
+            long remaining;
+            while (!changes.overflowed && (remaining = deadline - System.nanoTime()) > 0) {
+                int millis = (int) Math.max(1, Duration.ofNanos(remaining).toMillis());
+                received = pgConnection.getNotifications(millis);
+                if (received != null) {
+                    changes.add(received);
+                }
+            }
+            apply(changes);
+        }
+    }
+
+    private void apply(Changes changes) {
+        notifications.add(changes.received);
+        for (CustomerChangeHandler handler : handlers) {
+            if (changes.overflowed) {
+                handler.allCustomersChanged();
+                continue;
+            }
+            if (changes.inserted) {
+                handler.customersInserted();
+            }
+            if (!changes.ids.isEmpty()) {
+                handler.customersChanged(changes.ids);
+            }
+        }
+    }
+
+    private void sleep(Duration delay) {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.debug("Failed to close customer change listener connection", e);
+        }
+    }
+
+    long resyncCount() {
+        return resyncs.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("customer.cache.notifications", notifications, LongAdder::sum)
+                .description("Customer change notifications received from any node")
+                .register(registry);
+        FunctionCounter.builder("customer.cache.resyncs", resyncs, LongAdder::sum)
+                .description("Times the listener (re)connected and reported all customers changed")
+                .register(registry);
+    }
+
+    private static final class Changes {
+        private final int maxBatch;
+        private final Set<Integer> ids = new HashSet<>();
+        private boolean inserted;
+        private boolean overflowed;
+        private long received;
+
+        private Changes(int maxBatch) {
+            this.maxBatch = maxBatch;
+        }
+
+        private void add(PGNotification[] notifications) {
+            for (PGNotification notification : notifications) {
+                received++;
+                String payload = notification.getParameter();
+                if (CustomerChangeNotifier.INSERTED.equals(payload)) {
+                    inserted = true;
+                    continue;
+                }
+                try {
+                    ids.add(Integer.valueOf(payload));
+                } catch (NumberFormatException e) {
+                    overflowed = true;
+                }
+            }
+            if (ids.size() > maxBatch) {
+                overflowed = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.johan.repository;
+
+/**
+ * The channel customer mutations are published on so every node can evict its cached copy. Writers call
+ * {@code pg_notify} in the same statement as the write, so a notification goes out exactly when, and only
+ * if, the write commits.
+ */
+public final class CustomerChangeNotifier {
+
+    public static final String CHANNEL = "customer_changed";
+    // payload for inserts whose ids the writer does not report one by one
+    public static final String INSERTED = "*";
+
+    private CustomerChangeNotifier() {
+    }
+}
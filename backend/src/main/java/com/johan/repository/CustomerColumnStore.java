@@ -0,0 +1,253 @@
+package com.johan.repository;
+
+import com.johan.model.CustomerAgeReport;
+import com.johan.model.Gender;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps {@link CustomerColumns} in step with the customer table for analytical queries. The first query loads
+ * every row; after that each query first applies what {@link CustomerChangeListener} reported since the
+ * previous one: announced ids are re-read, inserts are picked up past the highest loaded id, and a resync
+ * reloads everything. Without notifications the copy is reloaded once it is older than {@code max-age}.
+ */
+@Component
+public class CustomerColumnStore implements CustomerChangeHandler, MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerColumnStore.class);
+    // ids are drawn from the sequence at insert but become visible at commit, so a slower transaction can
+    // commit below rows already loaded; re-reading this many ids back finds those
+    private static final long INSERT_OVERLAP = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration maxAge;
+    private final LongSupplier clock;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // a lock rather than a monitor: refreshes run queries, which would pin a virtual thread to its carrier
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final Set<Integer> changed = ConcurrentHashMap.newKeySet();
+    private volatile boolean inserted;
+    private volatile boolean reloadRequested = true;
+
+    // guarded by lock; replaced wholesale on reload
+    private CustomerColumns columns = new CustomerColumns(0);
+    private long loadedAt;
+
+    @Autowired
+    public CustomerColumnStore(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${customer-columns.max-age:1h}") Duration maxAge) {
+        this(jdbcTemplate, transactionManager, maxAge, System::nanoTime);
+    }
+
+    CustomerColumnStore(JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        Duration maxAge,
+                        LongSupplier clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    public CustomerAgeReport ageReport(int minAge, int maxAge) {
+        return query(columns -> {
+            long[] byGender = columns.countByGender(minAge, maxAge);
+            Map<Gender, Long> counts = new EnumMap<>(Gender.class);
+            for (Gender gender : Gender.values()) {
+                counts.put(gender, byGender[gender.ordinal()]);
+            }
+            return new CustomerAgeReport(minAge, maxAge, columns.countByAge(minAge, maxAge, null), counts,
+                    columns.averageAge(minAge, maxAge));
+        });
+    }
+
+    public long[] ageHistogram() {
+        return query(CustomerColumns::ageHistogram);
+    }
+
+    <T> T query(Function<CustomerColumns, T> operator) {
+        refresh();
+        return read(operator);
+    }
+
+    private <T> T read(Function<CustomerColumns, T> operator) {
+        lock.readLock().lock();
+        try {
+            return operator.apply(columns);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void customersChanged(Collection<Integer> customerIds) {
+        changed.addAll(customerIds);
+    }
+
+    @Override
+    public void customersInserted() {
+        inserted = true;
+    }
+
+    @Override
+    public void allCustomersChanged() {
+        reloadRequested = true;
+    }
+
+    // one refresher at a time; the flags are cleared before reading so changes reported meanwhile are kept
+    void refresh() {
+        refreshLock.lock();
+        try {
+            refreshLocked();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void refreshLocked() {
+        if (!reloadRequested && clock.getAsLong() - loadedAt <= maxAge.toNanos()) {
+            if (inserted) {
+                inserted = false;
+                appendInserted();
+            }
+            if (!changed.isEmpty()) {
+                List<Integer> ids = new ArrayList<>(changed);
+                changed.removeAll(ids);
+                reread(ids);
+            }
+        }
+        // checked again since applying changes may have found rows that only a reload can place
+        if (reloadRequested || clock.getAsLong() - loadedAt > maxAge.toNanos()) {
+            reloadRequested = false;
+            inserted = false;
+            changed.clear();
+            reload();
+        }
+    }
+
+    private void reload() {
+        long started = System.nanoTime();
+        CustomerColumns next = new CustomerColumns(read(CustomerColumns::rows));
+        var sql = """
+                SELECT id, name, age, gender
+                FROM customer
+                ORDER BY id
+                """;
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(CustomerJDBCAccessService.STREAM_FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            next.append(rs.getLong("id"), rs.getString("name"), rs.getInt("age"), gender(rs));
+        }));
+        lock.writeLock().lock();
+        try {
+            columns = next;
+            loadedAt = clock.getAsLong();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Loaded {} customers into columns ({} bytes off-heap) in {} ms",
+                next.count(), next.offHeapBytes(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void appendInserted() {
+        var sql = """
+                SELECT id, name, age, gender
+                FROM customer
+                WHERE id > ?
+                ORDER BY id
+                """;
+        long from = Math.max(0, read(CustomerColumns::lastId) - INSERT_OVERLAP);
+        apply(jdbcTemplate.query(sql, (rs, rowNum) -> row(rs), from), List.of());
+    }
+
+    private void reread(List<Integer> ids) {
+        var sql = """
+                SELECT id, name, age, gender
+                FROM customer
+                WHERE id = ANY (?)
+                ORDER BY id
+                """;
+        List<Row> rows = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            Array array = connection.createArrayOf("int4", ids.toArray());
+            statement.setArray(1, array);
+            return statement;
+        }, (rs, rowNum) -> row(rs));
+        Set<Integer> missing = new HashSet<>(ids);
+        rows.forEach(row -> missing.remove((int) row.id));
+        apply(rows, missing);
+    }
+
+    private void apply(List<Row> rows, Collection<Integer> deleted) {
+        boolean placed = true;
+        lock.writeLock().lock();
+        try {
+            for (Row row : rows) {
+                placed &= columns.upsert(row.id, row.name, row.age, row.gender);
+            }
+            deleted.forEach(columns::delete);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!placed) {
+            // a row committed below the loaded ids that the columns cannot insert in place
+            reloadRequested = true;
+        }
+    }
+
+    private static Row row(ResultSet rs) throws SQLException {
+        return new Row(rs.getLong("id"), rs.getString("name"), rs.getInt("age"), gender(rs));
+    }
+
+    private static Gender gender(ResultSet rs) throws SQLException {
+        String gender = rs.getString("gender");
+        return gender == null ? null : Gender.valueOf(gender);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // scrapes read whatever is loaded rather than triggering a refresh
+        Gauge.builder("customer.columns.rows", this, store -> store.read(CustomerColumns::count))
+                .description("Live customers held by the column store")
+                .register(registry);
+        Gauge.builder("customer.columns.size", this, store -> store.read(CustomerColumns::offHeapBytes))
+                .description("Direct memory held by the customer columns")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private record Row(long id, String name, int age, Gender gender) {
+    }
+}
@@ -0,0 +1,252 @@
+package com.johan.repository;
+
+import com.johan.model.Gender;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Column-oriented copy of the customer table for scans and aggregates. Ids, ages and dictionary codes of
+ * names live in direct buffers, so millions of rows are a handful of objects to the collector; gender and
+ * liveness are bitsets. Rows are kept in id order and deleted rows are only cleared in the live bitset.
+ * Operators work 64 rows at a time: a branch-free loop builds a match mask for the word, which is then
+ * combined with the bitsets and counted with {@link Long#bitCount}. Not thread-safe.
+ */
+final class CustomerColumns {
+
+    static final int MAX_AGE = 150;
+
+    // codes of names that are no longer referenced stay until the next full load
+    private final Map<String, Integer> nameCodes = new HashMap<>();
+    private ByteBuffer ids;
+    private ByteBuffer ages;
+    private ByteBuffer nameColumn;
+    private long[] live;
+    private long[] male;
+    private long[] female;
+    private int rows;
+    private int liveRows;
+
+    CustomerColumns(int capacity) {
+        allocate(Math.max(64, capacity));
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    long lastId() {
+        return rows == 0 ? 0 : id(rows - 1);
+    }
+
+    // ids must arrive in ascending order
+    void append(long id, String name, int age, Gender gender) {
+        if (rows > 0 && id <= lastId()) {
+            throw new IllegalArgumentException("Id %d is not after %d".formatted(id, lastId()));
+        }
+        if (rows == capacity()) {
+            allocate(capacity() * 2);
+        }
+        ids.putLong(rows * Long.BYTES, id);
+        set(rows, name, age, gender);
+        rows++;
+        liveRows++;
+    }
+
+    // returns false when the id falls between existing rows, which only a full reload can place
+    boolean upsert(long id, String name, int age, Gender gender) {
+        int row = indexOf(id);
+        if (row >= 0) {
+            if (!isLive(row)) {
+                liveRows++;
+            }
+            set(row, name, age, gender);
+            return true;
+        }
+        if (rows > 0 && id < lastId()) {
+            return false;
+        }
+        append(id, name, age, gender);
+        return true;
+    }
+
+    void delete(long id) {
+        int row = indexOf(id);
+        if (row >= 0 && isLive(row)) {
+            live[row >>> 6] &= ~(1L << row);
+            liveRows--;
+        }
+    }
+
+    long count() {
+        return liveRows;
+    }
+
+    long countByName(String name) {
+        Integer code = nameCodes.get(name);
+        if (code == null) {
+            return 0;
+        }
+        long count = 0;
+        for (int word = 0; word < words(); word++) {
+            int base = word << 6;
+            int end = Math.min(64, rows - base);
+            long match = 0;
+            for (int i = 0; i < end; i++) {
+                int difference = nameColumn.getInt((base + i) * Integer.BYTES) ^ code;
+                // 1 when the codes are equal, without a branch
+                match |= (long) (((difference | -difference) >>> 31) ^ 1) << i;
+            }
+            count += Long.bitCount(match & live[word]);
+        }
+        return count;
+    }
+
+    // gender null counts every gender, including rows without one
+    long countByAge(int minAge, int maxAge, Gender gender) {
+        long count = 0;
+        for (int word = 0; word < words(); word++) {
+            count += Long.bitCount(ageMatches(word, minAge, maxAge) & genderMask(word, gender));
+        }
+        return count;
+    }
+
+    // counts indexed by Gender ordinal
+    long[] countByGender(int minAge, int maxAge) {
+        long[] counts = new long[Gender.values().length];
+        for (int word = 0; word < words(); word++) {
+            long match = ageMatches(word, minAge, maxAge);
+            counts[Gender.MALE.ordinal()] += Long.bitCount(match & male[word]);
+            counts[Gender.FEMALE.ordinal()] += Long.bitCount(match & female[word]);
+        }
+        return counts;
+    }
+
+    // histogram[age] is the number of live rows of that age; ages outside [0, MAX_AGE] are clamped
+    long[] ageHistogram() {
+        long[] histogram = new long[MAX_AGE + 1];
+        for (int word = 0; word < words(); word++) {
+            long remaining = live[word];
+            int base = word << 6;
+            while (remaining != 0) {
+                int row = base + Long.numberOfTrailingZeros(remaining);
+                histogram[Math.min(MAX_AGE, Math.max(0, ages.getInt(row * Integer.BYTES)))]++;
+                remaining &= remaining - 1;
+            }
+        }
+        return histogram;
+    }
+
+    // null when no live row is in range
+    Double averageAge(int minAge, int maxAge) {
+        long sum = 0;
+        long count = 0;
+        for (int word = 0; word < words(); word++) {
+            long remaining = ageMatches(word, minAge, maxAge);
+            count += Long.bitCount(remaining);
+            int base = word << 6;
+            while (remaining != 0) {
+                sum += ages.getInt((base + Long.numberOfTrailingZeros(remaining)) * Integer.BYTES);
+                remaining &= remaining - 1;
+            }
+        }
+        return count == 0 ? null : (double) sum / count;
+    }
+
+    long offHeapBytes() {
+        return (long) ids.capacity() + ages.capacity() + nameColumn.capacity();
+    }
+
+    // live rows of the word whose age is within [minAge, maxAge]
+    private long ageMatches(int word, int minAge, int maxAge) {
+        int base = word << 6;
+        int end = Math.min(64, rows - base);
+        long match = 0;
+        for (int i = 0; i < end; i++) {
+            int age = ages.getInt((base + i) * Integer.BYTES);
+            // the sign bit is set when either bound is violated
+            match |= (long) ((((age - minAge) | (maxAge - age)) >>> 31) ^ 1) << i;
+        }
+        return match & live[word];
+    }
+
+    private long genderMask(int word, Gender gender) {
+        if (gender == null) {
+            return -1L;
+        }
+        return gender == Gender.MALE ? male[word] : female[word];
+    }
+
+    private void set(int row, String name, int age, Gender gender) {
+        ages.putInt(row * Integer.BYTES, age);
+        nameColumn.putInt(row * Integer.BYTES, code(name));
+        long bit = 1L << row;
+        int word = row >>> 6;
+        live[word] |= bit;
+        male[word] = gender == Gender.MALE ? male[word] | bit : male[word] & ~bit;
+        female[word] = gender == Gender.FEMALE ? female[word] | bit : female[word] & ~bit;
+    }
+
+    private int code(String name) {
+        Integer code = nameCodes.get(name);
+        if (code == null) {
+            code = nameCodes.size();
+            nameCodes.put(name, code);
+        }
+        return code;
+    }
+
+    private int indexOf(long id) {
+        int low = 0;
+        int high = rows - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long current = id(middle);
+            if (current < id) {
+                low = middle + 1;
+            } else if (current > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private long id(int row) {
+        return ids.getLong(row * Long.BYTES);
+    }
+
+    private boolean isLive(int row) {
+        return (live[row >>> 6] & (1L << row)) != 0;
+    }
+
+    private int words() {
+        return (rows + 63) >>> 6;
+    }
+
+    private int capacity() {
+        return ages.capacity() / Integer.BYTES;
+    }
+
+    private void allocate(int capacity) {
+        ids = grow(ids, capacity * Long.BYTES);
+        ages = grow(ages, capacity * Integer.BYTES);
+        nameColumn = grow(nameColumn, capacity * Integer.BYTES);
+        int words = (capacity + 63) >>> 6;
+        live = live == null ? new long[words] : Arrays.copyOf(live, words);
+        male = male == null ? new long[words] : Arrays.copyOf(male, words);
+        female = female == null ? new long[words] : Arrays.copyOf(female, words);
+    }
+
+    private static ByteBuffer grow(ByteBuffer current, int bytes) {
+        ByteBuffer next = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        if (current != null) {
+            next.put(0, current, 0, current.capacity());
+        }
+        return next;
+    }
+}
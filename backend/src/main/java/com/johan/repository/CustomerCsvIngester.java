@@ -0,0 +1,423 @@
+package com.johan.repository;
+
+import com.johan.model.CustomerIngestProgress;
+import com.johan.model.CustomerIngestReport;
+import com.johan.model.Gender;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Bulk loads a {@code name,email,age,gender} CSV file into the customer table.
+ * <p>
+ * The file is split on line boundaries into chunks that are memory-mapped and parsed in parallel.
+ * Valid rows are streamed in file order through a single COPY into a temporary staging table, from
+ * which rows whose email already exists or repeats earlier in the file are moved to the reject file
+ * before the remainder is inserted in one statement. Parsed chunks wait in memory for their turn on the
+ * COPY, so the look-ahead is bounded by bytes as well as by chunk count. Rows must not contain quoted line
+ * breaks.
+ */
+@Component
+public class CustomerCsvIngester {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerCsvIngester.class);
+    private static final String HEADER = "name,email,age,gender";
+    private static final int FETCH_SIZE = 10_000;
+
+    private final DataSource dataSource;
+    private final int chunkSize;
+    private final long maxInFlightBytes;
+    private final int parallelism;
+
+    public CustomerCsvIngester(DataSource dataSource,
+                               @Value("${ingest.chunk-size:16777216}") int chunkSize,
+                               @Value("${ingest.max-in-flight-bytes:268435456}") long maxInFlightBytes) {
+        this.dataSource = dataSource;
+        this.chunkSize = chunkSize;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    public CustomerIngestReport ingest(Path csv, Path rejects) {
+        return ingest(csv, rejects, progress -> LOGGER.info(
+                "Ingested {}/{} bytes, {} rows read, {} rejected",
+                progress.bytesRead(), progress.totalBytes(), progress.rowsRead(), progress.rowsRejected()));
+    }
+
+    public CustomerIngestReport ingest(Path csv, Path rejects, Consumer<CustomerIngestProgress> progress) {
+        long started = System.nanoTime();
+        ExecutorService parsers = Executors.newFixedThreadPool(parallelism);
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ);
+             BufferedWriter rejectWriter = Files.newBufferedWriter(rejects, StandardCharsets.UTF_8);
+             Connection connection = dataSource.getConnection()) {
+            rejectWriter.write("line,reason,row");
+            rejectWriter.newLine();
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                createStagingTable(connection);
+                List<Long> firstLines = new ArrayList<>();
+                Counts counts = copyChunks(channel, connection, parsers, firstLines, rejectWriter, progress);
+                rejectFromStaging(connection, TAKEN_SQL, "EMAIL_TAKEN", firstLines, rejectWriter);
+                rejectFromStaging(connection, DUPLICATE_SQL, "DUPLICATE_IN_FILE", firstLines, rejectWriter);
+                long inserted;
+                try (Statement statement = connection.createStatement()) {
+                    inserted = statement.executeUpdate(INSERT_SQL);
+                    if (inserted > 0) {
+                        // delivered on commit; lets every node drop cached "not found" ids
+                        statement.execute(NOTIFY_SQL);
+                    }
+                }
+                connection.commit();
+                // also covers rows lost to a concurrent insert between the staging checks and the INSERT
+                long rejected = counts.read - inserted;
+                return new CustomerIngestReport(counts.read, inserted, rejected,
+                        Duration.ofNanos(System.nanoTime() - started).toMillis());
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Customer ingest failed", e);
+        } finally {
+            parsers.shutdownNow();
+        }
+    }
+
+    private static final String STAGING_SQL = """
+            CREATE TEMP TABLE customer_ingest (
+                chunk INT NOT NULL,
+                line INT NOT NULL,
+                name TEXT NOT NULL,
+                email TEXT NOT NULL,
+                age INT NOT NULL,
+                gender TEXT NOT NULL
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_SQL = """
+            COPY customer_ingest (chunk, line, name, email, age, gender)
+            FROM STDIN WITH (FORMAT csv)
+            """;
+
+    private static final String TAKEN_SQL = """
+            DELETE FROM customer_ingest i
+            USING customer c
+            WHERE i.email = c.email
+            RETURNING i.chunk, i.line, i.name, i.email, i.age, i.gender
+            """;
+
+    private static final String DUPLICATE_SQL = """
+            DELETE FROM customer_ingest
+            WHERE (chunk, line) IN (
+                SELECT chunk, line
+                FROM (SELECT chunk, line,
+                             row_number() OVER (PARTITION BY email ORDER BY chunk, line) AS rn
+                      FROM customer_ingest) d
+                WHERE d.rn > 1)
+            RETURNING chunk, line, name, email, age, gender
+            """;
+
+    private static final String INSERT_SQL = """
+            INSERT INTO customer (name, email, age, gender)
+            SELECT name, email, age, gender
+            FROM customer_ingest
+            ORDER BY chunk, line
+            ON CONFLICT (email) DO NOTHING
+            """;
+
+    private static final String NOTIFY_SQL = "NOTIFY %s, '%s'"
+            .formatted(CustomerChangeNotifier.CHANNEL, CustomerChangeNotifier.INSERTED);
+
+    private void createStagingTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(STAGING_SQL);
+        }
+    }
+
+    private Counts copyChunks(FileChannel channel,
+                              Connection connection,
+                              ExecutorService parsers,
+                              List<Long> firstLines,
+                              BufferedWriter rejectWriter,
+                              Consumer<CustomerIngestProgress> progress) throws IOException, SQLException {
+        List<Chunk> chunks = split(channel, chunkSize);
+        Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+        long inFlightBytes = 0;
+        int next = 0;
+        long line = 1;
+        Counts counts = new Counts();
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        try {
+            while (next < chunks.size() || !inFlight.isEmpty()) {
+                // a parsed chunk holds about as many bytes as it covers in the file; at most two per parser and
+                // no more bytes than the budget, though one chunk always goes ahead so a large one cannot stall
+                while (next < chunks.size() && inFlight.size() < parallelism * 2
+                        && (inFlight.isEmpty() || inFlightBytes + chunks.get(next).length() <= maxInFlightBytes)) {
+                    Chunk chunk = chunks.get(next++);
+                    inFlightBytes += chunk.length();
+                    inFlight.add(parsers.submit(() -> parse(channel, chunk)));
+                }
+                ParsedChunk parsed = await(inFlight.poll());
+                inFlightBytes -= parsed.chunk().length();
+                firstLines.add(line);
+                copyIn.writeToCopy(parsed.copyData(), 0, parsed.copyLength());
+                for (Reject reject : parsed.rejects()) {
+                    writeReject(rejectWriter, line + reject.line(), reject.reason(), reject.row());
+                }
+                line += parsed.lines();
+                counts.read += parsed.rows();
+                counts.rejected += parsed.rejects().size();
+                progress.accept(new CustomerIngestProgress(
+                        parsed.chunk().end(), channel.size(), counts.read, counts.rejected));
+            }
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE customer_ingest");
+        }
+        return counts;
+    }
+
+    private void rejectFromStaging(Connection connection,
+                                   String sql,
+                                   String reason,
+                                   List<Long> firstLines,
+                                   BufferedWriter rejectWriter) throws SQLException, IOException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    String row = String.join(",",
+                            csvField(rs.getString("name")),
+                            csvField(rs.getString("email")),
+                            rs.getString("age"),
+                            rs.getString("gender"));
+                    writeReject(rejectWriter, firstLines.get(rs.getInt("chunk")) + rs.getInt("line"), reason, row);
+                }
+            }
+        }
+    }
+
+    static List<Chunk> split(FileChannel channel, int chunkSize) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        long size = channel.size();
+        long start = 0;
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        while (start < size) {
+            long end = Math.min(start + chunkSize, size);
+            // extend the chunk to the end of the line it cuts through
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                int newline = -1;
+                for (int i = 0; i < read && newline < 0; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = i;
+                    }
+                }
+                if (newline >= 0) {
+                    end += newline + 1;
+                    break;
+                }
+                end += read;
+            }
+            chunks.add(new Chunk(chunks.size(), start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    static ParsedChunk parse(FileChannel channel, Chunk chunk) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start(), chunk.length());
+        CopyBuffer copyData = new CopyBuffer((int) chunk.length() + 1024);
+        List<Reject> rejects = new ArrayList<>();
+        byte[] lineBytes = new byte[256];
+        int lines = 0;
+        long rows = 0;
+        int length = 0;
+        while (buffer.hasRemaining() || length > 0) {
+            byte b = buffer.hasRemaining() ? buffer.get() : (byte) '\n';
+            if (b != '\n') {
+                if (length == lineBytes.length) {
+                    lineBytes = Arrays.copyOf(lineBytes, length * 2);
+                }
+                lineBytes[length++] = b;
+                continue;
+            }
+            if (length > 0 && lineBytes[length - 1] == '\r') {
+                length--;
+            }
+            String text = new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+            int lineInChunk = lines++;
+            length = 0;
+            if (text.isBlank() || (chunk.index() == 0 && lineInChunk == 0 && text.trim().equalsIgnoreCase(HEADER))) {
+                continue;
+            }
+            rows++;
+            List<String> fields = splitCsv(text);
+            String reason = validate(fields);
+            if (reason != null) {
+                rejects.add(new Reject(lineInChunk, reason, text));
+                continue;
+            }
+            String copyRow = chunk.index() + "," + lineInChunk + ","
+                    + csvField(fields.get(0).trim()) + ","
+                    + csvField(fields.get(1).trim()) + ","
+                    + Integer.parseInt(fields.get(2).trim()) + ","
+                    + Gender.valueOf(fields.get(3).trim().toUpperCase()) + "\n";
+            copyData.writeBytes(copyRow.getBytes(StandardCharsets.UTF_8));
+        }
+        return new ParsedChunk(chunk, lines, rows, copyData.buffer(), copyData.size(), rejects);
+    }
+
+    static String validate(List<String> fields) {
+        if (fields == null || fields.size() != 4) {
+            return "MALFORMED";
+        }
+        if (fields.get(0).isBlank()) {
+            return "MISSING_NAME";
+        }
+        if (fields.get(1).isBlank()) {
+            return "MISSING_EMAIL";
+        }
+        try {
+            if (Integer.parseInt(fields.get(2).trim()) < 0) {
+                return "INVALID_AGE";
+            }
+        } catch (NumberFormatException e) {
+            return "INVALID_AGE";
+        }
+        try {
+            Gender.valueOf(fields.get(3).trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return "INVALID_GENDER";
+        }
+        return null;
+    }
+
+    // RFC 4180 field splitting; returns null when a quoted field is not terminated
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String csvField(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static void writeReject(BufferedWriter writer, long line, String reason, String row) throws IOException {
+        writer.write(line + "," + reason + "," + csvField(row));
+        writer.newLine();
+    }
+
+    private static ParsedChunk await(Future<ParsedChunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing customer CSV", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IllegalStateException("Failed to parse customer CSV", e.getCause());
+        }
+    }
+
+    record Chunk(int index, long start, long end) {
+
+        long length() {
+            return end - start;
+        }
+    }
+
+    record Reject(int line, String reason, String row) {
+    }
+
+    // copyData is the parse buffer itself, not a trimmed copy; only its first copyLength bytes are rows
+    record ParsedChunk(Chunk chunk, int lines, long rows, byte[] copyData, int copyLength, List<Reject> rejects) {
+    }
+
+    private static final class CopyBuffer extends ByteArrayOutputStream {
+
+        CopyBuffer(int size) {
+            super(size);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    private static final class Counts {
+        private long read;
+        private long rejected;
+    }
+}
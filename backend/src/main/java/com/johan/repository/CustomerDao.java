@@ -1,15 +1,79 @@
 package com.johan.repository;
 
 import com.johan.model.Customer;
+import com.johan.model.CustomerCollectionVersion;
+import com.johan.model.CustomerCursor;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerPatchResult;
+import com.johan.model.CustomerSearchMatch;
+import com.johan.model.CustomerSort;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface CustomerDao {
     List<Customer> selectAllCustomer();
+    Stream<Customer> streamAllCustomers();
+    Stream<String> streamAllEmails();
+
+    // matching rows in id order, read as the stream is consumed; like streamAllCustomers it must be closed
+    // and consumed inside a transaction
+    default Stream<Customer> streamCustomers(CustomerFilter filter, Set<CustomerField> fields) {
+        return streamAllCustomers().filter(filter::matches);
+    }
+
+    List<Customer> selectCustomerPage(CustomerFilter filter, CustomerSort sort, CustomerCursor after, int limit);
+
+    default List<Customer> selectCustomerPage(CustomerSort sort, CustomerCursor after, int limit) {
+        return selectCustomerPage(CustomerFilter.NONE, sort, after, limit);
+    }
+
+    // a DAO that cannot narrow its reads returns whole rows; callers project them either way
+    default List<Customer> selectCustomerPage(CustomerFilter filter, Set<CustomerField> fields, CustomerSort sort,
+                                              CustomerCursor after, int limit) {
+        return selectCustomerPage(filter, sort, after, limit);
+    }
+
+    default Optional<Customer> getByCustomerId(Integer customerId, Set<CustomerField> fields) {
+        return getByCustomerId(customerId);
+    }
+
+    // case-insensitive match on name or email, in id order
+    List<Customer> searchCustomers(String query, CustomerSearchMatch match, int limit);
     Optional<Customer> getByCustomerId(Integer customerId);
     void insertCustomer(Customer customer);
+    Optional<Long> insertCustomerIfAbsent(Customer customer);
+    int[] insertCustomers(List<Customer> customers);
     boolean existsPersonWithEmail(String email);
-    void deleteCustomer(Integer customerId);
+    Set<String> selectExistingEmails(Collection<String> emails);
+    // the row as it was before the delete, empty when there was none
+    Optional<Customer> deleteCustomer(Integer customerId);
     void updateCustomer(Customer customer);
+    // false when the row is gone or no longer at expectedVersion; on success the customer gets its new version
+    boolean updateCustomer(Customer customer, long expectedVersion);
+    CustomerPatchResult patchCustomer(Integer customerId, Customer changes);
+
+    default CustomerCollectionVersion collectionVersion(CustomerFilter filter) {
+        long customers = 0;
+        long checksum = 0;
+        try (Stream<Customer> rows = streamAllCustomers()) {
+            for (Customer customer : (Iterable<Customer>) rows.filter(filter::matches)::iterator) {
+                customers++;
+                checksum += CustomerCollectionVersion.rowHash(customer.getId(),
+                        customer.getVersion() == null ? 0 : customer.getVersion());
+            }
+        }
+        return new CustomerCollectionVersion(customers, checksum);
+    }
+
+    // a cheaper stand-in for collectionVersion that changes with every write to any row, whatever the filter;
+    // empty when the store keeps none
+    default OptionalLong collectionRevision() {
+        return OptionalLong.empty();
+    }
 }
@@ -1,21 +1,48 @@
 package com.johan.repository;
 
 import com.johan.model.Customer;
+import com.johan.model.CustomerCollectionVersion;
+import com.johan.model.CustomerCursor;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerPatchResult;
 import com.johan.model.CustomerRowMapper;
+import com.johan.model.CustomerSearchMatch;
+import com.johan.model.CustomerSort;
+import com.johan.model.Gender;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 @Repository("jdbc")
 public class CustomerJDBCAccessService implements CustomerDao{
 
+    static final int STREAM_FETCH_SIZE = 1000;
+    static final int INSERT_BATCH_SIZE = 1000;
+
+    private static final String[] PATCH_COLUMNS = {"name", "email", "age", "gender"};
+
     private final JdbcTemplate jdbcTemplate;
     private final CustomerRowMapper customerRowMapper;
+    // one SQL text per changed-column combination keeps the driver's statement cache effective
+    private final Map<Integer, String> patchStatements = new ConcurrentHashMap<>();
+    private final Map<Integer, String> pageStatements = new ConcurrentHashMap<>();
 
 
-    public CustomerJDBCAccessService(JdbcTemplate jdbcTemplate, CustomerRowMapper customerRowMapper) {
+    public CustomerJDBCAccessService(JdbcTemplate jdbcTemplate,
+                                     CustomerRowMapper customerRowMapper) {
         this.jdbcTemplate = jdbcTemplate;
         this.customerRowMapper = customerRowMapper;
     }
@@ -23,16 +50,168 @@ public class CustomerJDBCAccessService implements CustomerDao{
     @Override
     public List<Customer> selectAllCustomer() {
         var sql = """
-                SELECT id, name, email, age, gender
+                SELECT id, name, email, age, gender, version
                 FROM customer
                 """;
         return jdbcTemplate.query(sql,customerRowMapper);
     }
 
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        // pgjdbc only uses a server-side cursor when a fetch size is set and autocommit is off,
+        // so callers must hold a transaction while consuming the stream
+        var sql = """
+                SELECT id, name, email, age, gender, version
+                FROM customer
+                ORDER BY id
+                """;
+        return jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, customerRowMapper);
+    }
+
+    @Override
+    public Stream<String> streamAllEmails() {
+        var sql = """
+                SELECT email
+                FROM customer
+                """;
+        return jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, (rs, rowNum) -> rs.getString("email"));
+    }
+
+    @Override
+    public List<Customer> selectCustomerPage(CustomerFilter filter, CustomerSort sort, CustomerCursor after, int limit) {
+        return selectCustomerPage(filter, CustomerField.ALL, sort, after, limit);
+    }
+
+    @Override
+    public List<Customer> selectCustomerPage(CustomerFilter filter, Set<CustomerField> fields, CustomerSort sort,
+                                             CustomerCursor after, int limit) {
+        // the id and the sort key are always read, since the next cursor is built from them
+        Set<CustomerField> columns = EnumSet.of(CustomerField.ID, sort.getField());
+        columns.addAll(fields);
+        int shape = (filter.gender() == null ? 0 : 1)
+                | (filter.minAge() == null ? 0 : 2)
+                | (filter.maxAge() == null ? 0 : 4)
+                | (after == null ? 0 : 8)
+                | sort.ordinal() << 4
+                | mask(columns) << 6;
+        String sql = pageStatements.computeIfAbsent(shape, key -> pageSql(filter, columns, sort, after != null));
+        List<Object> args = filterArgs(filter);
+        if (after != null && sort != CustomerSort.ID) {
+            args.add(sort == CustomerSort.AGE ? Integer.valueOf(after.key()) : after.key());
+        }
+        if (after != null) {
+            args.add(after.id());
+        }
+        args.add(limit);
+        return jdbcTemplate.query(sql, customerRowMapper.selecting(columns), args.toArray());
+    }
+
+    @Override
+    public Stream<Customer> streamCustomers(CustomerFilter filter, Set<CustomerField> fields) {
+        // same cursor requirements as streamAllCustomers; the (gender, id) and (gender, age, id) indexes
+        // return filtered rows already in id order, so the first ones arrive before the scan is done
+        Set<CustomerField> columns = EnumSet.of(CustomerField.ID);
+        columns.addAll(fields);
+        String sql = selectSql(filter, columns, CustomerSort.ID, false);
+        Object[] args = filterArgs(filter).toArray();
+        return jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            for (int i = 0; i < args.length; i++) {
+                statement.setObject(i + 1, args[i]);
+            }
+            return statement;
+        }, customerRowMapper.selecting(columns));
+    }
+
+    static List<Object> filterArgs(CustomerFilter filter) {
+        List<Object> args = new ArrayList<>();
+        if (filter.gender() != null) {
+            args.add(filter.gender().name());
+        }
+        if (filter.minAge() != null) {
+            args.add(filter.minAge());
+        }
+        if (filter.maxAge() != null) {
+            args.add(filter.maxAge());
+        }
+        return args;
+    }
+
+    // Only the filter's shape goes into the text, never its values, so each combination is one prepared
+    // statement. Row value comparison lets Postgres seek the (sort, id) index instead of skipping OFFSET rows.
+    static String pageSql(CustomerFilter filter, Set<CustomerField> columns, CustomerSort sort, boolean afterCursor) {
+        return selectSql(filter, columns, sort, afterCursor) + "LIMIT ?\n";
+    }
+
+    private static String selectSql(CustomerFilter filter, Set<CustomerField> columns, CustomerSort sort,
+                                    boolean afterCursor) {
+        List<String> keyset = afterCursor
+                ? List.of(sort == CustomerSort.ID ? "id > ?" : "(%s, id) > (?, ?)".formatted(sort.getColumn()))
+                : List.of();
+        return """
+                SELECT %s
+                FROM customer
+                %sORDER BY %s
+                """.formatted(
+                selectList(columns),
+                where(filter, keyset),
+                sort == CustomerSort.ID ? "id" : sort.getColumn() + ", id");
+    }
+
+    static String where(CustomerFilter filter, List<String> extra) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.gender() != null) {
+            conditions.add("gender = ?");
+        }
+        if (filter.minAge() != null) {
+            conditions.add("age >= ?");
+        }
+        if (filter.maxAge() != null) {
+            conditions.add("age <= ?");
+        }
+        conditions.addAll(extra);
+        return conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + "\n";
+    }
+
+    private static String selectList(Set<CustomerField> columns) {
+        return String.join(", ", columns.stream().map(CustomerField::getColumn).toList()) + ", version";
+    }
+
+    private static int mask(Set<CustomerField> columns) {
+        int mask = 0;
+        for (CustomerField column : columns) {
+            mask |= 1 << column.ordinal();
+        }
+        return mask;
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String query, CustomerSearchMatch match, int limit) {
+        // both predicates are served by the pg_trgm GIN indexes and combined with a bitmap OR
+        var sql = """
+                SELECT id, name, email, age, gender, version
+                FROM customer
+                WHERE name ILIKE ? OR email ILIKE ?
+                ORDER BY id
+                LIMIT ?
+                """;
+        String pattern = CustomerSearch.likePattern(query, match);
+        return jdbcTemplate.query(sql, customerRowMapper, pattern, pattern, limit);
+    }
+
     @Override
     public Optional<Customer> getByCustomerId(Integer customerId) {
         var sql = """
-                SELECT id, name, email, age, gender
+                SELECT id, name, email, age, gender, version
                 FROM customer
                 WHERE id = ?
                 """;
@@ -41,16 +220,94 @@ public class CustomerJDBCAccessService implements CustomerDao{
                 .findFirst();
     }
 
+    @Override
+    public Optional<Customer> getByCustomerId(Integer customerId, Set<CustomerField> fields) {
+        Set<CustomerField> columns = EnumSet.of(CustomerField.ID);
+        columns.addAll(fields);
+        var sql = """
+                SELECT %s
+                FROM customer
+                WHERE id = ?
+                """.formatted(selectList(columns));
+        return jdbcTemplate.query(sql, customerRowMapper.selecting(columns), customerId)
+                .stream()
+                .findFirst();
+    }
+
     @Override
     public void insertCustomer(Customer customer) {
         var sql = """
-                INSERT INTO customer (name,email,age,gender)
-                VALUES (?,?,?,?)
+                WITH inserted AS (
+                    INSERT INTO customer (name,email,age,gender)
+                    VALUES (?,?,?,?)
+                    RETURNING id
+                )
+                SELECT id, pg_notify(?, id::text)
+                FROM inserted
                 """;
-        int update = jdbcTemplate.update(sql, customer.getName(), customer.getEmail(), customer.getAge(), customer.getGender().name());
+        int update = jdbcTemplate.query(sql, (rs, rowNum) -> rs.getLong("id"), customer.getName(), customer.getEmail(),
+                customer.getAge(), customer.getGender().name(), CustomerChangeNotifier.CHANNEL).size();
         System.out.println("jdbcTemplate.update = " +update);
     }
 
+    @Override
+    public Optional<Long> insertCustomerIfAbsent(Customer customer) {
+        var sql = """
+                WITH inserted AS (
+                    INSERT INTO customer (name,email,age,gender)
+                    VALUES (?,?,?,?)
+                    ON CONFLICT (email) DO NOTHING
+                    RETURNING id
+                )
+                SELECT id, pg_notify(?, id::text)
+                FROM inserted
+                """;
+        return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getLong("id"),
+                        customer.getName(), customer.getEmail(), customer.getAge(), customer.getGender().name(),
+                        CustomerChangeNotifier.CHANNEL)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public int[] insertCustomers(List<Customer> customers) {
+        // ON CONFLICT keeps one late duplicate from aborting the whole batch; it shows up as a 0 count. Postgres
+        // folds identical notifications within a transaction, so each batch publishes one however many rows.
+        var sql = """
+                WITH inserted AS (
+                    INSERT INTO customer (name,email,age,gender)
+                    SELECT * FROM unnest(?::text[], ?::text[], ?::int[], ?::text[])
+                    ON CONFLICT (email) DO NOTHING
+                    RETURNING email
+                )
+                SELECT email, pg_notify(?, ?)
+                FROM inserted
+                """;
+        int[] counts = new int[customers.size()];
+        for (int from = 0; from < customers.size(); from += INSERT_BATCH_SIZE) {
+            List<Customer> batch = customers.subList(from, Math.min(customers.size(), from + INSERT_BATCH_SIZE));
+            Set<String> inserted = new HashSet<>(jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql);
+                statement.setArray(1, connection.createArrayOf("text",
+                        batch.stream().map(Customer::getName).toArray()));
+                statement.setArray(2, connection.createArrayOf("text",
+                        batch.stream().map(Customer::getEmail).toArray()));
+                statement.setArray(3, connection.createArrayOf("integer",
+                        batch.stream().map(Customer::getAge).toArray()));
+                statement.setArray(4, connection.createArrayOf("text",
+                        batch.stream().map(customer -> customer.getGender().name()).toArray()));
+                statement.setString(5, CustomerChangeNotifier.CHANNEL);
+                statement.setString(6, CustomerChangeNotifier.INSERTED);
+                return statement;
+            }, (rs, rowNum) -> rs.getString("email")));
+            for (int i = 0; i < batch.size(); i++) {
+                // removed once counted, so a second row with the same email counts as skipped
+                counts[from + i] = inserted.remove(batch.get(i).getEmail()) ? 1 : 0;
+            }
+        }
+        return counts;
+    }
+
     @Override
     public boolean existsPersonWithEmail(String email) {
         var sql = """
@@ -63,23 +320,178 @@ public class CustomerJDBCAccessService implements CustomerDao{
     }
 
     @Override
-    public void deleteCustomer(Integer customerId) {
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
         var sql = """
-                DELETE FROM customer
-                WHERE id = ?
+                SELECT email
+                FROM customer
+                WHERE email = ANY (?)
                 """;
-        int delete = jdbcTemplate.update(sql, customerId);
-        System.out.println("Delete Customer result = "+ delete);
+        List<String> existing = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setArray(1, connection.createArrayOf("text", emails.toArray()));
+            return statement;
+        }, (rs, rowNum) -> rs.getString("email"));
+        return new HashSet<>(existing);
+    }
+
+    @Override
+    public Optional<Customer> deleteCustomer(Integer customerId) {
+        var sql = """
+                WITH deleted AS (
+                    DELETE FROM customer
+                    WHERE id = ?
+                    RETURNING id, name, email, age, gender, version
+                )
+                SELECT id, name, email, age, gender, version, pg_notify(?, id::text)
+                FROM deleted
+                """;
+        return jdbcTemplate.query(sql, customerRowMapper, customerId, CustomerChangeNotifier.CHANNEL)
+                .stream()
+                .findFirst();
     }
 
     @Override
     public void updateCustomer(Customer customer) {
         var sql = """
-                UPDATE customer
-                SET name=?, email=?, age=?, gender=?
-                WHERE id = ?
+                WITH updated AS (
+                    UPDATE customer
+                    SET name=?, email=?, age=?, gender=?, version = version + 1
+                    WHERE id = ?
+                    RETURNING id, version
+                )
+                SELECT version, pg_notify(?, id::text)
+                FROM updated
+                """;
+        List<Long> versions = jdbcTemplate.query(sql, (rs, rowNum) -> rs.getLong("version"), customer.getName(),
+                customer.getEmail(), customer.getAge(), customer.getGender().name(), customer.getId(),
+                CustomerChangeNotifier.CHANNEL);
+        System.out.println("Update Customer result = "+versions.size());
+        versions.forEach(customer::setVersion);
+    }
+
+    @Override
+    public boolean updateCustomer(Customer customer, long expectedVersion) {
+        var sql = """
+                WITH updated AS (
+                    UPDATE customer
+                    SET name=?, email=?, age=?, gender=?, version = version + 1
+                    WHERE id = ? AND version = ?
+                    RETURNING id, version
+                )
+                SELECT version, pg_notify(?, id::text)
+                FROM updated
                 """;
-        int update = jdbcTemplate.update(sql, customer.getName(), customer.getEmail(), customer.getAge(), customer.getGender().name(), customer.getId());
-        System.out.println("Update Customer result = "+update);
+        List<Long> versions = jdbcTemplate.query(sql, (rs, rowNum) -> rs.getLong("version"), customer.getName(),
+                customer.getEmail(), customer.getAge(), customer.getGender().name(), customer.getId(), expectedVersion,
+                CustomerChangeNotifier.CHANNEL);
+        if (versions.isEmpty()) {
+            return false;
+        }
+        customer.setVersion(versions.get(0));
+        return true;
+    }
+
+    @Override
+    public CustomerCollectionVersion collectionVersion(CustomerFilter filter) {
+        // sum() over bigint is numeric, so it never overflows; the low 64 bits are the checksum
+        var sql = """
+                SELECT count(*) AS customers, coalesce(sum(hashint8extended(id, version)), 0) AS checksum
+                FROM customer
+                %s""".formatted(where(filter, List.of()));
+        return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> new CustomerCollectionVersion(
+                rs.getLong("customers"), rs.getBigDecimal("checksum").longValue()), filterArgs(filter).toArray());
+    }
+
+    @Override
+    public CustomerPatchResult patchCustomer(Integer customerId, Customer changes) {
+        Object[] values = {
+                changes.getName(),
+                changes.getEmail(),
+                changes.getAge(),
+                changes.getGender() == null ? null : changes.getGender().name()
+        };
+        int columns = 0;
+        List<Object> changed = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                columns |= 1 << i;
+                changed.add(values[i]);
+            }
+        }
+        if (columns == 0) {
+            // nothing to write, but a missing row is still a 404
+            return getByCustomerId(customerId)
+                    .map(customer -> new CustomerPatchResult(CustomerPatchResult.Status.UNCHANGED, customer))
+                    .orElse(CustomerPatchResult.of(CustomerPatchResult.Status.NOT_FOUND));
+        }
+        String sql = patchStatements.computeIfAbsent(columns, CustomerJDBCAccessService::patchSql);
+        List<Object> args = new ArrayList<>();
+        args.add(customerId);
+        args.addAll(changed);
+        args.add(customerId);
+        args.addAll(changed);
+        args.add(CustomerChangeNotifier.CHANNEL);
+        try {
+            return jdbcTemplate.query(sql, (rs, rowNum) -> {
+                        Customer customer = customerRowMapper.mapRow(rs, rowNum);
+                        if (!rs.getBoolean("updated")) {
+                            return new CustomerPatchResult(CustomerPatchResult.Status.UNCHANGED, customer);
+                        }
+                        Customer previous = new Customer(customer.getId(),
+                                rs.getString("previous_name"),
+                                rs.getString("previous_email"),
+                                rs.getInt("previous_age"),
+                                Gender.valueOf(rs.getString("previous_gender")));
+                        previous.setVersion(rs.getLong("previous_version"));
+                        return new CustomerPatchResult(CustomerPatchResult.Status.UPDATED, customer, previous);
+                    }, args.toArray())
+                    .stream()
+                    .findFirst()
+                    .orElse(CustomerPatchResult.of(CustomerPatchResult.Status.NOT_FOUND));
+        } catch (DuplicateKeyException e) {
+            return CustomerPatchResult.of(CustomerPatchResult.Status.EMAIL_TAKEN);
+        }
+    }
+
+    // Updates only the given columns and only when a value actually differs. Every part of the statement
+    // reads the pre-update snapshot, so previous is the row before the update (unless a concurrent writer
+    // got in between), and an existing but unchanged row still comes back while absence means 404. Only an
+    // actual update is published.
+    static String patchSql(int columns) {
+        List<String> assignments = new ArrayList<>();
+        List<String> differences = new ArrayList<>();
+        for (int i = 0; i < PATCH_COLUMNS.length; i++) {
+            if ((columns & (1 << i)) != 0) {
+                assignments.add(PATCH_COLUMNS[i] + " = ?");
+                differences.add(PATCH_COLUMNS[i] + " IS DISTINCT FROM ?");
+            }
+        }
+        return """
+                WITH previous AS (
+                    SELECT id, name, email, age, gender, version
+                    FROM customer
+                    WHERE id = ?
+                ), updated AS (
+                    UPDATE customer
+                    SET %s, version = version + 1
+                    WHERE id = ?
+                    AND (%s)
+                    RETURNING id, name, email, age, gender, version
+                ), notified AS (
+                    SELECT id, pg_notify(?, id::text)
+                    FROM updated
+                )
+                SELECT true AS updated, u.id, u.name, u.email, u.age, u.gender, u.version,
+                       p.name AS previous_name, p.email AS previous_email,
+                       p.age AS previous_age, p.gender AS previous_gender, p.version AS previous_version
+                FROM updated u JOIN previous p ON p.id = u.id JOIN notified n ON n.id = u.id
+                UNION ALL
+                SELECT false AS updated, id, name, email, age, gender, version, name, email, age, gender, version
+                FROM previous
+                WHERE NOT EXISTS (SELECT 1 FROM updated)
+                """.formatted(String.join(", ", assignments), String.join(" OR ", differences));
     }
 }
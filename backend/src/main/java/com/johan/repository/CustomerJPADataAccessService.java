@@ -1,18 +1,54 @@
 package com.johan.repository;
 
 import com.johan.model.Customer;
+import com.johan.model.CustomerCollectionVersion;
+import com.johan.model.CustomerCursor;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerPatchResult;
+import com.johan.model.CustomerSearchMatch;
+import com.johan.model.CustomerSort;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository("jpa")
 public class CustomerJPADataAccessService implements CustomerDao{
 
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String EMAIL_CONSTRAINT = "customer_email_constraint";
+
     private final CustomerRepository customerRepository;
+    private final EntityManager entityManager;
 
-    public CustomerJPADataAccessService(CustomerRepository customerRepository) {
+    public CustomerJPADataAccessService(CustomerRepository customerRepository,
+                                        EntityManager entityManager) {
         this.customerRepository = customerRepository;
+        this.entityManager = entityManager;
     }
 
     @Override
@@ -20,14 +56,142 @@ public class CustomerJPADataAccessService implements CustomerDao{
         return customerRepository.findAll();
     }
 
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        // detach as we go so the persistence context does not grow with the table
+        return customerRepository.streamAll()
+                .peek(entityManager::detach);
+    }
+
+    @Override
+    public Stream<String> streamAllEmails() {
+        return customerRepository.streamAllEmails();
+    }
+
+    @Override
+    public List<Customer> selectCustomerPage(CustomerFilter filter, CustomerSort sort, CustomerCursor after, int limit) {
+        Sort order = sort == CustomerSort.ID
+                ? Sort.by("id")
+                : Sort.by(sort.getColumn(), "id");
+        if (!filter.isEmpty()) {
+            Specification<Customer> specification = CustomerSpecifications.matching(filter)
+                    .and(CustomerSpecifications.after(sort, after));
+            // limit() rather than a Pageable, which would add a count query
+            return customerRepository.findBy(specification, query -> query.sortBy(order).limit(limit).all());
+        }
+        Pageable pageable = PageRequest.of(0, limit, order);
+        if (after == null) {
+            return customerRepository.findPage(pageable);
+        }
+        return switch (sort) {
+            case ID -> customerRepository.findPageAfterId(after.id(), pageable);
+            case NAME -> customerRepository.findPageAfterName(after.key(), after.id(), pageable);
+            case AGE -> customerRepository.findPageAfterAge(Integer.valueOf(after.key()), after.id(), pageable);
+        };
+    }
+
+    @Override
+    public List<Customer> selectCustomerPage(CustomerFilter filter, Set<CustomerField> fields, CustomerSort sort,
+                                             CustomerCursor after, int limit) {
+        if (fields.containsAll(CustomerField.ALL)) {
+            return selectCustomerPage(filter, sort, after, limit);
+        }
+        Set<CustomerField> columns = EnumSet.of(CustomerField.ID, sort.getField());
+        columns.addAll(fields);
+        Specification<Customer> specification = CustomerSpecifications.matching(filter)
+                .and(CustomerSpecifications.after(sort, after));
+        return select(columns, specification, sort, limit);
+    }
+
+    // a tuple query of just these attributes; entities are never loaded, so nothing lands in the
+    // persistence context
+    private List<Customer> select(Set<CustomerField> columns, Specification<Customer> specification,
+                                  CustomerSort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Customer> root = query.from(Customer.class);
+        List<Selection<?>> selections = new ArrayList<>();
+        columns.forEach(column -> selections.add(root.get(column.getColumn()).alias(column.getColumn())));
+        selections.add(root.get("version").alias("version"));
+        query.multiselect(selections);
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(sort == CustomerSort.ID
+                ? List.of(cb.asc(root.get("id")))
+                : List.of(cb.asc(root.get(sort.getColumn())), cb.asc(root.get("id"))));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(tuple -> {
+                    Customer customer = new Customer();
+                    columns.forEach(column -> column.set(customer, tuple.get(column.getColumn())));
+                    customer.setVersion(tuple.get("version", Long.class));
+                    return customer;
+                })
+                .toList();
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String query, CustomerSearchMatch match, int limit) {
+        return customerRepository.search(CustomerSearch.likePattern(query, match), limit);
+    }
+
     @Override
     public Optional<Customer> getByCustomerId(Integer customerId) {
         return customerRepository.findById(customerId);
     }
 
+    @Override
+    public Optional<Customer> getByCustomerId(Integer customerId, Set<CustomerField> fields) {
+        if (fields.containsAll(CustomerField.ALL)) {
+            return getByCustomerId(customerId);
+        }
+        Set<CustomerField> columns = EnumSet.of(CustomerField.ID);
+        columns.addAll(fields);
+        Specification<Customer> byId = (root, query, cb) -> cb.equal(root.get("id"), customerId.longValue());
+        return select(columns, byId, CustomerSort.ID, 1).stream().findFirst();
+    }
+
     @Override
     public void insertCustomer(Customer customer) {
-        customerRepository.save(customer);
+        // a native INSERT rather than save(), so the notification goes out in the same statement
+        Long id;
+        try {
+            id = customerRepository.insertCustomer(customer.getName(), customer.getEmail(), customer.getAge(),
+                    customer.getGender().name(), CustomerChangeNotifier.CHANNEL);
+        } catch (DataIntegrityViolationException e) {
+            throw translate(e);
+        }
+        customer.setId(id);
+        customer.setVersion(0L); // the column default
+    }
+
+    @Override
+    public Optional<Long> insertCustomerIfAbsent(Customer customer) {
+        return customerRepository.insertIfAbsent(customer.getName(), customer.getEmail(), customer.getAge(),
+                customer.getGender().name(), CustomerChangeNotifier.CHANNEL);
+    }
+
+    @Override
+    public int[] insertCustomers(List<Customer> customers) {
+        int[] counts = new int[customers.size()];
+        for (int from = 0; from < customers.size(); from += CustomerJDBCAccessService.INSERT_BATCH_SIZE) {
+            List<Customer> batch = customers.subList(from,
+                    Math.min(customers.size(), from + CustomerJDBCAccessService.INSERT_BATCH_SIZE));
+            Set<String> inserted = new HashSet<>(customerRepository.insertAllIfAbsent(
+                    batch.stream().map(Customer::getName).toArray(String[]::new),
+                    batch.stream().map(Customer::getEmail).toArray(String[]::new),
+                    batch.stream().map(Customer::getAge).toArray(Integer[]::new),
+                    batch.stream().map(customer -> customer.getGender().name()).toArray(String[]::new),
+                    CustomerChangeNotifier.CHANNEL, CustomerChangeNotifier.INSERTED));
+            for (int i = 0; i < batch.size(); i++) {
+                // removed once counted, so a second row with the same email counts as skipped
+                counts[from + i] = inserted.remove(batch.get(i).getEmail()) ? 1 : 0;
+            }
+        }
+        return counts;
     }
 
     @Override
@@ -36,14 +200,108 @@ public class CustomerJPADataAccessService implements CustomerDao{
     }
 
     @Override
-    public void deleteCustomer(Integer customerId) {
-        customerRepository.deleteById(customerId);
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+        return customerRepository.findExistingEmails(emails);
+    }
+
+    @Override
+    public Optional<Customer> deleteCustomer(Integer customerId) {
+        return customerRepository.deleteCustomerById(customerId.longValue(), CustomerChangeNotifier.CHANNEL);
     }
 
     @Override
     public void updateCustomer(Customer customer) {
-        customerRepository.save(customer);
+        Optional<Long> updated;
+        try {
+            updated = customerRepository.updateCustomer(customer.getId(), customer.getName(), customer.getEmail(),
+                    customer.getAge(), customer.getGender().name(), CustomerChangeNotifier.CHANNEL);
+        } catch (DataIntegrityViolationException e) {
+            throw translate(e);
+        }
+        updated.ifPresent(customer::setVersion);
+    }
+
+    @Override
+    public boolean updateCustomer(Customer customer, long expectedVersion) {
+        Optional<Long> updated;
+        try {
+            updated = customerRepository.updateIfVersion(customer.getId(), expectedVersion, customer.getName(),
+                    customer.getEmail(), customer.getAge(), customer.getGender().name(), CustomerChangeNotifier.CHANNEL);
+        } catch (DataIntegrityViolationException e) {
+            throw translate(e);
+        }
+        updated.ifPresent(customer::setVersion);
+        return updated.isPresent();
+    }
+
+    @Override
+    public CustomerCollectionVersion collectionVersion(CustomerFilter filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Customer> root = query.from(Customer.class);
+        query.multiselect(
+                cb.count(root).alias("customers"),
+                // summed as numeric, as in the JDBC DAO, so the sum never overflows
+                cb.coalesce(cb.sum(cb.function("hashint8extended", Long.class, root.get("id"), root.get("version"))
+                        .as(BigDecimal.class)), BigDecimal.ZERO).alias("checksum"));
+        query.where(CustomerSpecifications.matching(filter).toPredicate(root, query, cb));
+        Tuple tuple = entityManager.createQuery(query).getSingleResult();
+        return new CustomerCollectionVersion(tuple.get("customers", Long.class),
+                tuple.get("checksum", BigDecimal.class).longValue());
     }
 
+    @Override
+    public CustomerPatchResult patchCustomer(Integer customerId, Customer changes) {
+        Optional<Customer> existing = customerRepository.findById(customerId);
+        if (existing.isEmpty()) {
+            return CustomerPatchResult.of(CustomerPatchResult.Status.NOT_FOUND);
+        }
+        Customer previous = existing.get();
+        // changed on a copy, so the managed entity is never flushed behind the native update
+        Customer customer = new Customer(previous.getId(), previous.getName(), previous.getEmail(),
+                previous.getAge(), previous.getGender());
+        customer.setVersion(previous.getVersion());
+        if (!CustomerPatches.apply(customer, changes)) {
+            return new CustomerPatchResult(CustomerPatchResult.Status.UNCHANGED, previous);
+        }
+        try {
+            Optional<Long> version = customerRepository.updateIfVersion(customer.getId(), previous.getVersion(),
+                    customer.getName(), customer.getEmail(), customer.getAge(), customer.getGender().name(),
+                    CustomerChangeNotifier.CHANNEL);
+            if (version.isEmpty()) {
+                // what saveAndFlush reported for a row changed or deleted since it was read
+                throw new OptimisticLockingFailureException(
+                        "Customer with id [%s] changed while being patched".formatted(customerId));
+            }
+            customer.setVersion(version.get());
+            return new CustomerPatchResult(CustomerPatchResult.Status.UPDATED, customer, previous);
+        } catch (DataIntegrityViolationException e) {
+            if (!emailTaken(e)) {
+                throw e;
+            }
+            return CustomerPatchResult.of(CustomerPatchResult.Status.EMAIL_TAKEN);
+        }
+    }
 
+    // the service treats DuplicateKeyException as a taken email, as the JDBC DAO reports it
+    private static DataIntegrityViolationException translate(DataIntegrityViolationException e) {
+        return emailTaken(e) ? new DuplicateKeyException(e.getMessage(), e) : e;
+    }
+
+    // HibernateJpaDialect reports every constraint violation as a plain DataIntegrityViolationException
+    static boolean emailTaken(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                    && EMAIL_CONSTRAINT.equals(violation.getConstraintName())) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException && UNIQUE_VIOLATION.equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
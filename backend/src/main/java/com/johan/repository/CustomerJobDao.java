@@ -0,0 +1,236 @@
+package com.johan.repository;
+
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerJob;
+import com.johan.model.CustomerJobStatus;
+import com.johan.model.CustomerJobType;
+import com.johan.model.CustomerRegistrationRequest;
+import com.johan.model.Gender;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class CustomerJobDao {
+
+    private static final String JOB_COLUMNS = """
+            id, type, status, total, processed, failed, error, created_at, updated_at, parameters, last_key, output_size""";
+
+    private static final RowMapper<CustomerJob> JOB_MAPPER = (rs, rowNum) -> new CustomerJob(
+            rs.getLong("id"),
+            CustomerJobType.valueOf(rs.getString("type")),
+            CustomerJobStatus.valueOf(rs.getString("status")),
+            rs.getLong("total"),
+            rs.getLong("processed"),
+            rs.getLong("failed"),
+            rs.getString("error"),
+            rs.getTimestamp("created_at").toInstant(),
+            rs.getTimestamp("updated_at").toInstant(),
+            rs.getString("parameters"),
+            rs.getLong("last_key"),
+            rs.getLong("output_size"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerJobDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public CustomerJob insertJob(CustomerJobType type, String parameters, long total) {
+        var sql = """
+                INSERT INTO customer_job (type, status, parameters, total)
+                VALUES (?, ?, ?, ?)
+                RETURNING %s
+                """.formatted(JOB_COLUMNS);
+        return jdbcTemplate.queryForObject(sql, JOB_MAPPER, type.name(), CustomerJobStatus.QUEUED.name(), parameters, total);
+    }
+
+    public void insertItems(long jobId, List<CustomerRegistrationRequest> items) {
+        var sql = """
+                INSERT INTO customer_job_item (job_id, seq, name, email, age, gender)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """;
+        List<Object[]> rows = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            CustomerRegistrationRequest item = items.get(i);
+            rows.add(new Object[]{jobId, i + 1, item == null ? null : item.name(), item == null ? null : item.email(),
+                    item == null ? null : item.age(),
+                    item == null || item.gender() == null ? null : item.gender().name()});
+        }
+        jdbcTemplate.batchUpdate(sql, rows,
+                new int[]{Types.BIGINT, Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.VARCHAR});
+    }
+
+    public Optional<CustomerJob> findJob(long jobId) {
+        var sql = """
+                SELECT %s
+                FROM customer_job
+                WHERE id = ?
+                """.formatted(JOB_COLUMNS);
+        return jdbcTemplate.query(sql, JOB_MAPPER, jobId).stream().findFirst();
+    }
+
+    // Takes the oldest queued job, or a running one whose runner stopped reporting progress (it was killed or
+    // lost its database), so a restarted node resumes where the job's last committed chunk left off.
+    // SKIP LOCKED lets runners on several nodes claim concurrently without waiting on each other.
+    public Optional<CustomerJob> claimNext(String owner, Duration staleAfter) {
+        var sql = """
+                UPDATE customer_job
+                SET status = 'RUNNING', owner = ?, updated_at = now()
+                WHERE id = (
+                    SELECT id
+                    FROM customer_job
+                    WHERE status = 'QUEUED'
+                    OR (status = 'RUNNING' AND updated_at < now() - ? * interval '1 millisecond')
+                    ORDER BY id
+                    LIMIT 1
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING %s
+                """.formatted(JOB_COLUMNS);
+        return jdbcTemplate.query(sql, JOB_MAPPER, owner, staleAfter.toMillis()).stream().findFirst();
+    }
+
+    // must run in the chunk's transaction; holds off cancellation and other runners until it commits
+    public boolean lockRunning(long jobId, String owner) {
+        var sql = """
+                SELECT id
+                FROM customer_job
+                WHERE id = ? AND status = 'RUNNING' AND owner = ?
+                FOR UPDATE
+                """;
+        return !jdbcTemplate.queryForList(sql, Long.class, jobId, owner).isEmpty();
+    }
+
+    public void recordProgress(long jobId, long lastKey, long processed, long failed, long outputSize) {
+        var sql = """
+                UPDATE customer_job
+                SET last_key = ?, processed = processed + ?, failed = failed + ?, output_size = ?, updated_at = now()
+                WHERE id = ?
+                """;
+        jdbcTemplate.update(sql, lastKey, processed, failed, outputSize, jobId);
+    }
+
+    // must run in the chunk's transaction; the job starts over from its first row
+    public void resetProgress(long jobId) {
+        var sql = """
+                UPDATE customer_job
+                SET last_key = 0, processed = 0, failed = 0, output_size = 0, updated_at = now()
+                WHERE id = ?
+                """;
+        jdbcTemplate.update(sql, jobId);
+    }
+
+    // false when the job was cancelled or taken over meanwhile
+    public boolean finish(long jobId, String owner, CustomerJobStatus status, String error) {
+        var sql = """
+                UPDATE customer_job
+                SET status = ?, error = ?, updated_at = now()
+                WHERE id = ? AND status = 'RUNNING' AND owner = ?
+                """;
+        boolean finished = jdbcTemplate.update(sql, status.name(), error, jobId, owner) > 0;
+        if (finished) {
+            deleteItems(jobId);
+        }
+        return finished;
+    }
+
+    // waits for the row lock of any chunk still running, so the job resumes after that chunk
+    public void requeue(String owner) {
+        var sql = """
+                UPDATE customer_job
+                SET status = 'QUEUED', owner = NULL, updated_at = now()
+                WHERE owner = ? AND status = 'RUNNING'
+                """;
+        jdbcTemplate.update(sql, owner);
+    }
+
+    public boolean cancel(long jobId) {
+        var sql = """
+                UPDATE customer_job
+                SET status = 'CANCELLED', updated_at = now()
+                WHERE id = ? AND status IN ('QUEUED', 'RUNNING')
+                """;
+        boolean cancelled = jdbcTemplate.update(sql, jobId) > 0;
+        if (cancelled) {
+            deleteItems(jobId);
+        }
+        return cancelled;
+    }
+
+    public List<Item> readItems(long jobId, long afterSeq, int limit) {
+        var sql = """
+                SELECT seq, name, email, age, gender
+                FROM customer_job_item
+                WHERE job_id = ? AND seq > ?
+                ORDER BY seq
+                LIMIT ?
+                """;
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new Item(rs.getInt("seq"), new CustomerRegistrationRequest(
+                rs.getString("name"),
+                rs.getString("email"),
+                (Integer) rs.getObject("age"),
+                gender(rs))), jobId, afterSeq, limit);
+    }
+
+    // Applies the changes to the next matching customers after afterId and returns their ids in order. The
+    // notification makes every node evict them, as single updates do.
+    public List<Long> updateCustomers(CustomerFilter filter, CustomerRegistrationRequest changes, long afterId, int limit) {
+        List<String> assignments = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (changes.name() != null) {
+            assignments.add("name = ?");
+            args.add(changes.name());
+        }
+        if (changes.age() != null) {
+            assignments.add("age = ?");
+            args.add(changes.age());
+        }
+        if (changes.gender() != null) {
+            assignments.add("gender = ?");
+            args.add(changes.gender().name());
+        }
+        var sql = """
+                WITH updated AS (
+                    UPDATE customer
+                    SET %s, version = version + 1
+                    WHERE id IN (
+                        SELECT id
+                        FROM customer
+                        %sORDER BY id
+                        LIMIT ?
+                    )
+                    RETURNING id
+                )
+                SELECT id, pg_notify(?, id::text)
+                FROM updated
+                ORDER BY id
+                """.formatted(String.join(", ", assignments),
+                CustomerJDBCAccessService.where(filter, List.of("id > ?")));
+        args.addAll(CustomerJDBCAccessService.filterArgs(filter));
+        args.add(afterId);
+        args.add(limit);
+        args.add(CustomerChangeNotifier.CHANNEL);
+        return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getLong("id"), args.toArray());
+    }
+
+    private void deleteItems(long jobId) {
+        jdbcTemplate.update("DELETE FROM customer_job_item WHERE job_id = ?", jobId);
+    }
+
+    private static Gender gender(ResultSet rs) throws SQLException {
+        String gender = rs.getString("gender");
+        return gender == null ? null : Gender.valueOf(gender);
+    }
+
+    public record Item(int seq, CustomerRegistrationRequest request) {
+    }
+}
@@ -0,0 +1,198 @@
+package com.johan.repository;
+
+import com.johan.model.Customer;
+import com.johan.model.Gender;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Fixed-size, memory-mapped append-only file of customer mutations. Each record is framed as
+ * {@code [length][crc32c][type][payload]}; replay stops at the first zero length or checksum mismatch, which
+ * is where a crash tore the tail. {@link #awaitDurable} is a group commit: whichever waiter finds no flush in
+ * progress forces everything appended so far, so concurrent writers share one fsync.
+ */
+final class CustomerJournal implements Closeable {
+
+    static final byte UPSERT = 1;
+    static final byte DELETE = 2;
+    // snapshot framing only
+    static final byte HEADER = 3;
+    static final byte END = 4;
+
+    private static final int FRAME = Integer.BYTES * 2;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private int written;
+    private int durable;
+    private boolean flushing;
+
+    private CustomerJournal(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static CustomerJournal create(Path file, int size) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new CustomerJournal(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // returns the position to wait for, or -1 when the record does not fit and the journal must be rotated
+    int append(byte[] record) {
+        lock.lock();
+        try {
+            if (buffer.capacity() - written < record.length) {
+                return -1;
+            }
+            buffer.put(written, record);
+            written += record.length;
+            return written;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void awaitDurable(int position) {
+        lock.lock();
+        try {
+            while (durable < position) {
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+                flushing = true;
+                int from = durable;
+                int to = written;
+                lock.unlock();
+                try {
+                    buffer.force(from, to - from);
+                } finally {
+                    lock.lock();
+                    flushing = false;
+                    flushed.signalAll();
+                }
+                durable = Math.max(durable, to);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return written;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            awaitDurable(size());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            channel.close();
+        }
+    }
+
+    static byte[] encode(byte type, Customer customer) {
+        byte[] name = bytes(customer.getName());
+        byte[] email = bytes(customer.getEmail());
+        int body = 1 + Long.BYTES + (type == UPSERT
+                ? Integer.BYTES + name.length + Integer.BYTES + email.length + Integer.BYTES + 1 + Long.BYTES
+                : 0);
+        ByteBuffer record = ByteBuffer.allocate(FRAME + body);
+        record.putInt(body).putInt(0).put(type).putLong(customer.getId());
+        if (type == UPSERT) {
+            record.putInt(name.length).put(name)
+                    .putInt(email.length).put(email)
+                    .putInt(customer.getAge())
+                    .put((byte) customer.getGender().ordinal())
+                    .putLong(customer.getVersion() == null ? 0 : customer.getVersion());
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), FRAME, body);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        return record.array();
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    interface Visitor {
+        void visit(byte type, Customer customer);
+    }
+
+    // feeds every intact record to the visitor and returns the offset just past the last one
+    static int replay(ByteBuffer source, Visitor visitor) {
+        ByteBuffer in = source.duplicate();
+        CRC32C crc = new CRC32C();
+        while (in.remaining() >= FRAME) {
+            int start = in.position();
+            int body = in.getInt();
+            int checksum = in.getInt();
+            if (body <= 0 || body > in.remaining()) {
+                return start;
+            }
+            crc.reset();
+            crc.update(in.slice(in.position(), body));
+            if ((int) crc.getValue() != checksum) {
+                return start;
+            }
+            try {
+                visitor.visit(in.get(), decode(in, body - 1));
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException
+                     | NegativeArraySizeException e) {
+                return start;
+            }
+            in.position(start + FRAME + body);
+        }
+        return in.position();
+    }
+
+    private static Customer decode(ByteBuffer in, int length) {
+        int end = in.position() + length;
+        long id = in.getLong();
+        if (in.position() == end) {
+            return new Customer(id, null, null, null, null);
+        }
+        String name = string(in);
+        String email = string(in);
+        int age = in.getInt();
+        Gender gender = Gender.values()[in.get()];
+        Customer customer = new Customer(id, name, email, age, gender);
+        // records written before versions were journaled end at the gender
+        customer.setVersion(in.position() == end ? 0 : in.getLong());
+        return customer;
+    }
+
+    private static String string(ByteBuffer in) {
+        byte[] value = new byte[in.getInt()];
+        in.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,435 @@
+package com.johan.repository;
+
+import com.johan.model.Customer;
+import com.johan.model.CustomerCursor;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerPatchResult;
+import com.johan.model.CustomerSearchMatch;
+import com.johan.model.CustomerSort;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Customer store that serves every read from memory and makes every write durable in a local journal before
+ * returning. Writes are applied and journaled under one lock so the journal order is the apply order; the
+ * fsync happens outside it, shared with any other writer waiting at the same time. Readers may see a write
+ * before its fsync completes.
+ * <p>
+ * Journals are numbered generations of fixed size. When one fills up, a new generation starts and the state at
+ * that instant is written to {@code snapshot-<generation>} in the background; older files are deleted once the
+ * snapshot is durable. Recovery loads the newest complete snapshot and replays the journals from its generation.
+ */
+@Lazy
+@Repository("journal")
+public class CustomerJournalDataAccessService implements CustomerDao {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerJournalDataAccessService.class);
+    private static final Pattern FILE_NAME = Pattern.compile("(journal|snapshot)-(\\d+)\\.(log|bin)");
+
+    private final Path directory;
+    private final int journalSize;
+    private final CustomerListDataAccessService memory = new CustomerListDataAccessService(List.of());
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ExecutorService snapshotWriter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "customer-journal-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long generation;
+    private CustomerJournal journal;
+
+    public CustomerJournalDataAccessService(@Value("${journal.dir:data/customer-journal}") Path directory,
+                                            @Value("${journal.size:67108864}") int journalSize) throws IOException {
+        this.directory = directory;
+        this.journalSize = journalSize;
+        Files.createDirectories(directory);
+        long started = System.nanoTime();
+        long replayed = recover();
+        LOGGER.info("Recovered {} customers from {} in {} ms ({} journal records)",
+                memory.size(), directory,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), replayed);
+        writeLock.lock();
+        try {
+            // never append to a journal a crash may have torn; start clean and snapshot what we recovered
+            rotate();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            journal.close();
+        } finally {
+            writeLock.unlock();
+        }
+        snapshotWriter.shutdown();
+        try {
+            snapshotWriter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public List<Customer> selectAllCustomer() {
+        return memory.selectAllCustomer();
+    }
+
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        return memory.streamAllCustomers();
+    }
+
+    @Override
+    public Stream<String> streamAllEmails() {
+        return memory.streamAllEmails();
+    }
+
+    @Override
+    public List<Customer> selectCustomerPage(CustomerFilter filter, CustomerSort sort, CustomerCursor after, int limit) {
+        return memory.selectCustomerPage(filter, sort, after, limit);
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String query, CustomerSearchMatch match, int limit) {
+        return memory.searchCustomers(query, match, limit);
+    }
+
+    @Override
+    public Optional<Customer> getByCustomerId(Integer customerId) {
+        return memory.getByCustomerId(customerId);
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        if (insertCustomerIfAbsent(customer).isEmpty()) {
+            throw new DuplicateKeyException("Email [%s] already exists".formatted(customer.getEmail()));
+        }
+    }
+
+    @Override
+    public Optional<Long> insertCustomerIfAbsent(Customer customer) {
+        Durability durability = new Durability();
+        Optional<Long> id;
+        writeLock.lock();
+        try {
+            id = memory.insertCustomerIfAbsent(customer);
+            id.ifPresent(value -> durability.upsert(memory.getByCustomerId(value.intValue()).orElseThrow()));
+        } finally {
+            writeLock.unlock();
+        }
+        durability.await();
+        return id;
+    }
+
+    @Override
+    public int[] insertCustomers(List<Customer> customers) {
+        // one fsync for the whole batch
+        Durability durability = new Durability();
+        int[] counts = new int[customers.size()];
+        writeLock.lock();
+        try {
+            for (int i = 0; i < counts.length; i++) {
+                Optional<Long> id = memory.insertCustomerIfAbsent(customers.get(i));
+                if (id.isPresent()) {
+                    counts[i] = 1;
+                    durability.upsert(memory.getByCustomerId(id.get().intValue()).orElseThrow());
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        durability.await();
+        return counts;
+    }
+
+    @Override
+    public boolean existsPersonWithEmail(String email) {
+        return memory.existsPersonWithEmail(email);
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return memory.selectExistingEmails(emails);
+    }
+
+    @Override
+    public Optional<Customer> deleteCustomer(Integer customerId) {
+        Durability durability = new Durability();
+        Optional<Customer> deleted;
+        writeLock.lock();
+        try {
+            deleted = memory.deleteCustomer(customerId);
+            if (deleted.isPresent()) {
+                durability.delete(customerId);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        durability.await();
+        return deleted;
+    }
+
+    @Override
+    public void updateCustomer(Customer customer) {
+        Durability durability = new Durability();
+        writeLock.lock();
+        try {
+            memory.updateCustomer(customer);
+            memory.getByCustomerId(customer.getId().intValue()).ifPresent(durability::upsert);
+        } finally {
+            writeLock.unlock();
+        }
+        durability.await();
+    }
+
+    @Override
+    public boolean updateCustomer(Customer customer, long expectedVersion) {
+        Durability durability = new Durability();
+        boolean updated;
+        writeLock.lock();
+        try {
+            updated = memory.updateCustomer(customer, expectedVersion);
+            if (updated) {
+                memory.getByCustomerId(customer.getId().intValue()).ifPresent(durability::upsert);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        durability.await();
+        return updated;
+    }
+
+    @Override
+    public CustomerPatchResult patchCustomer(Integer customerId, Customer changes) {
+        Durability durability = new Durability();
+        CustomerPatchResult result;
+        writeLock.lock();
+        try {
+            result = memory.patchCustomer(customerId, changes);
+            if (result.status() == CustomerPatchResult.Status.UPDATED) {
+                durability.upsert(result.customer());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        durability.await();
+        return result;
+    }
+
+    // collects the journal positions a write has to wait for; appends happen under writeLock
+    private final class Durability {
+        private CustomerJournal target;
+        private int position;
+        private Future<?> snapshot;
+
+        private void upsert(Customer customer) {
+            append(CustomerJournal.encode(CustomerJournal.UPSERT, customer));
+        }
+
+        private void delete(long id) {
+            append(CustomerJournal.encode(CustomerJournal.DELETE, new Customer(id, null, null, null, null)));
+        }
+
+        private void append(byte[] record) {
+            int end = journal.append(record);
+            if (end < 0) {
+                // the write is already applied to memory, so it is durable once the rotation snapshot is
+                if (target != null) {
+                    target.awaitDurable(position);
+                }
+                snapshot = rotateUnchecked();
+                target = null;
+                return;
+            }
+            target = journal;
+            position = end;
+        }
+
+        private void await() {
+            if (target != null) {
+                target.awaitDurable(position);
+            }
+            if (snapshot != null) {
+                try {
+                    snapshot.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for customer snapshot", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Customer snapshot failed", e.getCause());
+                }
+            }
+        }
+    }
+
+    private Future<?> rotateUnchecked() {
+        try {
+            return rotate();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // caller holds writeLock, so memory is exactly the state after the last journaled write
+    private Future<?> rotate() throws IOException {
+        CustomerJournal previous = journal;
+        long next = generation + 1;
+        journal = CustomerJournal.create(file("journal", next), journalSize);
+        generation = next;
+        if (previous != null) {
+            previous.close();
+        }
+        List<Customer> customers = memory.selectAllCustomer();
+        long lastId = memory.lastId();
+        return snapshotWriter.submit(() -> {
+            writeSnapshot(next, customers, lastId);
+            return null;
+        });
+    }
+
+    private void writeSnapshot(long generation, List<Customer> customers, long lastId) throws IOException {
+        Path target = file("snapshot", generation);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+                out.write(CustomerJournal.encode(CustomerJournal.HEADER, new Customer(lastId, null, null, null, null)));
+                for (Customer customer : customers) {
+                    out.write(CustomerJournal.encode(CustomerJournal.UPSERT, customer));
+                }
+                out.write(CustomerJournal.encode(CustomerJournal.END, new Customer((long) customers.size(), null, null, null, null)));
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            deleteBefore(generation);
+        } catch (IOException e) {
+            // the older snapshot and journals are still in place, so recovery just replays more
+            LOGGER.warn("Failed to write customer snapshot {}", target, e);
+            throw e;
+        }
+    }
+
+    private void deleteBefore(long generation) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                Matcher matcher = FILE_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches() && Long.parseLong(matcher.group(2)) < generation) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private long recover() throws IOException {
+        TreeMap<Long, Path> journals = new TreeMap<>();
+        TreeMap<Long, Path> snapshots = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                Matcher matcher = FILE_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    (matcher.group(1).equals("journal") ? journals : snapshots)
+                            .put(Long.parseLong(matcher.group(2)), path);
+                }
+            }
+        }
+        long from = 0;
+        for (Long candidate : snapshots.descendingKeySet()) {
+            if (loadSnapshot(snapshots.get(candidate))) {
+                from = candidate;
+                break;
+            }
+        }
+        long replayed = 0;
+        for (var entry : journals.tailMap(from, true).entrySet()) {
+            replayed += replayJournal(entry.getValue());
+        }
+        generation = Math.max(journals.isEmpty() ? 0 : journals.lastKey(), snapshots.isEmpty() ? 0 : snapshots.lastKey());
+        return replayed;
+    }
+
+    private boolean loadSnapshot(Path path) throws IOException {
+        List<Customer> customers = new ArrayList<>();
+        long[] lastId = {-1};
+        long[] count = {-1};
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CustomerJournal.replay(buffer, (type, customer) -> {
+                switch (type) {
+                    case CustomerJournal.HEADER -> lastId[0] = customer.getId();
+                    case CustomerJournal.UPSERT -> customers.add(customer);
+                    case CustomerJournal.END -> count[0] = customer.getId();
+                    default -> throw new IllegalArgumentException("Unexpected record type " + type);
+                }
+            });
+        }
+        if (lastId[0] < 0 || count[0] != customers.size()) {
+            LOGGER.warn("Ignoring incomplete customer snapshot {}", path);
+            return false;
+        }
+        customers.forEach(memory::restore);
+        memory.advanceLastId(lastId[0]);
+        return true;
+    }
+
+    private long replayJournal(Path path) throws IOException {
+        long[] records = {0};
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int end = CustomerJournal.replay(buffer, (type, customer) -> {
+                records[0]++;
+                if (type == CustomerJournal.DELETE) {
+                    memory.deleteCustomer(customer.getId().intValue());
+                    memory.advanceLastId(customer.getId());
+                } else {
+                    memory.restore(customer);
+                }
+            });
+            if (end < buffer.capacity() && buffer.getInt(end) != 0) {
+                LOGGER.warn("Customer journal {} is torn at offset {}, ignoring the rest", path, end);
+            }
+        }
+        return records[0];
+    }
+
+    private Path file(String kind, long generation) {
+        return directory.resolve("%s-%019d.%s".formatted(kind, generation, kind.equals("journal") ? "log" : "bin"));
+    }
+}
@@ -1,67 +1,406 @@
 package com.johan.repository;
 
 import com.johan.model.Customer;
+import com.johan.model.CustomerCursor;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerPatchResult;
+import com.johan.model.CustomerSearchMatch;
+import com.johan.model.CustomerSort;
 import com.johan.model.Gender;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * In-memory customer store. Rows live in a primary index by id next to a unique index by email; a row is
+ * only ever replaced, never mutated, and callers always get copies. A list snapshot is copied from the
+ * primary index without blocking writers and kept only if no write completed meanwhile; a snapshot that keeps
+ * losing that race falls back to the exclusive side of {@link #snapshotLock}, whose shared side every writer
+ * holds, for the copy alone. Searches go through a trigram inverted index over lower-cased names and emails, and every candidate
+ * it yields is checked against the row itself.
+ */
 @Repository("list")
 public class CustomerListDataAccessService implements CustomerDao {
 
-    //db
-    private static List<Customer> customers;
+    private static final int GRAM = 3;
+    private static final int OPTIMISTIC_SNAPSHOTS = 3;
 
-    static {
-        customers = new ArrayList<>();
-        Customer alex = new Customer(
-                1L,
-                "Alex",
-                "alex@gmail.com",
-                21,
-                Gender.MALE);
-        customers.add(alex);
+    private final ConcurrentMap<Long, Customer> customers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> idsByEmail = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<Long>> idsByTrigram = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+    private final StampedLock snapshotLock = new StampedLock();
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(-1, List.of()));
 
-        Customer jamila = new Customer(
-                2L,
-                "Jamila",
-                "jamila@gmail.com",
-                25,
-                Gender.MALE);
-        customers.add(jamila);
+    public CustomerListDataAccessService() {
+        this(List.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 21, Gender.MALE),
+                new Customer(2L, "Jamila", "jamila@gmail.com", 25, Gender.MALE)));
+    }
 
+    CustomerListDataAccessService(List<Customer> seed) {
+        for (Customer customer : seed) {
+            customers.put(customer.getId(), copy(customer));
+            idsByEmail.put(customer.getEmail(), customer.getId());
+            index(customer);
+            advanceLastId(customer.getId());
+        }
     }
 
     @Override
     public List<Customer> selectAllCustomer() {
-        return customers;
+        return snapshot().stream()
+                .map(CustomerListDataAccessService::copy)
+                .toList();
+    }
+
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        return snapshot().stream()
+                .map(CustomerListDataAccessService::copy);
+    }
+
+    @Override
+    public Stream<String> streamAllEmails() {
+        return snapshot().stream()
+                .map(Customer::getEmail);
+    }
+
+    @Override
+    public List<Customer> selectCustomerPage(CustomerFilter filter, CustomerSort sort, CustomerCursor after, int limit) {
+        List<Customer> rows = snapshot();
+        if (sort == CustomerSort.ID) {
+            // the snapshot is already in id order, so the cursor is a binary search away
+            int from = 0;
+            if (after != null) {
+                int index = Collections.binarySearch(rows, cursorRow(after), comparator(sort));
+                from = index >= 0 ? index + 1 : -index - 1;
+            }
+            return rows.subList(from, rows.size()).stream()
+                    .filter(filter::matches)
+                    .limit(limit)
+                    .map(CustomerListDataAccessService::copy)
+                    .toList();
+        }
+        Comparator<Customer> order = comparator(sort);
+        Customer from = after == null ? null : cursorRow(after);
+        return rows.stream()
+                .filter(filter::matches)
+                .filter(c -> from == null || order.compare(c, from) > 0)
+                .sorted(order)
+                .limit(limit)
+                .map(CustomerListDataAccessService::copy)
+                .toList();
+    }
+
+    private static Comparator<Customer> comparator(CustomerSort sort) {
+        Comparator<Customer> byId = Comparator.comparing(Customer::getId);
+        return switch (sort) {
+            case ID -> byId;
+            case NAME -> Comparator.comparing(Customer::getName).thenComparing(byId);
+            case AGE -> Comparator.comparing(Customer::getAge).thenComparing(byId);
+        };
+    }
+
+    private static Customer cursorRow(CustomerCursor after) {
+        Customer row = new Customer();
+        row.setId(after.id());
+        switch (after.sort()) {
+            case NAME -> row.setName(after.key());
+            case AGE -> row.setAge(Integer.valueOf(after.key()));
+        }
+        return row;
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String query, CustomerSearchMatch match, int limit) {
+        String normalized = CustomerSearch.normalize(query);
+        Stream<Customer> candidates;
+        if (normalized.length() < GRAM) {
+            candidates = snapshot().stream();
+        } else {
+            // a match contains every trigram of the query, so the rarest one bounds the candidates
+            List<Set<Long>> postings = new ArrayList<>();
+            for (String trigram : trigrams(normalized)) {
+                Set<Long> ids = idsByTrigram.get(trigram);
+                if (ids == null) {
+                    return List.of();
+                }
+                postings.add(ids);
+            }
+            postings.sort(Comparator.comparingInt(Set::size));
+            List<Set<Long>> others = postings.subList(1, postings.size());
+            candidates = postings.get(0).stream()
+                    .filter(id -> others.stream().allMatch(ids -> ids.contains(id)))
+                    .sorted()
+                    .map(customers::get)
+                    .filter(Objects::nonNull);
+        }
+        return candidates
+                .filter(customer -> CustomerSearch.matches(customer, normalized, match))
+                .limit(limit)
+                .map(CustomerListDataAccessService::copy)
+                .toList();
     }
 
     @Override
     public Optional<Customer> getByCustomerId(Integer customerId) {
-        return customers.stream()
-                .filter(c->c.getId().intValue() == customerId)
-                .findFirst();
+        return Optional.ofNullable(customers.get(customerId.longValue()))
+                .map(CustomerListDataAccessService::copy);
     }
 
     @Override
     public void insertCustomer(Customer customer) {
+        if (insertCustomerIfAbsent(customer).isEmpty()) {
+            throw new DuplicateKeyException("Email [%s] already exists".formatted(customer.getEmail()));
+        }
+    }
+
+    @Override
+    public Optional<Long> insertCustomerIfAbsent(Customer customer) {
+        return write(() -> {
+            // like a database sequence, an id lost to a duplicate email is not reused
+            long id = lastId.incrementAndGet();
+            if (idsByEmail.putIfAbsent(customer.getEmail(), id) != null) {
+                return Optional.empty();
+            }
+            Customer inserted = new Customer(id, customer.getName(), customer.getEmail(), customer.getAge(), customer.getGender());
+            inserted.setVersion(0L);
+            customers.put(id, inserted);
+            index(inserted);
+            return Optional.of(id);
+        });
+    }
+
+    @Override
+    public int[] insertCustomers(List<Customer> customers) {
+        int[] counts = new int[customers.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = insertCustomerIfAbsent(customers.get(i)).isPresent() ? 1 : 0;
+        }
+        return counts;
     }
 
     @Override
     public boolean existsPersonWithEmail(String email) {
-        return false;
+        return idsByEmail.containsKey(email);
     }
 
     @Override
-    public void deleteCustomer(Integer customerId) {
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return emails.stream()
+                .filter(idsByEmail::containsKey)
+                .collect(Collectors.toSet());
+    }
 
+    @Override
+    public Optional<Customer> deleteCustomer(Integer customerId) {
+        return write(() -> {
+            Customer removed = customers.remove(customerId.longValue());
+            if (removed == null) {
+                return Optional.empty();
+            }
+            idsByEmail.remove(removed.getEmail(), removed.getId());
+            unindex(removed);
+            return Optional.of(copy(removed));
+        });
     }
 
     @Override
     public void updateCustomer(Customer customer) {
+        write(() -> customers.computeIfPresent(customer.getId(), (id, current) -> replace(current, copy(customer))));
+    }
+
+    @Override
+    public boolean updateCustomer(Customer customer, long expectedVersion) {
+        return write(() -> {
+            boolean[] updated = {false};
+            customers.computeIfPresent(customer.getId(), (id, current) -> {
+                if (version(current) != expectedVersion) {
+                    return current;
+                }
+                updated[0] = true;
+                return replace(current, copy(customer));
+            });
+            if (updated[0]) {
+                customer.setVersion(expectedVersion + 1);
+            }
+            return updated[0];
+        });
+    }
+
+    @Override
+    public CustomerPatchResult patchCustomer(Integer customerId, Customer changes) {
+        return write(() -> {
+            CustomerPatchResult[] result = {CustomerPatchResult.of(CustomerPatchResult.Status.NOT_FOUND)};
+            try {
+                customers.computeIfPresent(customerId.longValue(), (id, current) -> {
+                    Customer patched = copy(current);
+                    if (!CustomerPatches.apply(patched, changes)) {
+                        result[0] = new CustomerPatchResult(CustomerPatchResult.Status.UNCHANGED, copy(current));
+                        return current;
+                    }
+                    Customer replaced = replace(current, patched);
+                    result[0] = new CustomerPatchResult(CustomerPatchResult.Status.UPDATED, copy(replaced), copy(current));
+                    return replaced;
+                });
+            } catch (DuplicateKeyException e) {
+                return CustomerPatchResult.of(CustomerPatchResult.Status.EMAIL_TAKEN);
+            }
+            return result[0];
+        });
+    }
+
+    // runs under the row's bin lock, which serializes writers of one id; the email index moves first so a
+    // failed claim leaves both indexes untouched
+    private Customer replace(Customer current, Customer next) {
+        if (!Objects.equals(current.getEmail(), next.getEmail())) {
+            Long owner = idsByEmail.putIfAbsent(next.getEmail(), current.getId());
+            if (owner != null && !owner.equals(current.getId())) {
+                throw new DuplicateKeyException("Email [%s] already exists".formatted(next.getEmail()));
+            }
+            idsByEmail.remove(current.getEmail(), current.getId());
+        }
+        next.setId(current.getId());
+        next.setVersion(version(current) + 1);
+        unindex(current);
+        index(next);
+        return next;
+    }
+
+    // puts a recovered row back exactly as it was, id included
+    void restore(Customer customer) {
+        write(() -> {
+            Customer previous = customers.put(customer.getId(), copy(customer));
+            if (previous != null) {
+                if (!previous.getEmail().equals(customer.getEmail())) {
+                    idsByEmail.remove(previous.getEmail(), previous.getId());
+                }
+                unindex(previous);
+            }
+            index(customer);
+            idsByEmail.put(customer.getEmail(), customer.getId());
+            advanceLastId(customer.getId());
+            return null;
+        });
+    }
+
+    // empty posting sets are left in place, so a concurrent index() never adds to a detached set
+    private void index(Customer customer) {
+        for (String trigram : trigrams(customer)) {
+            idsByTrigram.computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet()).add(customer.getId());
+        }
+    }
+
+    private void unindex(Customer customer) {
+        for (String trigram : trigrams(customer)) {
+            Set<Long> ids = idsByTrigram.get(trigram);
+            if (ids != null) {
+                ids.remove(customer.getId());
+            }
+        }
+    }
+
+    private static Set<String> trigrams(Customer customer) {
+        Set<String> trigrams = trigrams(CustomerSearch.normalize(customer.getName()));
+        trigrams.addAll(trigrams(CustomerSearch.normalize(customer.getEmail())));
+        return trigrams;
+    }
+
+    private static Set<String> trigrams(String value) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            trigrams.add(value.substring(i, i + GRAM));
+        }
+        return trigrams;
+    }
+
+    void advanceLastId(long id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    int size() {
+        return customers.size();
+    }
+
+    long lastId() {
+        return lastId.get();
+    }
+
+    private <T> T write(Supplier<T> operation) {
+        long stamp = snapshotLock.readLock();
+        try {
+            T result = operation.get();
+            version.incrementAndGet();
+            return result;
+        } finally {
+            snapshotLock.unlockRead(stamp);
+        }
+    }
+
+    private List<Customer> snapshot() {
+        Snapshot current = snapshot.get();
+        long now = version.get();
+        if (current.version == now) {
+            return current.customers;
+        }
+        // a write bumps the version only once it is done, so an unchanged version means every write the copy
+        // saw part of was still in flight, and the copy is a state the store really passed through
+        for (int attempt = 0; attempt < OPTIMISTIC_SNAPSHOTS; attempt++) {
+            List<Customer> rows = new ArrayList<>(customers.values());
+            long after = version.get();
+            if (after == now) {
+                return publish(now, rows);
+            }
+            now = after;
+        }
+        List<Customer> rows;
+        long stamp = snapshotLock.writeLock();
+        try {
+            now = version.get();
+            rows = new ArrayList<>(customers.values());
+        } finally {
+            snapshotLock.unlockWrite(stamp);
+        }
+        return publish(now, rows);
+    }
+
+    // sorted outside any lock; a reader that copied an older state must not replace a newer snapshot with it
+    private List<Customer> publish(long version, List<Customer> rows) {
+        rows.sort(Comparator.comparing(Customer::getId));
+        Snapshot next = new Snapshot(version, Collections.unmodifiableList(rows));
+        snapshot.accumulateAndGet(next, (current, candidate) -> candidate.version > current.version ? candidate : current);
+        return next.customers;
+    }
+
+    private static Customer copy(Customer customer) {
+        Customer copy = new Customer(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge(), customer.getGender());
+        copy.setVersion(customer.getVersion());
+        return copy;
+    }
+
+    private static long version(Customer customer) {
+        return customer.getVersion() == null ? 0 : customer.getVersion();
+    }
 
+    private record Snapshot(long version, List<Customer> customers) {
     }
 }
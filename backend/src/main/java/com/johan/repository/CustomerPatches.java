@@ -0,0 +1,33 @@
+package com.johan.repository;
+
+import com.johan.model.Customer;
+
+import java.util.Objects;
+
+final class CustomerPatches {
+
+    private CustomerPatches() {
+    }
+
+    // copies the non-null fields of changes that differ onto target, reporting whether anything changed
+    static boolean apply(Customer target, Customer changes) {
+        boolean changed = false;
+        if (changes.getName() != null && !Objects.equals(changes.getName(), target.getName())) {
+            target.setName(changes.getName());
+            changed = true;
+        }
+        if (changes.getEmail() != null && !Objects.equals(changes.getEmail(), target.getEmail())) {
+            target.setEmail(changes.getEmail());
+            changed = true;
+        }
+        if (changes.getAge() != null && !Objects.equals(changes.getAge(), target.getAge())) {
+            target.setAge(changes.getAge());
+            changed = true;
+        }
+        if (changes.getGender() != null && changes.getGender() != target.getGender()) {
+            target.setGender(changes.getGender());
+            changed = true;
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,198 @@
+package com.johan.repository;
+
+import com.johan.model.Customer;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerFilter;
+import com.johan.model.Gender;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.R2dbcDataIntegrityViolationException;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * {@link ReactiveCustomerDao} on the R2DBC Postgres driver. Writes publish on
+ * {@value CustomerChangeNotifier#CHANNEL} in the same statement, so the caches of servlet nodes sharing
+ * the table are evicted as they are for {@link CustomerJDBCAccessService}.
+ */
+@Repository("r2dbc")
+@Profile("reactive")
+public class CustomerR2dbcAccessService implements ReactiveCustomerDao {
+
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private final ConnectionFactory connectionFactory;
+
+    public CustomerR2dbcAccessService(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    public Flux<Customer> streamCustomers(CustomerFilter filter, Set<CustomerField> fields) {
+        Set<CustomerField> columns = EnumSet.of(CustomerField.ID);
+        columns.addAll(fields);
+        List<Object> args = new ArrayList<>();
+        String sql = """
+                SELECT %s
+                FROM customer
+                %sORDER BY id
+                """.formatted(selectList(columns), where(filter, args));
+        // with a fetch size the driver reads through a portal and asks for the next rows only once the
+        // subscriber has requested them; portals only outlive a single fetch inside a transaction
+        return Flux.usingWhen(Mono.from(connectionFactory.create()),
+                connection -> Flux.from(connection.beginTransaction())
+                        .thenMany(query(connection.createStatement(sql)
+                                .fetchSize(CustomerJDBCAccessService.STREAM_FETCH_SIZE), args, row -> customer(row, columns))),
+                connection -> Flux.concat(connection.commitTransaction(), connection.close()),
+                (connection, error) -> Flux.concat(connection.rollbackTransaction(), connection.close()),
+                connection -> Flux.concat(connection.rollbackTransaction(), connection.close()));
+    }
+
+    @Override
+    public Mono<Customer> getByCustomerId(Integer customerId, Set<CustomerField> fields) {
+        Set<CustomerField> columns = EnumSet.of(CustomerField.ID);
+        columns.addAll(fields);
+        var sql = """
+                SELECT %s
+                FROM customer
+                WHERE id = $1
+                """.formatted(selectList(columns));
+        return execute(sql, List.of(customerId), row -> customer(row, columns)).next();
+    }
+
+    @Override
+    public Mono<Long> insertCustomerIfAbsent(Customer customer) {
+        var sql = """
+                WITH inserted AS (
+                    INSERT INTO customer (name, email, age, gender)
+                    VALUES ($1, $2, $3, $4)
+                    ON CONFLICT (email) DO NOTHING
+                    RETURNING id
+                )
+                SELECT id, pg_notify($5, id::text)
+                FROM inserted
+                """;
+        return execute(sql, List.of(customer.getName(), customer.getEmail(), customer.getAge(),
+                        customer.getGender().name(), CustomerChangeNotifier.CHANNEL),
+                row -> row.get("id", Long.class)).next();
+    }
+
+    @Override
+    public Mono<Boolean> existsPersonWithEmail(String email) {
+        var sql = """
+                SELECT EXISTS (SELECT 1 FROM customer WHERE email = $1) AS taken
+                """;
+        return execute(sql, List.of(email), row -> row.get("taken", Boolean.class)).next();
+    }
+
+    @Override
+    public Mono<Customer> deleteCustomer(Integer customerId) {
+        var sql = """
+                WITH deleted AS (
+                    DELETE FROM customer
+                    WHERE id = $1
+                    RETURNING id, name, email, age, gender, version
+                )
+                SELECT id, name, email, age, gender, version, pg_notify($2, id::text)
+                FROM deleted
+                """;
+        return execute(sql, List.of(customerId, CustomerChangeNotifier.CHANNEL),
+                row -> customer(row, CustomerField.ALL)).next();
+    }
+
+    @Override
+    public Mono<Long> updateCustomer(Customer customer, Long expectedVersion) {
+        var sql = """
+                WITH updated AS (
+                    UPDATE customer
+                    SET name = $1, email = $2, age = $3, gender = $4, version = version + 1
+                    WHERE id = $5%s
+                    RETURNING id, version
+                )
+                SELECT version, pg_notify($6, id::text)
+                FROM updated
+                """.formatted(expectedVersion == null ? "" : " AND version = $7");
+        List<Object> args = new ArrayList<>(List.of(customer.getName(), customer.getEmail(), customer.getAge(),
+                customer.getGender().name(), customer.getId(), CustomerChangeNotifier.CHANNEL));
+        if (expectedVersion != null) {
+            args.add(expectedVersion);
+        }
+        return execute(sql, args, row -> row.get("version", Long.class))
+                .next()
+                .doOnNext(customer::setVersion)
+                .onErrorMap(R2dbcDataIntegrityViolationException.class, CustomerR2dbcAccessService::translate);
+    }
+
+    // the same split JdbcTemplate makes: only a unique violation is a duplicate key
+    private static DataIntegrityViolationException translate(R2dbcDataIntegrityViolationException e) {
+        return UNIQUE_VIOLATION.equals(e.getSqlState())
+                ? new DuplicateKeyException(e.getMessage(), e)
+                : new DataIntegrityViolationException(e.getMessage(), e);
+    }
+
+    // one statement on a connection of its own, returned to the pool once the rows are read or the
+    // subscriber cancels
+    private <T> Flux<T> execute(String sql, List<Object> args, Function<Row, T> mapper) {
+        return Flux.usingWhen(Mono.from(connectionFactory.create()),
+                connection -> query(connection.createStatement(sql), args, mapper),
+                Connection::close);
+    }
+
+    private static <T> Flux<T> query(Statement statement, List<Object> args, Function<Row, T> mapper) {
+        for (int i = 0; i < args.size(); i++) {
+            statement.bind(i, args.get(i));
+        }
+        return Flux.from(statement.execute())
+                .concatMap(result -> result.map((row, metadata) -> mapper.apply(row)));
+    }
+
+    // numbers the placeholders from $1 and adds their values to args in the same order
+    private static String where(CustomerFilter filter, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.gender() != null) {
+            args.add(filter.gender().name());
+            conditions.add("gender = $" + args.size());
+        }
+        if (filter.minAge() != null) {
+            args.add(filter.minAge());
+            conditions.add("age >= $" + args.size());
+        }
+        if (filter.maxAge() != null) {
+            args.add(filter.maxAge());
+            conditions.add("age <= $" + args.size());
+        }
+        return conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + "\n";
+    }
+
+    private static String selectList(Set<CustomerField> columns) {
+        return String.join(", ", columns.stream().map(CustomerField::getColumn).toList()) + ", version";
+    }
+
+    // the fields not selected stay null
+    private static Customer customer(Row row, Set<CustomerField> columns) {
+        Customer customer = new Customer();
+        for (CustomerField column : columns) {
+            column.set(customer, switch (column) {
+                case ID -> row.get("id", Long.class);
+                case NAME -> row.get("name", String.class);
+                case EMAIL -> row.get("email", String.class);
+                case AGE -> row.get("age", Integer.class);
+                case GENDER -> Gender.valueOf(row.get("gender", String.class));
+            });
+        }
+        customer.setVersion(row.get("version", Long.class));
+        return customer;
+    }
+}
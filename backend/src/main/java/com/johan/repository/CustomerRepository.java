@@ -1,8 +1,181 @@
 package com.johan.repository;
 
 import com.johan.model.Customer;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface CustomerRepository extends JpaRepository<Customer,Integer> {
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public interface CustomerRepository extends JpaRepository<Customer,Integer>, JpaSpecificationExecutor<Customer> {
     boolean existsCustomerByEmail(String email);
+
+    // Every write below publishes on the channel in the same statement, so a notification goes out exactly
+    // when the write commits. The notified CTE holds a volatile call, so Postgres runs it in full rather than
+    // inlining it, even though only the written columns are selected from it.
+
+    @Transactional
+    @Query(value = """
+            WITH inserted AS (
+                INSERT INTO customer (name, email, age, gender)
+                VALUES (:name, :email, :age, :gender)
+                RETURNING id
+            ), notified AS (
+                SELECT id, pg_notify(:channel, id::text)
+                FROM inserted
+            )
+            SELECT id FROM notified
+            """, nativeQuery = true)
+    Long insertCustomer(@Param("name") String name,
+                        @Param("email") String email,
+                        @Param("age") Integer age,
+                        @Param("gender") String gender,
+                        @Param("channel") String channel);
+
+    @Transactional
+    @Query(value = """
+            WITH inserted AS (
+                INSERT INTO customer (name, email, age, gender)
+                VALUES (:name, :email, :age, :gender)
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id
+            ), notified AS (
+                SELECT id, pg_notify(:channel, id::text)
+                FROM inserted
+            )
+            SELECT id FROM notified
+            """, nativeQuery = true)
+    Optional<Long> insertIfAbsent(@Param("name") String name,
+                                  @Param("email") String email,
+                                  @Param("age") Integer age,
+                                  @Param("gender") String gender,
+                                  @Param("channel") String channel);
+
+    // one statement per batch; a taken email is skipped rather than aborting the rest, and only the emails
+    // that went in come back. Postgres folds the identical notifications into one.
+    @Transactional
+    @Query(value = """
+            WITH inserted AS (
+                INSERT INTO customer (name, email, age, gender)
+                SELECT * FROM unnest(CAST(:names AS text[]), CAST(:emails AS text[]), CAST(:ages AS int[]),
+                                     CAST(:genders AS text[]))
+                ON CONFLICT (email) DO NOTHING
+                RETURNING email
+            ), notified AS (
+                SELECT email, pg_notify(:channel, :payload)
+                FROM inserted
+            )
+            SELECT email FROM notified
+            """, nativeQuery = true)
+    List<String> insertAllIfAbsent(@Param("names") String[] names,
+                                   @Param("emails") String[] emails,
+                                   @Param("ages") Integer[] ages,
+                                   @Param("genders") String[] genders,
+                                   @Param("channel") String channel,
+                                   @Param("payload") String payload);
+
+    // one statement, so no other writer fits between reading the row and deleting it
+    @Transactional
+    @Query(value = """
+            WITH deleted AS (
+                DELETE FROM customer
+                WHERE id = :id
+                RETURNING id, name, email, age, gender, version
+            ), notified AS (
+                SELECT id, name, email, age, gender, version, pg_notify(:channel, id::text)
+                FROM deleted
+            )
+            SELECT id, name, email, age, gender, version FROM notified
+            """, nativeQuery = true)
+    Optional<Customer> deleteCustomerById(@Param("id") Long id, @Param("channel") String channel);
+
+    // a native UPDATE rather than save(), which would persist() a detached customer that carries no version
+    @Transactional
+    @Query(value = """
+            WITH updated AS (
+                UPDATE customer
+                SET name = :name, email = :email, age = :age, gender = :gender, version = version + 1
+                WHERE id = :id
+                RETURNING id, version
+            ), notified AS (
+                SELECT version, pg_notify(:channel, id::text)
+                FROM updated
+            )
+            SELECT version FROM notified
+            """, nativeQuery = true)
+    Optional<Long> updateCustomer(@Param("id") Long id,
+                                  @Param("name") String name,
+                                  @Param("email") String email,
+                                  @Param("age") Integer age,
+                                  @Param("gender") String gender,
+                                  @Param("channel") String channel);
+
+    @Transactional
+    @Query(value = """
+            WITH updated AS (
+                UPDATE customer
+                SET name = :name, email = :email, age = :age, gender = :gender, version = version + 1
+                WHERE id = :id AND version = :version
+                RETURNING id, version
+            ), notified AS (
+                SELECT version, pg_notify(:channel, id::text)
+                FROM updated
+            )
+            SELECT version FROM notified
+            """, nativeQuery = true)
+    Optional<Long> updateIfVersion(@Param("id") Long id,
+                                   @Param("version") long version,
+                                   @Param("name") String name,
+                                   @Param("email") String email,
+                                   @Param("age") Integer age,
+                                   @Param("gender") String gender,
+                                   @Param("channel") String channel);
+
+    @Query("SELECT c.email FROM Customer c WHERE c.email IN :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Query("SELECT c FROM Customer c ORDER BY c.id")
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    Stream<Customer> streamAll();
+
+    @Query("SELECT c.email FROM Customer c")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<String> streamAllEmails();
+
+    @Query("SELECT c FROM Customer c")
+    List<Customer> findPage(Pageable pageable);
+
+    // ILIKE is what the pg_trgm indexes serve
+    @Query(value = """
+            SELECT id, name, email, age, gender, version
+            FROM customer
+            WHERE name ILIKE :pattern OR email ILIKE :pattern
+            ORDER BY id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Customer> search(@Param("pattern") String pattern, @Param("limit") int limit);
+
+    @Query("SELECT c FROM Customer c WHERE c.id > :id")
+    List<Customer> findPageAfterId(@Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT c FROM Customer c WHERE c.name > :name OR (c.name = :name AND c.id > :id)")
+    List<Customer> findPageAfterName(@Param("name") String name, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT c FROM Customer c WHERE c.age > :age OR (c.age = :age AND c.id > :id)")
+    List<Customer> findPageAfterAge(@Param("age") Integer age, @Param("id") Long id, Pageable pageable);
 }
@@ -0,0 +1,37 @@
+package com.johan.repository;
+
+import com.johan.model.Customer;
+import com.johan.model.CustomerSearchMatch;
+
+import java.util.Locale;
+
+/**
+ * Case-insensitive name/email matching shared by the SQL and in-memory search paths.
+ */
+final class CustomerSearch {
+
+    private CustomerSearch() {
+    }
+
+    // ILIKE pattern with the query's own wildcards escaped
+    static String likePattern(String query, CustomerSearchMatch match) {
+        String escaped = query.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return match == CustomerSearchMatch.PREFIX ? escaped + "%" : "%" + escaped + "%";
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    // query must already be normalized
+    static boolean matches(Customer customer, String query, CustomerSearchMatch match) {
+        return matches(normalize(customer.getName()), query, match)
+                || matches(normalize(customer.getEmail()), query, match);
+    }
+
+    private static boolean matches(String value, String query, CustomerSearchMatch match) {
+        return match == CustomerSearchMatch.PREFIX ? value.startsWith(query) : value.contains(query);
+    }
+}
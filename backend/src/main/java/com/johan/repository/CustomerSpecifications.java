@@ -0,0 +1,52 @@
+package com.johan.repository;
+
+import com.johan.model.Customer;
+import com.johan.model.CustomerCursor;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerSort;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class CustomerSpecifications {
+
+    private CustomerSpecifications() {
+    }
+
+    static Specification<Customer> matching(CustomerFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.gender() != null) {
+                predicates.add(cb.equal(root.get("gender"), filter.gender()));
+            }
+            if (filter.minAge() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("age"), filter.minAge()));
+            }
+            if (filter.maxAge() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("age"), filter.maxAge()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // the keyset condition of the repository's findPageAfter* queries
+    static Specification<Customer> after(CustomerSort sort, CustomerCursor after) {
+        return (root, query, cb) -> {
+            if (after == null) {
+                return cb.conjunction();
+            }
+            Predicate idAfter = cb.greaterThan(root.get("id"), after.id());
+            return switch (sort) {
+                case ID -> idAfter;
+                case NAME -> cb.or(
+                        cb.greaterThan(root.get("name"), after.key()),
+                        cb.and(cb.equal(root.get("name"), after.key()), idAfter));
+                case AGE -> cb.or(
+                        cb.greaterThan(root.get("age"), Integer.valueOf(after.key())),
+                        cb.and(cb.equal(root.get("age"), Integer.valueOf(after.key())), idAfter));
+            };
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.johan.repository;
+
+import com.johan.model.Gender;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public class CustomerStatisticsDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerStatisticsDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<AgeGenderCount> countByAgeAndGender() {
+        var sql = """
+                SELECT gender, age, count(*) AS customers
+                FROM customer
+                GROUP BY gender, age
+                """;
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new AgeGenderCount(
+                rs.getInt("age"),
+                Gender.valueOf(rs.getString("gender")),
+                rs.getLong("customers")));
+    }
+
+    public record AgeGenderCount(int age, Gender gender, long customers) {
+    }
+}
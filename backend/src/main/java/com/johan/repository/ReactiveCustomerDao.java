@@ -0,0 +1,23 @@
+package com.johan.repository;
+
+import com.johan.model.Customer;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerFilter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+// Non-blocking counterpart of CustomerDao for the reactive stack; an empty Mono stands for an empty Optional
+public interface ReactiveCustomerDao {
+    // matching rows in id order, fetched from the database only as fast as the subscriber requests them
+    Flux<Customer> streamCustomers(CustomerFilter filter, Set<CustomerField> fields);
+    Mono<Customer> getByCustomerId(Integer customerId, Set<CustomerField> fields);
+    // the new id, empty when the email is taken
+    Mono<Long> insertCustomerIfAbsent(Customer customer);
+    Mono<Boolean> existsPersonWithEmail(String email);
+    // the row as it was before the delete, empty when there was none
+    Mono<Customer> deleteCustomer(Integer customerId);
+    // the new version, empty when the row is gone or, given an expectedVersion, no longer at it
+    Mono<Long> updateCustomer(Customer customer, Long expectedVersion);
+}
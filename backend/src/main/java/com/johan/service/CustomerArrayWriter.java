@@ -0,0 +1,76 @@
+package com.johan.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.johan.model.Customer;
+import com.johan.model.CustomerField;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Writes customers as one array, field by field, through any Jackson generator (JSON, CBOR or Smile), so
+// memory use does not grow with the row count. It flushes every FLUSH_ROWS rows so the client sees the
+// first ones while the query is still running. IOException is rethrown unchecked for the same reason as in
+// CustomerExportWriter.
+public class CustomerArrayWriter implements Consumer<Customer> {
+
+    static final int FLUSH_ROWS = 1000;
+
+    private final JsonGenerator generator;
+    private final Set<CustomerField> fields;
+    private int pending;
+
+    public CustomerArrayWriter(JsonGenerator generator, Set<CustomerField> fields) {
+        this.generator = generator;
+        this.fields = fields;
+    }
+
+    public void start() {
+        try {
+            generator.writeStartArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(Customer customer) {
+        try {
+            generator.writeStartObject();
+            for (CustomerField field : fields) {
+                writeField(field, customer);
+            }
+            generator.writeEndObject();
+            if (++pending == FLUSH_ROWS) {
+                pending = 0;
+                generator.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void finish() {
+        try {
+            generator.writeEndArray();
+            generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeField(CustomerField field, Customer customer) throws IOException {
+        Object value = field.get(customer);
+        if (value == null) {
+            return;
+        }
+        generator.writeFieldName(field.getColumn());
+        switch (field) {
+            case ID -> generator.writeNumber((Long) value);
+            case AGE -> generator.writeNumber((Integer) value);
+            case GENDER -> generator.writeString(((Enum<?>) value).name());
+            default -> generator.writeString((String) value);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.johan.service;
+
+import com.johan.repository.CustomerDao;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter of every customer email, consulted before email lookups so definite misses skip the
+ * database. A miss is only a hint: rows written by other nodes or by bulk ingest may be absent until
+ * the next rebuild, so callers still rely on the unique constraint for correctness.
+ */
+@Component
+public class CustomerEmailFilter implements MeterBinder {
+
+    private final CustomerDao customerDao;
+    private final TransactionTemplate transactionTemplate;
+    private final long expectedEmails;
+    private final double falsePositiveRate;
+    private final Duration rebuildInterval;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "customer-email-filter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // null until the first build completes; every email is a possible hit until then
+    private volatile ScalableBloomFilter filter;
+    private volatile ScalableBloomFilter building;
+
+    public CustomerEmailFilter(@Qualifier("jdbc") CustomerDao customerDao,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${email-filter.expected-emails:1000000}") long expectedEmails,
+                               @Value("${email-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                               @Value("${email-filter.rebuild-interval:0s}") Duration rebuildInterval) {
+        this.customerDao = customerDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.expectedEmails = expectedEmails;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (rebuildInterval.isZero() || rebuildInterval.isNegative()) {
+            rebuildAsync();
+            return;
+        }
+        // periodic rebuilds drop deleted emails and pick up rows written elsewhere
+        executor.scheduleWithFixedDelay(this::rebuild, 0, rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public boolean mightContain(String email) {
+        ScalableBloomFilter current = filter;
+        return current == null || current.mightContain(email);
+    }
+
+    public void add(String email) {
+        // an email committed after the rebuild stream started must land in the replacement too. building is
+        // read before filter: a rebuild publishes filter before clearing building, so whichever of the two
+        // we miss, the other is the replacement
+        ScalableBloomFilter next = building;
+        if (next != null) {
+            next.add(email);
+        }
+        ScalableBloomFilter current = filter;
+        if (current != null && current != next) {
+            current.add(email);
+        }
+    }
+
+    public void rebuildAsync() {
+        executor.execute(this::rebuild);
+    }
+
+    public synchronized void rebuild() {
+        ScalableBloomFilter current = filter;
+        long capacity = Math.max(expectedEmails, current == null ? 0 : current.approximateElementCount() * 2);
+        ScalableBloomFilter next = new ScalableBloomFilter(capacity, falsePositiveRate);
+        building = next;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<String> emails = customerDao.streamAllEmails()) {
+                    emails.forEach(next::add);
+                }
+            });
+            filter = next;
+        } finally {
+            building = null;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("customer.email.filter.false.positive.rate", this,
+                        f -> f.filter == null ? 1 : f.filter.expectedFalsePositiveRate())
+                .description("Estimated false-positive rate of the customer email Bloom filter")
+                .register(registry);
+        Gauge.builder("customer.email.filter.size", this,
+                        f -> f.filter == null ? 0 : f.filter.sizeInBytes())
+                .description("Memory held by the customer email Bloom filter bit sets")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("customer.email.filter.elements", this,
+                        f -> f.filter == null ? 0 : f.filter.approximateElementCount())
+                .description("Approximate number of emails added to the filter")
+                .register(registry);
+    }
+}
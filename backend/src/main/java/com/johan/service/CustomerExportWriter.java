@@ -0,0 +1,68 @@
+package com.johan.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.johan.model.Customer;
+import com.johan.model.ExportFormat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.function.Consumer;
+
+// Writes one customer per line; IOException from a dropped client is rethrown unchecked so the
+// surrounding row stream is closed and the query cancelled
+public class CustomerExportWriter implements Consumer<Customer> {
+
+    private static final String CSV_HEADER = "id,name,email,age,gender";
+
+    private final Writer out;
+    private final ExportFormat format;
+    private final ObjectWriter json;
+
+    public CustomerExportWriter(Writer out, ExportFormat format, ObjectMapper objectMapper) {
+        this.out = out;
+        this.format = format;
+        this.json = objectMapper.writerFor(Customer.class);
+    }
+
+    public void writeHeader() {
+        if (format == ExportFormat.CSV) {
+            writeLine(CSV_HEADER);
+        }
+    }
+
+    @Override
+    public void accept(Customer customer) {
+        try {
+            writeLine(format == ExportFormat.CSV ? toCsv(customer) : json.writeValueAsString(customer));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLine(String line) {
+        try {
+            out.write(line);
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String toCsv(Customer customer) {
+        return customer.getId() + ","
+                + csvField(customer.getName()) + ","
+                + csvField(customer.getEmail()) + ","
+                + customer.getAge() + ","
+                + customer.getGender();
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,310 @@
+package com.johan.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johan.model.Customer;
+import com.johan.model.CustomerBatchResult;
+import com.johan.model.CustomerCursor;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerJob;
+import com.johan.model.CustomerJobParameters;
+import com.johan.model.CustomerJobStatus;
+import com.johan.model.CustomerJobType;
+import com.johan.model.CustomerSort;
+import com.johan.repository.CustomerDao;
+import com.johan.repository.CustomerJobDao;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs queued {@link CustomerJob}s on a fixed pool of worker threads, away from the request threads. Each chunk
+ * is one transaction that locks the job row, does the work and records the new position, so a job picked up
+ * again after a crash or restart carries on after the last committed chunk. Chunks hold one connection each
+ * and at most {@code max-connections} run at once across all jobs; {@code rows-per-second} paces every job.
+ * Export output is written under {@code dir}, which several nodes only see alike when it is shared storage; an
+ * export taken over by a node missing the earlier chunks' output starts again from the first row.
+ */
+@Component
+public class CustomerJobRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerJobRunner.class);
+
+    private final CustomerJobDao customerJobDao;
+    private final CustomerDao customerDao;
+    private final CustomerService customerService;
+    private final CustomerStatistics customerStatistics;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Path jobDir;
+    private final int chunkSize;
+    private final long rowsPerSecond;
+    private final Duration pollInterval;
+    private final Duration staleAfter;
+    private final Semaphore workers;
+    private final Semaphore connections;
+    // a job claimed by this owner is only run by this instance; a restart gets a new one
+    private final String owner = UUID.randomUUID().toString();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "customer-job-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService executor;
+
+    public CustomerJobRunner(CustomerJobDao customerJobDao,
+                             @Qualifier("jdbc") CustomerDao customerDao,
+                             CustomerService customerService,
+                             CustomerStatistics customerStatistics,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${customer-jobs.dir:data/customer-jobs}") Path jobDir,
+                             @Value("${customer-jobs.workers:2}") int workers,
+                             @Value("${customer-jobs.max-connections:2}") int maxConnections,
+                             @Value("${customer-jobs.chunk-size:1000}") int chunkSize,
+                             @Value("${customer-jobs.rows-per-second:0}") long rowsPerSecond,
+                             @Value("${customer-jobs.poll-interval:5s}") Duration pollInterval,
+                             @Value("${customer-jobs.stale-after:1m}") Duration staleAfter) {
+        this.customerJobDao = customerJobDao;
+        this.customerDao = customerDao;
+        this.customerService = customerService;
+        this.customerStatistics = customerStatistics;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobDir = jobDir;
+        this.chunkSize = chunkSize;
+        this.rowsPerSecond = rowsPerSecond;
+        this.pollInterval = pollInterval;
+        this.staleAfter = staleAfter;
+        this.workers = new Semaphore(workers);
+        this.connections = new Semaphore(maxConnections);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "customer-job-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        Files.createDirectories(jobDir);
+        poller.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // hands this instance's jobs back to the queue once their current chunk has committed
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        poller.shutdownNow();
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        customerJobDao.requeue(owner);
+    }
+
+    // checks for work now rather than at the next poll
+    public void wakeUp() {
+        poller.execute(this::poll);
+    }
+
+    public Path outputFile(CustomerJob job) {
+        CustomerJobParameters parameters = parameters(job);
+        return jobDir.resolve("job-%d.%s".formatted(job.id(), parameters.format().getExtension()));
+    }
+
+    void poll() {
+        try {
+            while (workers.tryAcquire()) {
+                Optional<CustomerJob> job;
+                try {
+                    job = customerJobDao.claimNext(owner, staleAfter);
+                } catch (RuntimeException e) {
+                    workers.release();
+                    throw e;
+                }
+                if (job.isEmpty()) {
+                    workers.release();
+                    return;
+                }
+                executor.execute(() -> {
+                    try {
+                        run(job.get());
+                    } finally {
+                        workers.release();
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            // the next poll tries again
+            LOGGER.warn("Claiming customer jobs failed", e);
+        }
+    }
+
+    void run(CustomerJob job) {
+        LOGGER.info("Running {} job {} from {}", job.type(), job.id(), job.lastKey());
+        long started = System.nanoTime();
+        long rows = 0;
+        long lastKey = job.lastKey();
+        long outputSize = job.outputSize();
+        try {
+            while (true) {
+                Chunk chunk = processChunk(job, lastKey, outputSize);
+                if (chunk == null) {
+                    LOGGER.info("Job {} was cancelled or taken over", job.id());
+                    return;
+                }
+                rows += chunk.rows();
+                lastKey = chunk.lastKey();
+                outputSize = chunk.outputSize();
+                if (chunk.last()) {
+                    break;
+                }
+                pace(started, rows);
+            }
+            customerJobDao.finish(job.id(), owner, CustomerJobStatus.COMPLETED, null);
+            LOGGER.info("Completed {} job {} in {} ms", job.type(), job.id(), (System.nanoTime() - started) / 1_000_000);
+        } catch (InterruptedException e) {
+            // shutting down; stop() requeues the job
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Job {} failed", job.id(), e);
+            customerJobDao.finish(job.id(), owner, CustomerJobStatus.FAILED, e.getMessage());
+        } finally {
+            if (job.type() == CustomerJobType.UPDATE) {
+                // bulk updates bypass the service, so recount rather than wait for the next reconcile
+                customerStatistics.reconcileAsync();
+            }
+        }
+    }
+
+    // null when the job is no longer ours to run
+    private Chunk processChunk(CustomerJob job, long lastKey, long outputSize) throws InterruptedException {
+        connections.acquire();
+        try {
+            return transactionTemplate.execute(status -> {
+                if (!customerJobDao.lockRunning(job.id(), owner)) {
+                    return null;
+                }
+                Chunk chunk = switch (job.type()) {
+                    case IMPORT -> importChunk(job, lastKey);
+                    case EXPORT -> exportChunk(job, lastKey, outputSize);
+                    case UPDATE -> updateChunk(job, lastKey);
+                };
+                customerJobDao.recordProgress(job.id(), chunk.lastKey(), chunk.rows(), chunk.failed(), chunk.outputSize());
+                return chunk;
+            });
+        } finally {
+            connections.release();
+        }
+    }
+
+    private Chunk importChunk(CustomerJob job, long lastKey) {
+        List<CustomerJobDao.Item> items = customerJobDao.readItems(job.id(), lastKey, chunkSize);
+        if (items.isEmpty()) {
+            return new Chunk(0, 0, lastKey, 0, true);
+        }
+        // joins the chunk's transaction, so its inserts commit together with the new position
+        List<CustomerBatchResult> results = customerService.addCustomers(
+                items.stream().map(CustomerJobDao.Item::request).toList());
+        long failed = results.stream()
+                .filter(result -> result.status() != CustomerBatchResult.Status.CREATED)
+                .count();
+        return new Chunk(items.size(), failed, items.get(items.size() - 1).seq(), 0, items.size() < chunkSize);
+    }
+
+    private Chunk exportChunk(CustomerJob job, long lastKey, long outputSize) {
+        CustomerJobParameters parameters = parameters(job);
+        if (outputSize > 0 && localOutputSize(job) < outputSize) {
+            // the earlier chunks were written on another node, or the file is gone
+            LOGGER.info("Output of job {} is missing here, exporting again from the start", job.id());
+            customerJobDao.resetProgress(job.id());
+            lastKey = 0;
+            outputSize = 0;
+        }
+        List<Customer> customers = customerDao.selectCustomerPage(parameters.filter(), CustomerField.ALL, CustomerSort.ID,
+                lastKey == 0 ? null : new CustomerCursor(CustomerSort.ID, null, lastKey), chunkSize);
+        StringWriter out = new StringWriter();
+        CustomerExportWriter writer = new CustomerExportWriter(out, parameters.format(), objectMapper);
+        if (outputSize == 0) {
+            writer.writeHeader();
+        }
+        customers.forEach(writer);
+        byte[] bytes = out.toString().getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(outputFile(job), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // drops whatever an earlier attempt at this chunk wrote before its transaction failed
+            channel.truncate(outputSize);
+            channel.write(ByteBuffer.wrap(bytes), outputSize);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long key = customers.isEmpty() ? lastKey : customers.get(customers.size() - 1).getId();
+        return new Chunk(customers.size(), 0, key, outputSize + bytes.length, customers.size() < chunkSize);
+    }
+
+    private long localOutputSize(CustomerJob job) {
+        try {
+            return Files.size(outputFile(job));
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Chunk updateChunk(CustomerJob job, long lastKey) {
+        CustomerJobParameters parameters = parameters(job);
+        List<Long> ids = customerJobDao.updateCustomers(parameters.filter(), parameters.changes(), lastKey, chunkSize);
+        long key = ids.isEmpty() ? lastKey : ids.get(ids.size() - 1);
+        return new Chunk(ids.size(), 0, key, 0, ids.size() < chunkSize);
+    }
+
+    // sleeps until the rows done so far fit the configured rate
+    private void pace(long started, long rows) throws InterruptedException {
+        if (rowsPerSecond <= 0) {
+            return;
+        }
+        long wait = started + rows * 1_000_000_000L / rowsPerSecond - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    CustomerJobParameters parameters(CustomerJob job) {
+        try {
+            return objectMapper.readValue(job.parameters(), CustomerJobParameters.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Job %d has unreadable parameters".formatted(job.id()), e);
+        }
+    }
+
+    private record Chunk(int rows, long failed, long lastKey, long outputSize, boolean last) {
+    }
+}
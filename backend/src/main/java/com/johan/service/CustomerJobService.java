@@ -0,0 +1,134 @@
+package com.johan.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johan.exception.RequestValidationException;
+import com.johan.exception.ResourceNotFound;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerJob;
+import com.johan.model.CustomerJobParameters;
+import com.johan.model.CustomerJobStatus;
+import com.johan.model.CustomerJobType;
+import com.johan.model.CustomerRegistrationRequest;
+import com.johan.model.ExportFormat;
+import com.johan.repository.CustomerDao;
+import com.johan.repository.CustomerJobDao;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+// Submits and tracks CustomerJobs; the work itself happens in CustomerJobRunner
+@Service
+public class CustomerJobService {
+
+    static final int MAX_IMPORT_SIZE = 1_000_000;
+
+    private final CustomerJobDao customerJobDao;
+    private final CustomerDao customerDao;
+    private final CustomerJobRunner customerJobRunner;
+    private final ObjectMapper objectMapper;
+
+    public CustomerJobService(CustomerJobDao customerJobDao,
+                              @Qualifier("jdbc") CustomerDao customerDao,
+                              CustomerJobRunner customerJobRunner,
+                              ObjectMapper objectMapper) {
+        this.customerJobDao = customerJobDao;
+        this.customerDao = customerDao;
+        this.customerJobRunner = customerJobRunner;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional
+    public CustomerJob submitImport(List<CustomerRegistrationRequest> requests) {
+        if (requests.isEmpty() || requests.size() > MAX_IMPORT_SIZE) {
+            throw new RequestValidationException("Import size must be between 1 and %s".formatted(MAX_IMPORT_SIZE));
+        }
+        CustomerJob job = customerJobDao.insertJob(CustomerJobType.IMPORT, null, requests.size());
+        customerJobDao.insertItems(job.id(), requests);
+        wakeUpRunner();
+        return job;
+    }
+
+    public CustomerJob submitExport(CustomerFilter filter, ExportFormat format) {
+        CustomerService.validate(filter);
+        // only a progress estimate; rows written meanwhile are exported if they sort after the position
+        long total = customerDao.collectionVersion(filter).customers();
+        return submit(CustomerJobType.EXPORT,
+                new CustomerJobParameters(filter.gender(), filter.minAge(), filter.maxAge(), format, null), total);
+    }
+
+    public CustomerJob submitUpdate(CustomerFilter filter, CustomerRegistrationRequest changes) {
+        CustomerService.validate(filter);
+        if (changes.email() != null) {
+            throw new RequestValidationException("Email cannot be changed in bulk");
+        }
+        if (changes.name() == null && changes.age() == null && changes.gender() == null) {
+            throw new RequestValidationException("No data changes found");
+        }
+        long total = customerDao.collectionVersion(filter).customers();
+        return submit(CustomerJobType.UPDATE,
+                new CustomerJobParameters(filter.gender(), filter.minAge(), filter.maxAge(), null, changes), total);
+    }
+
+    public CustomerJob getJob(long jobId) {
+        return customerJobDao.findJob(jobId)
+                .orElseThrow(() -> new ResourceNotFound("Job with id [%s] not found".formatted(jobId)));
+    }
+
+    // a running job stops after its current chunk; what earlier chunks did stays done
+    public CustomerJob cancelJob(long jobId) {
+        if (!customerJobDao.cancel(jobId)) {
+            CustomerJob job = getJob(jobId);
+            throw new RequestValidationException("Job with id [%s] is already %s".formatted(jobId, job.status()));
+        }
+        return getJob(jobId);
+    }
+
+    public Path getOutput(CustomerJob job) {
+        if (job.type() != CustomerJobType.EXPORT || job.status() != CustomerJobStatus.COMPLETED) {
+            throw new RequestValidationException("Job with id [%s] has no output".formatted(job.id()));
+        }
+        Path output = customerJobRunner.outputFile(job);
+        // only the node that ran the export has the file, unless the job directory is shared
+        if (!Files.isRegularFile(output)) {
+            throw new ResourceNotFound("Output of job with id [%s] is not on this node".formatted(job.id()));
+        }
+        return output;
+    }
+
+    public ExportFormat getOutputFormat(CustomerJob job) {
+        return customerJobRunner.parameters(job).format();
+    }
+
+    private CustomerJob submit(CustomerJobType type, CustomerJobParameters parameters, long total) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(parameters);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        CustomerJob job = customerJobDao.insertJob(type, json, total);
+        wakeUpRunner();
+        return job;
+    }
+
+    // the runner only sees the job once it is committed
+    private void wakeUpRunner() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    customerJobRunner.wakeUp();
+                }
+            });
+        } else {
+            customerJobRunner.wakeUp();
+        }
+    }
+}
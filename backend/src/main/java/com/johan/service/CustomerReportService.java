@@ -0,0 +1,38 @@
+package com.johan.service;
+
+import com.johan.exception.RequestValidationException;
+import com.johan.model.CustomerAgeReport;
+import com.johan.repository.CustomerColumnStore;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Service
+public class CustomerReportService {
+
+    private final CustomerColumnStore customerColumnStore;
+
+    public CustomerReportService(CustomerColumnStore customerColumnStore) {
+        this.customerColumnStore = customerColumnStore;
+    }
+
+    public CustomerAgeReport getAgeReport(int minAge, int maxAge) {
+        if (minAge < 0 || maxAge < minAge) {
+            throw new RequestValidationException("Age range [%d, %d] is invalid".formatted(minAge, maxAge));
+        }
+        return customerColumnStore.ageReport(minAge, maxAge);
+    }
+
+    // ages nobody has are left out
+    public Map<Integer, Long> getAgeHistogram() {
+        long[] histogram = customerColumnStore.ageHistogram();
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        for (int age = 0; age < histogram.length; age++) {
+            if (histogram[age] != 0) {
+                counts.put(age, histogram[age]);
+            }
+        }
+        return counts;
+    }
+}
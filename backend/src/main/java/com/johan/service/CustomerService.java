@@ -3,54 +3,291 @@ package com.johan.service;
 import com.johan.model.Gender;
 import com.johan.repository.CustomerDao;
 import com.johan.exception.DuplicateResourceException;
+import com.johan.exception.PreconditionFailedException;
 import com.johan.exception.RequestValidationException;
 import com.johan.exception.ResourceNotFound;
 import com.johan.model.Customer;
+import com.johan.model.CustomerBatchResult;
+import com.johan.model.CustomerCollectionVersion;
+import com.johan.model.CustomerCursor;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerPage;
+import com.johan.model.CustomerPatchResult;
 import com.johan.model.CustomerRegistrationRequest;
+import com.johan.model.CustomerSearchMatch;
+import com.johan.model.CustomerSort;
+import com.johan.model.CustomerStats;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class CustomerService {
 
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_BATCH_SIZE = 10_000;
+    // shorter queries have no trigram to narrow the scan with
+    static final int MIN_SEARCH_LENGTH = 3;
+
     private final CustomerDao customerDao;
+    private final CustomerEmailFilter customerEmailFilter;
+    private final CustomerStatistics customerStatistics;
 
-public CustomerService(@Qualifier("jdbc") CustomerDao customerDao) {
+public CustomerService(@Qualifier("cached") CustomerDao customerDao,
+                       CustomerEmailFilter customerEmailFilter,
+                       CustomerStatistics customerStatistics) {
         this.customerDao = customerDao;
+        this.customerEmailFilter = customerEmailFilter;
+        this.customerStatistics = customerStatistics;
     }
 
     public List<Customer> getAllCustomers() {
         return customerDao.selectAllCustomer();
     }
 
+    public List<Customer> getCustomers(CustomerFilter filter) {
+        return getCustomers(filter, null);
+    }
+
+    public List<Customer> getCustomers(CustomerFilter filter, String fields) {
+        validate(filter);
+        Set<CustomerField> projection = parseFields(fields);
+        if (filter.isEmpty() && projection.containsAll(CustomerField.ALL)) {
+            return getAllCustomers();
+        }
+        return project(customerDao.selectCustomerPage(filter, projection, CustomerSort.ID, null, Integer.MAX_VALUE),
+                projection);
+    }
+
+    // checked before a streamed response starts, since errors cannot change the status once rows are written
+    public Set<CustomerField> checkCustomerQuery(CustomerFilter filter, String fields) {
+        validate(filter);
+        return parseFields(fields);
+    }
+
+    public CustomerCollectionVersion getCollectionVersion(CustomerFilter filter) {
+        validate(filter);
+        return customerDao.collectionVersion(filter);
+    }
+
+    // when present, validates every list without reading a row, at the price of changing on unrelated writes
+    public OptionalLong getCollectionRevision() {
+        return customerDao.collectionRevision();
+    }
+
+    @Transactional(readOnly = true)
+    public void streamCustomers(CustomerFilter filter, Set<CustomerField> fields, Consumer<Customer> consumer) {
+        try (Stream<Customer> customers = customerDao.streamCustomers(filter, fields)) {
+            customers.forEach(consumer);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportCustomers(Consumer<Customer> consumer) {
+        try (Stream<Customer> customers = customerDao.streamAllCustomers()) {
+            customers.forEach(consumer);
+        }
+    }
+
+    public CustomerPage getCustomerPage(String after, int limit, CustomerSort sort) {
+        return getCustomerPage(CustomerFilter.NONE, after, limit, sort);
+    }
+
+    public CustomerPage getCustomerPage(CustomerFilter filter, String after, int limit, CustomerSort sort) {
+        return getCustomerPage(filter, null, after, limit, sort);
+    }
+
+    public CustomerPage getCustomerPage(CustomerFilter filter, String fields, String after, int limit, CustomerSort sort) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RequestValidationException("Limit must be between 1 and %s".formatted(MAX_PAGE_SIZE));
+        }
+        validate(filter);
+        Set<CustomerField> projection = parseFields(fields);
+        CustomerCursor cursor = parseCursor(after, sort);
+        // one extra row tells us whether another page exists without a count query
+        List<Customer> customers = customerDao.selectCustomerPage(filter, projection, sort, cursor, limit + 1);
+        if (customers.size() <= limit) {
+            return new CustomerPage(project(customers, projection), null);
+        }
+        List<Customer> page = customers.subList(0, limit);
+        // the DAO reads the id and sort key even when they are not requested, so the cursor comes first
+        String next = CustomerCursor.of(sort, page.get(limit - 1)).encode();
+        return new CustomerPage(project(page, projection), next);
+    }
+
+    public List<Customer> searchCustomers(String query, CustomerSearchMatch match, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RequestValidationException("Limit must be between 1 and %s".formatted(MAX_PAGE_SIZE));
+        }
+        String trimmed = query == null ? "" : query.strip();
+        if (trimmed.length() < MIN_SEARCH_LENGTH) {
+            throw new RequestValidationException(
+                    "Search query must be at least %s characters".formatted(MIN_SEARCH_LENGTH));
+        }
+        return customerDao.searchCustomers(trimmed, match, limit);
+    }
+
+    static void validate(CustomerFilter filter) {
+        if ((filter.minAge() != null && filter.minAge() < 0)
+                || (filter.maxAge() != null && filter.maxAge() < 0)
+                || (filter.minAge() != null && filter.maxAge() != null && filter.minAge() > filter.maxAge())) {
+            throw new RequestValidationException("Age range [%s, %s] is invalid".formatted(filter.minAge(), filter.maxAge()));
+        }
+    }
+
+    static Set<CustomerField> parseFields(String fields) {
+        try {
+            return CustomerField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException("Invalid fields [%s]".formatted(fields));
+        }
+    }
+
+    private static List<Customer> project(List<Customer> customers, Set<CustomerField> fields) {
+        if (fields.containsAll(CustomerField.ALL)) {
+            return customers;
+        }
+        return customers.stream()
+                .map(customer -> CustomerField.project(customer, fields))
+                .toList();
+    }
+
+    private CustomerCursor parseCursor(String after, CustomerSort sort) {
+        if (after == null || after.isBlank()) {
+            return null;
+        }
+        CustomerCursor cursor;
+        try {
+            cursor = sort == CustomerSort.ID && after.chars().allMatch(Character::isDigit)
+                    ? new CustomerCursor(sort, null, Long.parseLong(after))
+                    : CustomerCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException("Invalid cursor [%s]".formatted(after));
+        }
+        if (cursor.sort() != sort) {
+            throw new RequestValidationException("Cursor was issued for sort [%s]".formatted(cursor.sort()));
+        }
+        return cursor;
+    }
+
+    public CustomerStats getCustomerStats() {
+        return customerStatistics.snapshot();
+    }
+
     public Customer getCustomer(int id) {
         return customerDao.getByCustomerId(id)
                 .orElseThrow(()-> new ResourceNotFound("Customer with id [%s] not found".formatted(id)));
     }
 
-    public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest){
-        // Check if email
-        if (customerDao.existsPersonWithEmail(customerRegistrationRequest.email())){
-            throw new DuplicateResourceException("Email already taken");
+    public Customer getCustomer(int id, String fields) {
+        Set<CustomerField> projection = parseFields(fields);
+        if (projection.containsAll(CustomerField.ALL)) {
+            return getCustomer(id);
         }
-        // add
+        return customerDao.getByCustomerId(id, projection)
+                .map(customer -> CustomerField.project(customer, projection))
+                .orElseThrow(()-> new ResourceNotFound("Customer with id [%s] not found".formatted(id)));
+    }
+
+    public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest){
         Customer customer = new Customer(
                 customerRegistrationRequest.name(),
                 customerRegistrationRequest.email(),
                 customerRegistrationRequest.age(),
                 customerRegistrationRequest.gender());
-        customerDao.insertCustomer(customer);
+        // the unique email constraint decides, so concurrent signups cannot both pass a separate check
+        Long id = customerDao.insertCustomerIfAbsent(customer)
+                .orElseThrow(() -> new DuplicateResourceException("Email already taken"));
+        customer.setId(id);
+        afterCommit(() -> {
+            customerEmailFilter.add(customer.getEmail());
+            customerStatistics.customerAdded(customer);
+        });
+    }
+
+    @Transactional
+    public List<CustomerBatchResult> addCustomers(List<CustomerRegistrationRequest> requests) {
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new RequestValidationException("Batch size must not exceed %s".formatted(MAX_BATCH_SIZE));
+        }
+        CustomerBatchResult[] results = new CustomerBatchResult[requests.size()];
+        Map<String, Integer> indexByEmail = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CustomerRegistrationRequest request = requests.get(i);
+            if (request == null || request.name() == null || request.email() == null
+                    || request.age() == null || request.gender() == null) {
+                results[i] = new CustomerBatchResult(i, request == null ? null : request.email(),
+                        CustomerBatchResult.Status.INVALID);
+            } else if (indexByEmail.putIfAbsent(request.email(), i) != null) {
+                results[i] = new CustomerBatchResult(i, request.email(), CustomerBatchResult.Status.DUPLICATE_IN_BATCH);
+            }
+        }
+
+        // only emails the filter cannot rule out need the database check
+        List<String> candidates = indexByEmail.keySet().stream()
+                .filter(customerEmailFilter::mightContain)
+                .toList();
+        Set<String> taken = candidates.isEmpty() ? Set.of() : customerDao.selectExistingEmails(candidates);
+        List<Integer> indexes = new ArrayList<>();
+        List<Customer> customers = new ArrayList<>();
+        indexByEmail.forEach((email, i) -> {
+            if (taken.contains(email)) {
+                results[i] = new CustomerBatchResult(i, email, CustomerBatchResult.Status.EMAIL_TAKEN);
+                return;
+            }
+            CustomerRegistrationRequest request = requests.get(i);
+            indexes.add(i);
+            customers.add(new Customer(request.name(), request.email(), request.age(), request.gender()));
+        });
+
+        int[] counts = customers.isEmpty() ? new int[0] : customerDao.insertCustomers(customers);
+        List<Customer> created = new ArrayList<>();
+        for (int j = 0; j < indexes.size(); j++) {
+            int i = indexes.get(j);
+            // a row inserted concurrently since the email check comes back as a 0 count
+            CustomerBatchResult.Status status = counts[j] == 0
+                    ? CustomerBatchResult.Status.EMAIL_TAKEN
+                    : CustomerBatchResult.Status.CREATED;
+            results[i] = new CustomerBatchResult(i, customers.get(j).getEmail(), status);
+            if (status == CustomerBatchResult.Status.CREATED) {
+                created.add(customers.get(j));
+            }
+        }
+        afterCommit(() -> created.forEach(customer -> {
+            customerEmailFilter.add(customer.getEmail());
+            customerStatistics.customerAdded(customer);
+        }));
+        return List.of(results);
     }
 
     public void deleteCustomer(int customerId){
-        getCustomer(customerId);
-        customerDao.deleteCustomer(customerId);
+        Customer deleted = customerDao.deleteCustomer(customerId)
+                .orElseThrow(() -> new ResourceNotFound("Customer with id [%s] not found".formatted(customerId)));
+        afterCommit(() -> customerStatistics.customerRemoved(deleted));
     }
 
     public void updateCustomer(int id, CustomerRegistrationRequest customerRegistrationRequest){
+        updateCustomer(id, customerRegistrationRequest, null);
+    }
+
+    // a null expectedVersion updates whatever version the row is at
+    public void updateCustomer(int id, CustomerRegistrationRequest customerRegistrationRequest, Long expectedVersion){
         Customer customer = getCustomer(id);
+        Customer before = new Customer(customer.getId(), customer.getName(), customer.getEmail(),
+                customer.getAge(), customer.getGender());
         boolean change = false;
 
         if(customerRegistrationRequest.name() != null && !customer.getName().equals(customerRegistrationRequest.name())){
@@ -64,7 +301,8 @@ public CustomerService(@Qualifier("jdbc") CustomerDao customerDao) {
         }
 
         if(customerRegistrationRequest.email() != null && !customer.getEmail().equals(customerRegistrationRequest.email())){
-            if (customerDao.existsPersonWithEmail(customerRegistrationRequest.email())){
+            if (customerEmailFilter.mightContain(customerRegistrationRequest.email())
+                    && customerDao.existsPersonWithEmail(customerRegistrationRequest.email())){
                 throw new DuplicateResourceException("Email already taken");
             }
             customer.setEmail(customerRegistrationRequest.email());
@@ -74,7 +312,57 @@ public CustomerService(@Qualifier("jdbc") CustomerDao customerDao) {
         if(!change){
             throw new RequestValidationException("No data changes found");
         }
-        customerDao.updateCustomer(customer);
+        try {
+            if (expectedVersion == null) {
+                customerDao.updateCustomer(customer);
+            } else if (!customerDao.updateCustomer(customer, expectedVersion)) {
+                throw new PreconditionFailedException(
+                        "Customer with id [%s] is not at version [%s]".formatted(id, expectedVersion));
+            }
+        } catch (DuplicateKeyException e) {
+            // the email filter may miss rows written by other nodes; the constraint has the final say
+            throw new DuplicateResourceException("Email already taken");
+        }
+        afterCommit(() -> {
+            customerEmailFilter.add(customer.getEmail());
+            customerStatistics.customerChanged(before, customer);
+        });
+    }
+
+    public Customer patchCustomer(int id, CustomerRegistrationRequest customerRegistrationRequest){
+        Customer changes = new Customer(
+                customerRegistrationRequest.name(),
+                customerRegistrationRequest.email(),
+                customerRegistrationRequest.age(),
+                customerRegistrationRequest.gender());
+        CustomerPatchResult result = customerDao.patchCustomer(id, changes);
+        return switch (result.status()) {
+            case UPDATED -> {
+                afterCommit(() -> {
+                    customerEmailFilter.add(result.customer().getEmail());
+                    customerStatistics.customerChanged(result.previous(), result.customer());
+                });
+                yield result.customer();
+            }
+            case UNCHANGED -> throw new RequestValidationException("No data changes found");
+            case NOT_FOUND -> throw new ResourceNotFound("Customer with id [%s] not found".formatted(id));
+            case EMAIL_TAKEN -> throw new DuplicateResourceException("Email already taken");
+        };
+    }
+
+    // statistics and the email filter describe committed rows, so a write inside a caller's transaction (a job
+    // chunk, say) only counts once that commits; a rollback leaves them as they were
+    private static void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
     }
 
 }
@@ -0,0 +1,176 @@
+package com.johan.service;
+
+import com.johan.model.Customer;
+import com.johan.model.CustomerStats;
+import com.johan.model.Gender;
+import com.johan.repository.CustomerStatisticsDao;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Customer counts per gender and year of age, held in {@link LongAdder}s that {@link CustomerService}
+ * adjusts on every write, so reading them costs the same at any table size. Writes made elsewhere (other
+ * nodes, CSV ingest) and updates racing a reconcile are only picked up when the counters are periodically
+ * replaced by a SQL aggregate.
+ */
+@Component
+public class CustomerStatistics implements MeterBinder {
+
+    // the last bucket holds everyone this age or older
+    static final int MAX_AGE = 150;
+    private static final int[] PERCENTILES = {50, 90, 99};
+
+    private final CustomerStatisticsDao customerStatisticsDao;
+    private final Duration reconcileInterval;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "customer-statistics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Counts counts = new Counts();
+    private volatile Instant reconciledAt;
+    private volatile long drift;
+
+    public CustomerStatistics(CustomerStatisticsDao customerStatisticsDao,
+                              @Value("${customer-stats.reconcile-interval:5m}") Duration reconcileInterval) {
+        this.customerStatisticsDao = customerStatisticsDao;
+        this.reconcileInterval = reconcileInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(this::reconcile, 0, reconcileInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public void customerAdded(Customer customer) {
+        counts.add(customer, 1);
+    }
+
+    public void customerRemoved(Customer customer) {
+        counts.add(customer, -1);
+    }
+
+    public void customerChanged(Customer before, Customer after) {
+        Counts current = counts;
+        current.add(before, -1);
+        current.add(after, 1);
+    }
+
+    public void reconcileAsync() {
+        executor.execute(this::reconcile);
+    }
+
+    // deltas applied to the old counters while the aggregate runs are dropped; the query already saw the
+    // ones that committed before it started
+    public synchronized void reconcile() {
+        Counts next = new Counts();
+        for (CustomerStatisticsDao.AgeGenderCount row : customerStatisticsDao.countByAgeAndGender()) {
+            next.cell(row.gender(), row.age()).add(row.customers());
+        }
+        Counts previous = counts;
+        counts = next;
+        reconciledAt = Instant.now();
+        long difference = 0;
+        for (int i = 0; i < next.cells.length; i++) {
+            difference += Math.abs(previous.cells[i].sum() - next.cells[i].sum());
+        }
+        drift = difference;
+    }
+
+    public CustomerStats snapshot() {
+        Counts current = counts;
+        long[] byAge = new long[MAX_AGE + 1];
+        Map<Gender, Long> byGender = new EnumMap<>(Gender.class);
+        long total = 0;
+        for (Gender gender : Gender.values()) {
+            long customers = 0;
+            for (int age = 0; age <= MAX_AGE; age++) {
+                // a delta racing a reconcile can leave a bucket briefly negative
+                long count = Math.max(0, current.cell(gender, age).sum());
+                byAge[age] += count;
+                customers += count;
+            }
+            byGender.put(gender, customers);
+            total += customers;
+        }
+        Map<Integer, Long> histogram = new LinkedHashMap<>();
+        for (int age = 0; age <= MAX_AGE; age++) {
+            if (byAge[age] != 0) {
+                histogram.put(age, byAge[age]);
+            }
+        }
+        return new CustomerStats(total, byGender, histogram, percentiles(byAge, total), reconciledAt);
+    }
+
+    // nearest-rank percentiles over the one-year buckets
+    private static Map<String, Integer> percentiles(long[] byAge, long total) {
+        Map<String, Integer> percentiles = new LinkedHashMap<>();
+        if (total == 0) {
+            return percentiles;
+        }
+        long seen = 0;
+        int age = 0;
+        for (int percentile : PERCENTILES) {
+            long rank = Math.max(1, (total * percentile + 99) / 100);
+            while (seen + byAge[age] < rank) {
+                seen += byAge[age];
+                age++;
+            }
+            percentiles.put("p" + percentile, age);
+        }
+        return percentiles;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("customer.stats.customers", this, s -> s.snapshot().customers())
+                .description("Customers counted by the incrementally maintained statistics")
+                .register(registry);
+        Gauge.builder("customer.stats.drift", this, s -> s.drift)
+                .description("Bucket counts corrected by the last reconcile against the table")
+                .register(registry);
+    }
+
+    private static final class Counts {
+
+        private final LongAdder[] cells = new LongAdder[Gender.values().length * (MAX_AGE + 1)];
+
+        private Counts() {
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = new LongAdder();
+            }
+        }
+
+        private void add(Customer customer, long delta) {
+            if (customer != null && customer.getGender() != null && customer.getAge() != null) {
+                cell(customer.getGender(), customer.getAge()).add(delta);
+            }
+        }
+
+        private LongAdder cell(Gender gender, int age) {
+            return cells[gender.ordinal() * (MAX_AGE + 1) + Math.min(MAX_AGE, Math.max(0, age))];
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.johan.service;
+
+import com.johan.exception.DuplicateResourceException;
+import com.johan.exception.PreconditionFailedException;
+import com.johan.exception.RequestValidationException;
+import com.johan.exception.ResourceNotFound;
+import com.johan.model.Customer;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerRegistrationRequest;
+import com.johan.repository.ReactiveCustomerDao;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+// The reactive stack's CustomerService. Validation and bookkeeping are shared with it; failures are signalled
+// through the returned publisher rather than thrown.
+@Service
+@Profile("reactive")
+public class ReactiveCustomerService {
+
+    private final ReactiveCustomerDao customerDao;
+    private final CustomerEmailFilter customerEmailFilter;
+    private final CustomerStatistics customerStatistics;
+
+    public ReactiveCustomerService(ReactiveCustomerDao customerDao,
+                                   CustomerEmailFilter customerEmailFilter,
+                                   CustomerStatistics customerStatistics) {
+        this.customerDao = customerDao;
+        this.customerEmailFilter = customerEmailFilter;
+        this.customerStatistics = customerStatistics;
+    }
+
+    // invalid queries fail before the first row, while the response status can still say so
+    public Flux<Customer> getCustomers(CustomerFilter filter, String fields) {
+        return Flux.defer(() -> {
+            CustomerService.validate(filter);
+            Set<CustomerField> projection = CustomerService.parseFields(fields);
+            Flux<Customer> customers = customerDao.streamCustomers(filter, projection);
+            return projection.containsAll(CustomerField.ALL)
+                    ? customers
+                    : customers.map(customer -> CustomerField.project(customer, projection));
+        });
+    }
+
+    public Mono<Customer> getCustomer(int id, String fields) {
+        return Mono.defer(() -> {
+            Set<CustomerField> projection = CustomerService.parseFields(fields);
+            return customerDao.getByCustomerId(id, projection)
+                    .map(customer -> projection.containsAll(CustomerField.ALL)
+                            ? customer
+                            : CustomerField.project(customer, projection))
+                    .switchIfEmpty(Mono.error(() -> notFound(id)));
+        });
+    }
+
+    public Mono<Void> addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
+        Customer customer = new Customer(
+                customerRegistrationRequest.name(),
+                customerRegistrationRequest.email(),
+                customerRegistrationRequest.age(),
+                customerRegistrationRequest.gender());
+        return customerDao.insertCustomerIfAbsent(customer)
+                .switchIfEmpty(Mono.error(() -> new DuplicateResourceException("Email already taken")))
+                .doOnNext(id -> {
+                    customer.setId(id);
+                    customerEmailFilter.add(customer.getEmail());
+                    customerStatistics.customerAdded(customer);
+                })
+                .then();
+    }
+
+    public Mono<Void> deleteCustomer(int customerId) {
+        return customerDao.deleteCustomer(customerId)
+                .switchIfEmpty(Mono.error(() -> notFound(customerId)))
+                .doOnNext(customerStatistics::customerRemoved)
+                .then();
+    }
+
+    // a null expectedVersion updates whatever version the row is at
+    public Mono<Void> updateCustomer(int id, CustomerRegistrationRequest customerRegistrationRequest, Long expectedVersion) {
+        return customerDao.getByCustomerId(id, CustomerField.ALL)
+                .switchIfEmpty(Mono.error(() -> notFound(id)))
+                .flatMap(customer -> {
+                    Customer before = new Customer(customer.getId(), customer.getName(), customer.getEmail(),
+                            customer.getAge(), customer.getGender());
+                    boolean change = false;
+                    if (customerRegistrationRequest.name() != null && !customer.getName().equals(customerRegistrationRequest.name())) {
+                        customer.setName(customerRegistrationRequest.name());
+                        change = true;
+                    }
+                    if (customerRegistrationRequest.age() != null && !customer.getAge().equals(customerRegistrationRequest.age())) {
+                        customer.setAge(customerRegistrationRequest.age());
+                        change = true;
+                    }
+                    Mono<Boolean> emailTaken = Mono.just(false);
+                    String email = customerRegistrationRequest.email();
+                    if (email != null && !customer.getEmail().equals(email)) {
+                        if (customerEmailFilter.mightContain(email)) {
+                            emailTaken = customerDao.existsPersonWithEmail(email);
+                        }
+                        customer.setEmail(email);
+                        change = true;
+                    }
+                    if (!change) {
+                        return Mono.<Long>error(new RequestValidationException("No data changes found"));
+                    }
+                    return emailTaken
+                            .flatMap(taken -> taken
+                                    ? Mono.<Long>error(new DuplicateResourceException("Email already taken"))
+                                    : customerDao.updateCustomer(customer, expectedVersion))
+                            .switchIfEmpty(Mono.error(() -> expectedVersion == null
+                                    ? notFound(id)
+                                    : new PreconditionFailedException(
+                                            "Customer with id [%s] is not at version [%s]".formatted(id, expectedVersion))))
+                            // the email filter may miss rows written by other nodes; the constraint has the final say
+                            .onErrorMap(DuplicateKeyException.class,
+                                    e -> new DuplicateResourceException("Email already taken"))
+                            .doOnNext(version -> {
+                                customerEmailFilter.add(customer.getEmail());
+                                customerStatistics.customerChanged(before, customer);
+                            });
+                })
+                .then();
+    }
+
+    private static ResourceNotFound notFound(int id) {
+        return new ResourceNotFound("Customer with id [%s] not found".formatted(id));
+    }
+}
@@ -0,0 +1,164 @@
+package com.johan.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter that grows by appending larger stages with tighter error rates once a stage reaches
+ * its capacity, so the overall false-positive rate stays bounded however many keys are added.
+ * Bits are set with CAS, so {@link #add} and {@link #mightContain} are safe to call concurrently.
+ */
+public class ScalableBloomFilter {
+
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+    private final double falsePositiveRate;
+
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+        stages.add(new Stage(initialCapacity, falsePositiveRate * (1 - TIGHTENING)));
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void add(String key) {
+        long hash = hash(key);
+        // already present (or a false positive) keys would only use up capacity
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash)) {
+                return;
+            }
+        }
+        Stage stage = stages.get(stages.size() - 1);
+        if (stage.count.get() >= stage.capacity) {
+            stage = grow(stage);
+        }
+        stage.add(hash);
+    }
+
+    private synchronized Stage grow(Stage full) {
+        Stage last = stages.get(stages.size() - 1);
+        if (last != full) {
+            return last;
+        }
+        Stage next = new Stage(full.capacity * GROWTH, full.falsePositiveRate * TIGHTENING);
+        stages.add(next);
+        return next;
+    }
+
+    // estimated from the current fill ratio of each stage rather than the configured target
+    public double expectedFalsePositiveRate() {
+        double none = 1;
+        for (Stage stage : stages) {
+            none *= 1 - stage.expectedFalsePositiveRate();
+        }
+        return 1 - none;
+    }
+
+    public double targetFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    public long approximateElementCount() {
+        return stages.stream().mapToLong(stage -> stage.count.get()).sum();
+    }
+
+    public long sizeInBytes() {
+        return stages.stream().mapToLong(stage -> (long) stage.bits.length() * Long.BYTES).sum();
+    }
+
+    public int stageCount() {
+        return stages.size();
+    }
+
+    // FNV-1a over the UTF-8 bytes followed by a splitmix64 finalizer
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Stage {
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final long bitCount;
+        private final int hashes;
+        private final AtomicLongArray bits;
+        private final AtomicLong count = new AtomicLong();
+
+        private Stage(long capacity, double falsePositiveRate) {
+            this.capacity = Math.max(capacity, 64);
+            this.falsePositiveRate = falsePositiveRate;
+            long optimalBits = (long) Math.ceil(-this.capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64);
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = (long) words * 64;
+            this.hashes = Math.max(1, (int) Math.round((double) bitCount / this.capacity * Math.log(2)));
+        }
+
+        private boolean mightContain(long hash) {
+            long h2 = Long.rotateLeft(hash, 32) | 1;
+            for (int i = 1; i <= hashes; i++) {
+                long bit = index(hash + i * h2);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void add(long hash) {
+            long h2 = Long.rotateLeft(hash, 32) | 1;
+            boolean changed = false;
+            for (int i = 1; i <= hashes; i++) {
+                long bit = index(hash + i * h2);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                while (((current = bits.get(word)) & mask) == 0) {
+                    if (bits.compareAndSet(word, current, current | mask)) {
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+            if (changed) {
+                count.incrementAndGet();
+            }
+        }
+
+        private long index(long combined) {
+            return (combined & Long.MAX_VALUE) % bitCount;
+        }
+
+        private double expectedFalsePositiveRate() {
+            long set = 0;
+            for (int i = 0; i < bits.length(); i++) {
+                set += Long.bitCount(bits.get(i));
+            }
+            return Math.pow((double) set / bitCount, hashes);
+        }
+    }
+}
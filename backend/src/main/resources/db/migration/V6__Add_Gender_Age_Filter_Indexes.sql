@@ -0,0 +1,3 @@
+-- equality on gender, then the age range, with id last so filtered pages come out in keyset order
+CREATE INDEX customer_gender_age_id_idx ON customer (gender, age, id);
+CREATE INDEX customer_gender_id_idx ON customer (gender, id);
@@ -0,0 +1,2 @@
+-- bumped by every update; the API exposes it as the ETag and checks it against If-Match
+ALTER TABLE customer ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,30 @@
+-- background bulk jobs; a job is claimed by one runner at a time and resumes from last_key after a restart
+CREATE TABLE customer_job(
+    id BIGSERIAL PRIMARY KEY,
+    type TEXT NOT NULL,
+    status TEXT NOT NULL,
+    parameters TEXT,
+    total BIGINT NOT NULL DEFAULT 0,
+    processed BIGINT NOT NULL DEFAULT 0,
+    failed BIGINT NOT NULL DEFAULT 0,
+    -- last item seq or customer id handled, committed together with the chunk that got there
+    last_key BIGINT NOT NULL DEFAULT 0,
+    output_size BIGINT NOT NULL DEFAULT 0,
+    owner TEXT,
+    error TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX customer_job_status_idx ON customer_job (status, id);
+
+-- rows submitted to an import job, processed in seq order
+CREATE TABLE customer_job_item(
+    job_id BIGINT NOT NULL REFERENCES customer_job (id) ON DELETE CASCADE,
+    seq INT NOT NULL,
+    name TEXT,
+    email TEXT,
+    age INT,
+    gender TEXT,
+    PRIMARY KEY (job_id, seq)
+);
@@ -1,6 +1,9 @@
 package com.johan;
 
 import com.github.javafaker.Faker;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
 import org.flywaydb.core.Flyway;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -50,7 +53,33 @@ public abstract class AbstractTestContainers {
                 "spring.datasource.password",
                 postgreSQLContainer::getPassword
         );
+        registry.add(
+                "spring.r2dbc.url",
+                AbstractTestContainers::getR2dbcUrl
+        );
+        registry.add(
+                "spring.r2dbc.username",
+                postgreSQLContainer::getUsername
+        );
+        registry.add(
+                "spring.r2dbc.password",
+                postgreSQLContainer::getPassword
+        );
+
+    }
+
+    protected static String getR2dbcUrl(){
+        return "r2dbc:postgresql://%s:%d/%s".formatted(
+                postgreSQLContainer.getHost(),
+                postgreSQLContainer.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT),
+                postgreSQLContainer.getDatabaseName());
+    }
 
+    protected static ConnectionFactory getConnectionFactory(){
+        return ConnectionFactories.get(ConnectionFactoryOptions.parse(getR2dbcUrl()).mutate()
+                .option(ConnectionFactoryOptions.USER, postgreSQLContainer.getUsername())
+                .option(ConnectionFactoryOptions.PASSWORD, postgreSQLContainer.getPassword())
+                .build());
     }
 
     private static DataSource getDataSource(){
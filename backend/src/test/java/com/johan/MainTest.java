@@ -0,0 +1,28 @@
+package com.johan;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "customer-jobs.dir=target/customer-jobs")
+class MainTest extends AbstractTestContainers {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Test
+    void defaultProfileStartsOnJdbcWithoutR2dbc() {
+        assertThat(applicationContext.getBeansOfType(DataSource.class)).hasSize(1);
+        assertThat(applicationContext.getBean(JdbcTemplate.class).queryForObject("SELECT 1", Integer.class))
+                .isEqualTo(1);
+        assertThat(applicationContext.getBeansOfType(ConnectionFactory.class)).isEmpty();
+        assertThat(applicationContext.containsBean("r2dbc")).isFalse();
+    }
+}
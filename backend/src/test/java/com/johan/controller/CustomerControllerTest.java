@@ -0,0 +1,84 @@
+package com.johan.controller;
+
+import com.johan.model.Customer;
+import com.johan.model.CustomerRegistrationRequest;
+import com.johan.model.CustomerResponse;
+import com.johan.model.Gender;
+import com.johan.repository.CachingCustomerDao;
+import com.johan.repository.CustomerCache;
+import com.johan.repository.CustomerDao;
+import com.johan.service.CustomerEmailFilter;
+import com.johan.service.CustomerService;
+import com.johan.service.CustomerStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerControllerTest {
+
+    @Mock
+    private CustomerDao delegate;
+    @Mock
+    private CustomerEmailFilter customerEmailFilter;
+    @Mock
+    private CustomerStatistics customerStatistics;
+    private CustomerService customerService;
+    private CustomerController underTest;
+
+    @BeforeEach
+    void setUp() {
+        CustomerCache cache = new CustomerCache(32, Duration.ofSeconds(30), Duration.ofSeconds(5));
+        customerService = new CustomerService(new CachingCustomerDao(delegate, cache), customerEmailFilter,
+                customerStatistics);
+        underTest = new CustomerController(customerService, null, null);
+    }
+
+    @Test
+    void cachedCustomerIsNotModifiedUntilItChanges() throws Exception {
+        // GIVEN
+        Customer customer = new Customer(1L, "johan", "johan@gmail.com", 20, Gender.MALE);
+        customer.setVersion(1L);
+        Customer updated = new Customer(1L, "budi", "johan@gmail.com", 20, Gender.MALE);
+        updated.setVersion(2L);
+        Mockito.when(delegate.getByCustomerId(1))
+                .thenReturn(Optional.of(customer))
+                .thenReturn(Optional.of(updated));
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        underTest.getCustomers(1, null, new ServletWebRequest(new MockHttpServletRequest("GET", "/"), first), first);
+        String etag = first.getHeader(HttpHeaders.ETAG);
+
+        // When
+        MockHttpServletResponse cached = new MockHttpServletResponse();
+        CustomerResponse cachedBody = underTest.getCustomers(1, null, conditional(etag, cached), cached);
+        customerService.updateCustomer(1, new CustomerRegistrationRequest("budi", null, null, null));
+        MockHttpServletResponse changed = new MockHttpServletResponse();
+        CustomerResponse changedBody = underTest.getCustomers(1, null, conditional(etag, changed), changed);
+
+        // Then
+        assertThat(cachedBody).isNull();
+        assertThat(cached.getStatus()).isEqualTo(304);
+        assertThat(cached.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT);
+        assertThat(changedBody).isNotNull();
+        assertThat(changed.getStatus()).isEqualTo(200);
+        assertThat(changed.getHeader(HttpHeaders.ETAG)).isNotEqualTo(etag);
+    }
+
+    private static ServletWebRequest conditional(String etag, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        return new ServletWebRequest(request, response);
+    }
+}
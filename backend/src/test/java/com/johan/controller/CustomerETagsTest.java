@@ -0,0 +1,51 @@
+package com.johan.controller;
+
+import com.johan.model.CustomerCollectionVersion;
+import com.johan.model.CustomerField;
+import com.johan.model.WireFormat;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerETagsTest {
+
+    @Test
+    void projectionIsPartOfTheTag() {
+        // GIVEN
+        CustomerCollectionVersion version = new CustomerCollectionVersion(2, 42);
+
+        // When
+        String all = CustomerETags.of(version, CustomerField.ALL, WireFormat.JSON);
+        String projected = CustomerETags.of(version, EnumSet.of(CustomerField.NAME, CustomerField.ID), WireFormat.JSON);
+
+        // Then
+        assertThat(all).isEqualTo("\"2-2a\"");
+        assertThat(projected).isEqualTo("\"2-2a;id,name\"");
+        assertThat(CustomerETags.of(3L, EnumSet.of(CustomerField.EMAIL), WireFormat.CBOR))
+                .isEqualTo("\"3;email+%s\"".formatted(WireFormat.CBOR.getTag()));
+    }
+
+    @Test
+    void revisionTagNeverMatchesChecksumTag() {
+        // When
+        String revision = CustomerETags.ofRevision(42, CustomerField.ALL, WireFormat.JSON);
+
+        // Then
+        assertThat(revision).isEqualTo("\"r2a\"");
+        assertThat(revision).isNotEqualTo(CustomerETags.of(new CustomerCollectionVersion(0, 42), CustomerField.ALL,
+                WireFormat.JSON));
+    }
+
+    @Test
+    void expectedVersionIgnoresProjectionAndFormat() {
+        // When
+        Long plain = CustomerETags.expectedVersion("\"7\"");
+        Long projected = CustomerETags.expectedVersion(CustomerETags.of(7L, EnumSet.of(CustomerField.NAME), WireFormat.SMILE));
+
+        // Then
+        assertThat(plain).isEqualTo(7L);
+        assertThat(projected).isEqualTo(7L);
+    }
+}
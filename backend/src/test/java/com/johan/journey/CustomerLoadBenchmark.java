@@ -0,0 +1,171 @@
+package com.johan.journey;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johan.AbstractTestContainers;
+import com.johan.Main;
+import com.johan.model.CustomerRegistrationRequest;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Drives the customer API at a constant arrival rate to size pools and check capacity before a rollout
+// mvn test -Dtest=CustomerLoadBenchmark -Dbenchmark=true -Dbenchmark.rate=2000 -Dbenchmark.mix=read=90,update=10
+//     -Dbenchmark.pool-size=20 -Dbenchmark.server-threads=200 [-Dbenchmark.profile=reactive]
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CustomerLoadBenchmark extends AbstractTestContainers {
+
+    private static final double RATE = Double.parseDouble(System.getProperty("benchmark.rate", "500"));
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("benchmark.warmup.seconds", 10));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("benchmark.duration.seconds", 30));
+    private static final String MIX = System.getProperty("benchmark.mix", "read=70,register=15,update=10,delete=5");
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 10_000);
+    private static final int POOL_SIZE = Integer.getInteger("benchmark.pool-size", 20);
+    private static final int SERVER_THREADS = Integer.getInteger("benchmark.server-threads", 200);
+    private static final String PROFILE = System.getProperty("benchmark.profile", "");
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final String CUSTOMER_URI = "/api/v1/customer";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Test
+    void constantRateMix() throws Exception {
+        // GIVEN
+        Map<String, Integer> mix = parseMix(MIX);
+        String run = UUID.randomUUID().toString();
+        List<Long> ids = seed(run + "-read", ROWS);
+        // every delete needs a row of its own, with some to spare for a rate the generator catches up on
+        long deletes = (long) (RATE * (WARMUP.toSeconds() + DURATION.toSeconds())
+                * mix.getOrDefault("delete", 0) / mix.values().stream().mapToInt(Integer::intValue).sum() * 1.2);
+        Queue<Long> deletable = new ConcurrentLinkedQueue<>(seed(run + "-delete", (int) deletes));
+
+        // When
+        LoadGenerator.Report report;
+        try (ConfigurableApplicationContext context = start()) {
+            URI base = URI.create("http://localhost:%s%s".formatted(
+                    context.getEnvironment().getProperty("local.server.port"), CUSTOMER_URI));
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            LoadGenerator generator = new LoadGenerator(client, operations(base, mix, ids, deletable, run), RATE,
+                    REQUEST_TIMEOUT);
+            report = generator.run(WARMUP, DURATION);
+        }
+
+        // Then
+        System.out.printf("mix %s, %,d rows, pool %d, server threads %d%s%n", MIX, ROWS, POOL_SIZE, SERVER_THREADS,
+                PROFILE.isEmpty() ? "" : ", profile " + PROFILE);
+        report.print(System.out);
+        Path distribution = Path.of("target", "customer-load.hgrm");
+        Files.createDirectories(distribution.getParent());
+        try (PrintStream out = new PrintStream(Files.newOutputStream(distribution))) {
+            report.printDistribution(out);
+        }
+        System.out.printf("latency distribution written to %s%n", distribution.toAbsolutePath());
+        assertThat(report.total().latencies().getTotalCount()).isPositive();
+    }
+
+    private static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(Main.class)
+                .profiles(PROFILE.isEmpty() ? new String[0] : new String[]{PROFILE})
+                .properties(
+                        "server.port=0",
+                        "server.tomcat.threads.max=" + SERVER_THREADS,
+                        "spring.datasource.url=" + postgreSQLContainer.getJdbcUrl(),
+                        "spring.datasource.username=" + postgreSQLContainer.getUsername(),
+                        "spring.datasource.password=" + postgreSQLContainer.getPassword(),
+                        "spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                        "spring.r2dbc.url=" + getR2dbcUrl(),
+                        "spring.r2dbc.username=" + postgreSQLContainer.getUsername(),
+                        "spring.r2dbc.password=" + postgreSQLContainer.getPassword(),
+                        "spring.r2dbc.pool.max-size=" + POOL_SIZE,
+                        "spring.jpa.show-sql=false")
+                .run();
+    }
+
+    private static List<LoadGenerator.Operation> operations(URI base, Map<String, Integer> mix, List<Long> ids,
+                                                            Queue<Long> deletable, String run) {
+        AtomicLong sequence = new AtomicLong();
+        List<LoadGenerator.Operation> operations = new ArrayList<>();
+        operations.add(new LoadGenerator.Operation("read", mix.getOrDefault("read", 0),
+                () -> HttpRequest.newBuilder(base.resolve(CUSTOMER_URI + "/" + randomId(ids))).GET().build()));
+        operations.add(new LoadGenerator.Operation("register", mix.getOrDefault("register", 0),
+                () -> json(HttpRequest.newBuilder(base), "POST", new CustomerRegistrationRequest(
+                        FAKER.name().fullName(), "load-%s-%d@johan.com".formatted(run, sequence.incrementAndGet()),
+                        ThreadLocalRandom.current().nextInt(18, 90), Gender.FEMALE))));
+        // a new name every time, so the update always finds a change
+        operations.add(new LoadGenerator.Operation("update", mix.getOrDefault("update", 0),
+                () -> json(HttpRequest.newBuilder(base.resolve(CUSTOMER_URI + "/" + randomId(ids))), "PUT",
+                        new CustomerRegistrationRequest("Load " + sequence.incrementAndGet(), null, null, null))));
+        operations.add(new LoadGenerator.Operation("delete", mix.getOrDefault("delete", 0), () -> {
+            Long id = deletable.poll();
+            // out of seeded rows; the 404 shows up as errors
+            return HttpRequest.newBuilder(base.resolve(CUSTOMER_URI + "/" + (id == null ? 0 : id))).DELETE().build();
+        }));
+        return operations;
+    }
+
+    private static HttpRequest json(HttpRequest.Builder builder, String method, CustomerRegistrationRequest body) {
+        try {
+            return builder.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(OBJECT_MAPPER.writeValueAsString(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long randomId(List<Long> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private static List<Long> seed(String key, int rows) {
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[]{FAKER.name().fullName(), "load-" + key + "-" + i + "@johan.com",
+                    ThreadLocalRandom.current().nextInt(18, 90), i % 2 == 0 ? "MALE" : "FEMALE"});
+        }
+        getJdbcTemplate().batchUpdate("""
+                INSERT INTO customer (name, email, age, gender)
+                VALUES (?, ?, ?, ?)
+                """, batch);
+        return getJdbcTemplate().queryForList("""
+                SELECT id
+                FROM customer
+                WHERE email LIKE ?
+                ORDER BY id
+                """, Long.class, "load-" + key + "-%");
+    }
+
+    // e.g. read=70,register=15,update=10,delete=5
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            weights.put(parts[0], Integer.parseInt(parts[1]));
+        }
+        return weights;
+    }
+}
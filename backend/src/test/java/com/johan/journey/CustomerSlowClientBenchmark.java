@@ -0,0 +1,186 @@
+package com.johan.journey;
+
+import com.johan.AbstractTestContainers;
+import com.johan.Main;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// mvn test -Dtest=CustomerSlowClientBenchmark -Dbenchmark=true -Dbenchmark.clients=2000
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CustomerSlowClientBenchmark extends AbstractTestContainers {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 2_000);
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 500);
+    // each client takes one buffer from its socket per delay, so it reads far slower than the server writes
+    private static final long READ_DELAY_MILLIS = Long.getLong("benchmark.read.delay.millis", 50);
+    // an age no other test uses, so the list covers exactly the seeded rows
+    private static final int AGE = 149;
+
+    private static final ScheduledExecutorService READER = Executors.newSingleThreadScheduledExecutor();
+
+    @Test
+    void servletVersusReactive() throws Exception {
+        // GIVEN
+        seed();
+
+        // When
+        Result servlet = measure();
+        Result reactive = measure("reactive");
+
+        // Then
+        System.out.printf("%,d clients reading %,d rows each, one buffer per %d ms%n", CLIENTS, ROWS, READ_DELAY_MILLIS);
+        System.out.printf("servlet:  %s%n", servlet);
+        System.out.printf("reactive: %s%n", reactive);
+        assertThat(servlet.completed() + servlet.failed()).isEqualTo(CLIENTS);
+        assertThat(reactive.completed() + reactive.failed()).isEqualTo(CLIENTS);
+    }
+
+    private static void seed() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{FAKER.name().fullName(), "slow-client-" + i + "@johan.com", AGE, "FEMALE"});
+        }
+        getJdbcTemplate().batchUpdate("""
+                INSERT INTO customer (name, email, age, gender)
+                VALUES (?, ?, ?, ?)
+                ON CONFLICT (email) DO NOTHING
+                """, rows);
+    }
+
+    private static Result measure(String... profiles) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Main.class)
+                .profiles(profiles)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + postgreSQLContainer.getJdbcUrl(),
+                        "spring.datasource.username=" + postgreSQLContainer.getUsername(),
+                        "spring.datasource.password=" + postgreSQLContainer.getPassword(),
+                        "spring.r2dbc.url=" + getR2dbcUrl(),
+                        "spring.r2dbc.username=" + postgreSQLContainer.getUsername(),
+                        "spring.r2dbc.password=" + postgreSQLContainer.getPassword(),
+                        "spring.jpa.show-sql=false")
+                .run()) {
+            URI uri = URI.create("http://localhost:%s/api/v1/customer?gender=FEMALE&minAge=%d&maxAge=%d".formatted(
+                    context.getEnvironment().getProperty("local.server.port"), AGE, AGE));
+            return run(uri);
+        }
+    }
+
+    // every client connects at once; the server threads are sampled while they read
+    private static Result run(URI uri) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        AtomicInteger peakThreads = new AtomicInteger();
+        var sampler = READER.scheduleAtFixedRate(
+                () -> peakThreads.accumulateAndGet(serverThreads(), Math::max), 0, 100, TimeUnit.MILLISECONDS);
+        long started = System.nanoTime();
+        List<CompletableFuture<Long>> responses = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            long sent = System.nanoTime();
+            responses.add(client.sendAsync(request, info -> new SlowReader(info.statusCode()))
+                    .thenApply(response -> System.nanoTime() - sent));
+        }
+        long[] latencies = new long[CLIENTS];
+        int completed = 0;
+        for (CompletableFuture<Long> response : responses) {
+            try {
+                latencies[completed] = response.get();
+                completed++;
+            } catch (Exception e) {
+                // refused, timed out waiting for a connection or a non-200 status
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        sampler.cancel(false);
+        long[] done = Arrays.copyOf(latencies, completed);
+        Arrays.sort(done);
+        return new Result(completed, CLIENTS - completed, elapsed, peakThreads.get(),
+                completed == 0 ? 0 : done[completed / 2], completed == 0 ? 0 : done[completed * 99 / 100]);
+    }
+
+    // Tomcat's workers and Netty's event loops
+    private static int serverThreads() {
+        return (int) Thread.getAllStackTraces().keySet().stream()
+                .map(Thread::getName)
+                .filter(name -> name.startsWith("http-nio-") || name.startsWith("reactor-http-"))
+                .count();
+    }
+
+    // reads the body one buffer at a time with a pause in between, so TCP flow control pushes back on the server
+    private static final class SlowReader implements HttpResponse.BodySubscriber<Long> {
+
+        private final CompletableFuture<Long> body = new CompletableFuture<>();
+        private final int status;
+        private Flow.Subscription subscription;
+        private long bytes;
+
+        private SlowReader(int status) {
+            this.status = status;
+        }
+
+        @Override
+        public CompletionStage<Long> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            buffers.forEach(buffer -> bytes += buffer.remaining());
+            READER.schedule(() -> subscription.request(1), READ_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (status == 200) {
+                body.complete(bytes);
+            } else {
+                body.completeExceptionally(new IllegalStateException("Status " + status));
+            }
+        }
+    }
+
+    private record Result(int completed, int failed, long elapsedNanos, int peakThreads, long p50Nanos, long p99Nanos) {
+
+        @Override
+        public String toString() {
+            return "%,6d ok %,6d failed in %,7d ms   p50 %,7d ms   p99 %,7d ms   peak server threads %d".formatted(
+                    completed, failed, elapsedNanos / 1_000_000, p50Nanos / 1_000_000, p99Nanos / 1_000_000,
+                    peakThreads);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.johan.journey;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-loop HTTP load: requests are due at a fixed rate whatever the server does, and each one's latency is
+ * measured from when it was due rather than when it was sent. A closed loop that waits for responses
+ * sends less while the server stalls and so never sees the queueing a real arrival rate would cause
+ * (coordinated omission). Requests picked by weight from the operations go out asynchronously; latencies
+ * land in one HdrHistogram per operation and one overall.
+ */
+class LoadGenerator {
+
+    private final HttpClient client;
+    private final List<Operation> operations;
+    private final int totalWeight;
+    private final long intervalNanos;
+    private final Duration requestTimeout;
+
+    LoadGenerator(HttpClient client, List<Operation> operations, double requestsPerSecond, Duration requestTimeout) {
+        this.client = client;
+        this.operations = operations.stream().filter(operation -> operation.weight() > 0).toList();
+        this.totalWeight = this.operations.stream().mapToInt(Operation::weight).sum();
+        this.intervalNanos = (long) (1_000_000_000L / requestsPerSecond);
+        this.requestTimeout = requestTimeout;
+    }
+
+    // requests due during the warmup are sent but not recorded
+    Report run(Duration warmup, Duration duration) throws InterruptedException {
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        operations.forEach(operation -> stats.put(operation.name(), new Stats()));
+        Stats total = new Stats();
+        List<CompletableFuture<?>> responses = new ArrayList<>();
+        long started = System.nanoTime();
+        long measureFrom = started + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        for (long due = started; due < end; due += intervalNanos) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            // a generator that fell behind sends the overdue requests at once, still timed from when they were due
+            Operation operation = pick();
+            long intended = due;
+            boolean measured = due >= measureFrom;
+            HttpRequest request = operation.request().get();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .orTimeout(requestTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((response, error) -> {
+                        if (!measured) {
+                            return;
+                        }
+                        long latency = System.nanoTime() - intended;
+                        boolean ok = error == null && response.statusCode() / 100 == 2;
+                        stats.get(operation.name()).record(latency, ok);
+                        total.record(latency, ok);
+                    }));
+        }
+        for (CompletableFuture<?> response : responses) {
+            try {
+                response.join();
+            } catch (RuntimeException e) {
+                // already counted as an error
+            }
+        }
+        Map<String, Result> results = new LinkedHashMap<>();
+        stats.forEach((name, operationStats) -> results.put(name, operationStats.result(duration)));
+        return new Report(1_000_000_000.0 / intervalNanos, duration, results, total.result(duration));
+    }
+
+    private Operation pick() {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Operation operation : operations) {
+            ticket -= operation.weight();
+            if (ticket < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException("No operation with a positive weight");
+    }
+
+    // the request is built when it is due, so operations can hand out fresh ids and emails
+    record Operation(String name, int weight, Supplier<HttpRequest> request) {
+    }
+
+    private static final class Stats {
+
+        private final Recorder latencies = new Recorder(3);
+        private final LongAdder errors = new LongAdder();
+
+        void record(long latencyNanos, boolean ok) {
+            latencies.recordValue(latencyNanos);
+            if (!ok) {
+                errors.increment();
+            }
+        }
+
+        Result result(Duration duration) {
+            Histogram histogram = latencies.getIntervalHistogram();
+            return new Result(histogram, errors.sum(), histogram.getTotalCount() / (duration.toNanos() / 1e9));
+        }
+    }
+
+    // throughput counts completed requests, failed ones included, over the measured duration
+    record Result(Histogram latencies, long errors, double throughput) {
+
+        @Override
+        public String toString() {
+            return "%,9d req %,7d err %,9.1f req/s   p50 %,9.2f ms   p99 %,9.2f ms   p99.9 %,9.2f ms   max %,9.2f ms"
+                    .formatted(latencies.getTotalCount(), errors, throughput,
+                            millis(latencies.getValueAtPercentile(50)),
+                            millis(latencies.getValueAtPercentile(99)),
+                            millis(latencies.getValueAtPercentile(99.9)),
+                            millis(latencies.getMaxValue()));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+
+    record Report(double targetRate, Duration duration, Map<String, Result> operations, Result total) {
+
+        void print(PrintStream out) {
+            out.printf("target %,.1f req/s for %,d s%n", targetRate, duration.toSeconds());
+            operations.forEach((name, result) -> out.printf("%-10s %s%n", name, result));
+            out.printf("%-10s %s%n", "total", total);
+        }
+
+        // the full distribution in HdrHistogram's percentile format, for plotting
+        void printDistribution(PrintStream out) {
+            total.latencies().outputPercentileDistribution(out, 1e6);
+        }
+    }
+}
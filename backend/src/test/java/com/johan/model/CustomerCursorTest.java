@@ -0,0 +1,42 @@
+package com.johan.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerCursorTest {
+
+    @Test
+    void encodeAndDecodeRoundTrip() {
+        // GIVEN
+        CustomerCursor cursor = new CustomerCursor(CustomerSort.NAME, "Joko: Widodo", 42L);
+
+        // When
+        CustomerCursor actual = CustomerCursor.decode(cursor.encode());
+
+        // Then
+        assertThat(actual).isEqualTo(cursor);
+    }
+
+    @Test
+    void cursorOfUsesSortKeyOfCustomer() {
+        // GIVEN
+        Customer customer = new Customer(3L, "Joko", "joko@gmail.com", 20, Gender.MALE);
+
+        // When
+        CustomerCursor actual = CustomerCursor.of(CustomerSort.AGE, customer);
+
+        // Then
+        assertThat(actual).isEqualTo(new CustomerCursor(CustomerSort.AGE, "20", 3L));
+    }
+
+    @Test
+    void willThrowWhenCursorIsMalformed() {
+        assertThatThrownBy(() -> CustomerCursor.decode("%%%"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CustomerCursor.decode(
+                new CustomerCursor(CustomerSort.AGE, "old", 1L).encode()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,41 @@
+package com.johan.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerFieldTest {
+
+    @Test
+    void parseReadsCommaSeparatedNames() {
+        assertThat(CustomerField.parse("name, ID,name"))
+                .containsExactly(CustomerField.ID, CustomerField.NAME);
+        assertThat(CustomerField.parse(null)).isEqualTo(CustomerField.ALL);
+        assertThat(CustomerField.parse(" ")).isEqualTo(CustomerField.ALL);
+    }
+
+    @Test
+    void willThrowWhenFieldIsUnknown() {
+        assertThatThrownBy(() -> CustomerField.parse("id,password"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CustomerField.parse("id,"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void projectKeepsOnlyRequestedFields() {
+        // GIVEN
+        Customer customer = new Customer(3L, "Joko", "joko@gmail.com", 20, Gender.MALE);
+
+        // When
+        Customer actual = CustomerField.project(customer, CustomerField.parse("email,age"));
+
+        // Then
+        assertThat(actual.getEmail()).isEqualTo("joko@gmail.com");
+        assertThat(actual.getAge()).isEqualTo(20);
+        assertThat(actual.getId()).isNull();
+        assertThat(actual.getName()).isNull();
+        assertThat(actual.getGender()).isNull();
+    }
+}
@@ -22,6 +22,7 @@ class CustomerRowMapperTest {
         Mockito.when(resultSet.getString("name")).thenReturn("Joko");
         Mockito.when(resultSet.getString("email")).thenReturn("joko@gmail.com");
         Mockito.when(resultSet.getString("gender")).thenReturn("MALE");
+        Mockito.when(resultSet.getLong("version")).thenReturn(3L);
 
         // When
         Customer actual = customerRowMapper.mapRow(resultSet, 1);
@@ -31,5 +32,6 @@ class CustomerRowMapperTest {
                 1L,"Joko","joko@gmail.com",20,
                 Gender.MALE);
         assertThat(actual).isEqualTo(expected);
+        assertThat(actual.getVersion()).isEqualTo(3L);
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.johan.model;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WireFormatTest {
+
+    @Test
+    void browsersKeepGettingJson() throws HttpMediaTypeNotAcceptableException {
+        assertThat(WireFormat.negotiate(null)).isEqualTo(WireFormat.JSON);
+        assertThat(WireFormat.negotiate("*/*")).isEqualTo(WireFormat.JSON);
+        assertThat(WireFormat.negotiate("application/json, text/plain, */*")).isEqualTo(WireFormat.JSON);
+    }
+
+    @Test
+    void negotiatePrefersHighestQuality() throws HttpMediaTypeNotAcceptableException {
+        assertThat(WireFormat.negotiate("application/cbor")).isEqualTo(WireFormat.CBOR);
+        assertThat(WireFormat.negotiate("application/json;q=0.5, application/x-jackson-smile"))
+                .isEqualTo(WireFormat.SMILE);
+        assertThat(WireFormat.negotiate("application/cbor;q=0, */*;q=0.1")).isEqualTo(WireFormat.JSON);
+    }
+
+    @Test
+    void willThrowWhenNoFormatIsAcceptable() {
+        assertThatThrownBy(() -> WireFormat.negotiate("application/xml"))
+                .isInstanceOf(HttpMediaTypeNotAcceptableException.class);
+        assertThatThrownBy(() -> WireFormat.negotiate("not a media type"))
+                .isInstanceOf(HttpMediaTypeNotAcceptableException.class);
+    }
+}
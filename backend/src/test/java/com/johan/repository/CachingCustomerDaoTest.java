@@ -0,0 +1,248 @@
+package com.johan.repository;
+
+import com.johan.model.Customer;
+import com.johan.model.CustomerPatchResult;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingCustomerDaoTest {
+
+    private CachingCustomerDao underTest;
+    private CustomerCache cache;
+    private AutoCloseable autoCloseable;
+    private final AtomicLong clock = new AtomicLong();
+
+    @Mock
+    private CustomerDao delegate;
+
+    @BeforeEach
+    void setUp() {
+        autoCloseable = MockitoAnnotations.openMocks(this);
+        cache = new CustomerCache(32, Duration.ofSeconds(30), Duration.ofSeconds(5), clock::get);
+        underTest = new CachingCustomerDao(delegate, cache);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        autoCloseable.close();
+    }
+
+    @Test
+    void getByCustomerIdLoadsOnceThenServesFromCache() {
+        // GIVEN
+        Customer customer = new Customer(1L, "johan", "johan@gmail.com", 20, Gender.MALE);
+        Mockito.when(delegate.getByCustomerId(1)).thenReturn(Optional.of(customer));
+
+        // When
+        Optional<Customer> first = underTest.getByCustomerId(1);
+        Optional<Customer> second = underTest.getByCustomerId(1);
+
+        // Then
+        assertThat(first).contains(customer);
+        assertThat(second).contains(customer);
+        Mockito.verify(delegate, Mockito.times(1)).getByCustomerId(1);
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void cachedHitKeepsVersion() {
+        // GIVEN
+        Customer customer = new Customer(1L, "johan", "johan@gmail.com", 20, Gender.MALE);
+        customer.setVersion(3L);
+        Mockito.when(delegate.getByCustomerId(1)).thenReturn(Optional.of(customer));
+        underTest.getByCustomerId(1);
+
+        // When
+        Optional<Customer> hit = underTest.getByCustomerId(1);
+
+        // Then
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(hit).get()
+                .extracting(Customer::getVersion)
+                .isEqualTo(3L);
+    }
+
+    @Test
+    void updateAfterCachingServesNewVersion() {
+        // GIVEN
+        Customer customer = new Customer(1L, "johan", "johan@gmail.com", 20, Gender.MALE);
+        customer.setVersion(1L);
+        Customer updated = new Customer(1L, "budi", "johan@gmail.com", 20, Gender.MALE);
+        updated.setVersion(2L);
+        Mockito.when(delegate.getByCustomerId(1))
+                .thenReturn(Optional.of(customer))
+                .thenReturn(Optional.of(updated));
+        underTest.getByCustomerId(1);
+        underTest.getByCustomerId(1);
+
+        // When
+        underTest.updateCustomer(updated);
+
+        // Then
+        assertThat(underTest.getByCustomerId(1)).get()
+                .extracting(Customer::getVersion)
+                .isEqualTo(2L);
+    }
+
+    @Test
+    void callersCannotMutateCachedCustomer() {
+        // GIVEN
+        Customer customer = new Customer(1L, "johan", "johan@gmail.com", 20, Gender.MALE);
+        Mockito.when(delegate.getByCustomerId(1)).thenReturn(Optional.of(customer));
+        underTest.getByCustomerId(1);
+
+        // When
+        underTest.getByCustomerId(1).orElseThrow().setName("budi");
+
+        // Then
+        assertThat(underTest.getByCustomerId(1)).get()
+                .extracting(Customer::getName)
+                .isEqualTo("johan");
+    }
+
+    @Test
+    void absentIdIsCachedUntilNegativeTtlExpires() {
+        // GIVEN
+        Mockito.when(delegate.getByCustomerId(7)).thenReturn(Optional.empty());
+        underTest.getByCustomerId(7);
+
+        // When
+        Optional<Customer> cached = underTest.getByCustomerId(7);
+        clock.addAndGet(Duration.ofSeconds(6).toNanos());
+        underTest.getByCustomerId(7);
+
+        // Then
+        assertThat(cached).isEmpty();
+        Mockito.verify(delegate, Mockito.times(2)).getByCustomerId(7);
+    }
+
+    @Test
+    void insertCustomerDropsCachedAbsentIds() {
+        // GIVEN
+        Customer customer = new Customer("johan", "johan@gmail.com", 20, Gender.MALE);
+        Mockito.when(delegate.getByCustomerId(7)).thenReturn(Optional.empty());
+        underTest.getByCustomerId(7);
+
+        // When
+        underTest.insertCustomer(customer);
+        underTest.getByCustomerId(7);
+
+        // Then
+        Mockito.verify(delegate).insertCustomer(customer);
+        Mockito.verify(delegate, Mockito.times(2)).getByCustomerId(7);
+    }
+
+    @Test
+    void updateCustomerInvalidatesId() {
+        // GIVEN
+        Customer customer = new Customer(1L, "johan", "johan@gmail.com", 20, Gender.MALE);
+        Customer updated = new Customer(1L, "budi", "johan@gmail.com", 20, Gender.MALE);
+        Mockito.when(delegate.getByCustomerId(1))
+                .thenReturn(Optional.of(customer))
+                .thenReturn(Optional.of(updated));
+        underTest.getByCustomerId(1);
+
+        // When
+        underTest.updateCustomer(updated);
+
+        // Then
+        assertThat(underTest.getByCustomerId(1)).contains(updated);
+    }
+
+    @Test
+    void deleteAndPatchInvalidateId() {
+        // GIVEN
+        Customer customer = new Customer(1L, "johan", "johan@gmail.com", 20, Gender.MALE);
+        Mockito.when(delegate.getByCustomerId(1)).thenReturn(Optional.of(customer));
+        Mockito.when(delegate.patchCustomer(Mockito.eq(1), Mockito.any()))
+                .thenReturn(CustomerPatchResult.of(CustomerPatchResult.Status.UNCHANGED));
+        underTest.getByCustomerId(1);
+
+        // When
+        underTest.patchCustomer(1, new Customer());
+        underTest.getByCustomerId(1);
+        underTest.deleteCustomer(1);
+        underTest.getByCustomerId(1);
+
+        // Then
+        Mockito.verify(delegate, Mockito.times(3)).getByCustomerId(1);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaximumSize() {
+        // GIVEN
+        Mockito.when(delegate.getByCustomerId(Mockito.anyInt())).thenReturn(Optional.empty());
+
+        // When
+        for (int id = 0; id < 1_000; id++) {
+            underTest.getByCustomerId(id);
+        }
+
+        // Then
+        assertThat(cache.size()).isLessThanOrEqualTo(32);
+        assertThat(cache.evictionCount()).isEqualTo(1_000 - cache.size());
+    }
+
+    @Test
+    void writeDuringLoadIsNotOverwrittenWithStaleRow() {
+        // GIVEN
+        Customer stale = new Customer(1L, "johan", "johan@gmail.com", 20, Gender.MALE);
+        Customer fresh = new Customer(1L, "budi", "johan@gmail.com", 20, Gender.MALE);
+        Mockito.when(delegate.getByCustomerId(1))
+                .thenAnswer(invocation -> {
+                    // another request updates the row after we read it but before we cache it
+                    underTest.updateCustomer(fresh);
+                    return Optional.of(stale);
+                })
+                .thenReturn(Optional.of(fresh));
+
+        // When
+        underTest.getByCustomerId(1);
+
+        // Then
+        assertThat(underTest.getByCustomerId(1)).contains(fresh);
+    }
+
+    @Test
+    void collectionRevisionMovesWithWritesWithoutReadingRows() {
+        // GIVEN
+        OptionalLong deaf = underTest.collectionRevision();
+        cache.listeningChanged(true);
+        OptionalLong before = underTest.collectionRevision();
+
+        // When
+        underTest.updateCustomer(new Customer(1L, "budi", "johan@gmail.com", 20, Gender.MALE));
+        OptionalLong after = underTest.collectionRevision();
+
+        // Then
+        assertThat(deaf).isEmpty();
+        assertThat(before).isPresent();
+        assertThat(after).isPresent().isNotEqualTo(before);
+        Mockito.verify(delegate, Mockito.never()).collectionVersion(Mockito.any());
+    }
+
+    @Test
+    void otherReadsGoToDelegate() {
+        // When
+        underTest.selectAllCustomer();
+        underTest.selectExistingEmails(List.of("johan@gmail.com"));
+
+        // Then
+        Mockito.verify(delegate).selectAllCustomer();
+        Mockito.verify(delegate).selectExistingEmails(List.of("johan@gmail.com"));
+    }
+}
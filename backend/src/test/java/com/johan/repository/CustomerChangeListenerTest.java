@@ -0,0 +1,119 @@
+package com.johan.repository;
+
+import com.johan.AbstractTestContainers;
+import com.johan.model.Customer;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerChangeListenerTest extends AbstractTestContainers {
+
+    private final CustomerCache cache = new CustomerCache(100, Duration.ofMinutes(10), Duration.ofMinutes(10));
+    private final AtomicInteger loads = new AtomicInteger();
+    private CustomerChangeListener underTest;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(postgreSQLContainer.getJdbcUrl());
+        properties.setUsername(postgreSQLContainer.getUsername());
+        properties.setPassword(postgreSQLContainer.getPassword());
+        underTest = new CustomerChangeListener(
+                List.of(cache), properties, true, Duration.ofMillis(20), 1000, Duration.ofMillis(100));
+        underTest.start();
+        // the listener resyncs once connected; wait for it so entries cached below survive
+        awaitTrue(() -> underTest.resyncCount() > 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.stop();
+    }
+
+    @Test
+    void notificationEvictsCachedCustomer() throws InterruptedException {
+        // GIVEN
+        cache.get(1, this::load);
+
+        // When
+        notify("1");
+
+        // Then
+        awaitTrue(() -> {
+            cache.get(1, this::load);
+            return loads.get() == 2;
+        });
+    }
+
+    @Test
+    void insertNotificationEvictsAbsentIds() throws InterruptedException {
+        // GIVEN
+        cache.get(1, this::load);
+        cache.get(2, id -> Optional.empty());
+
+        // When
+        notify(CustomerChangeNotifier.INSERTED);
+
+        // Then
+        awaitTrue(() -> cache.size() == 1);
+    }
+
+    @Test
+    void notificationStormIsCoalescedIntoFullInvalidation() throws InterruptedException {
+        // GIVEN
+        for (int id = 1; id <= 50; id++) {
+            cache.get(id, this::load);
+        }
+
+        // When
+        getJdbcTemplate().execute("""
+                SELECT pg_notify('customer_changed', id::text)
+                FROM generate_series(1, 5000) AS id
+                """);
+
+        // Then
+        awaitTrue(() -> cache.size() == 0);
+    }
+
+    @Test
+    void generationMovesOnNotificationAndIsWithheldOnceDeaf() throws InterruptedException {
+        // GIVEN
+        long before = cache.generation().orElseThrow();
+
+        // When
+        notify("1");
+        awaitTrue(() -> cache.generation().orElseThrow() != before);
+        underTest.stop();
+
+        // Then
+        awaitTrue(() -> cache.generation().isEmpty());
+    }
+
+    // what a write on another node publishes
+    private static void notify(String payload) {
+        getJdbcTemplate().query("SELECT pg_notify(?, ?)", rs -> null, CustomerChangeNotifier.CHANNEL, payload);
+    }
+
+    private Optional<Customer> load(Integer id) {
+        loads.incrementAndGet();
+        return Optional.of(new Customer(id.longValue(), "johan", "johan@gmail.com", 20, Gender.MALE));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
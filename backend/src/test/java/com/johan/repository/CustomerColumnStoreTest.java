@@ -0,0 +1,86 @@
+package com.johan.repository;
+
+import com.johan.AbstractTestContainers;
+import com.johan.model.Customer;
+import com.johan.model.CustomerRowMapper;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerColumnStoreTest extends AbstractTestContainers {
+
+    private final String name = "columns-" + UUID.randomUUID();
+    private CustomerJDBCAccessService customerDao;
+    private CustomerColumnStore underTest;
+
+    @BeforeEach
+    void setUp() {
+        customerDao = new CustomerJDBCAccessService(getJdbcTemplate(), new CustomerRowMapper());
+        underTest = new CustomerColumnStore(getJdbcTemplate(),
+                new DataSourceTransactionManager(getJdbcTemplate().getDataSource()), Duration.ofHours(1));
+    }
+
+    @Test
+    void firstQueryLoadsTable() {
+        // GIVEN
+        insert(30);
+        insert(40);
+
+        // When
+        long count = underTest.query(columns -> columns.countByName(name));
+
+        // Then
+        assertThat(count).isEqualTo(2);
+    }
+
+    @Test
+    void announcedChangesAreAppliedBeforeNextQuery() {
+        // GIVEN
+        long first = insert(30);
+        long second = insert(40);
+        underTest.refresh();
+
+        // When
+        insert(50);
+        underTest.customersInserted();
+        Customer updated = customerDao.getByCustomerId((int) first).orElseThrow();
+        updated.setAge(31);
+        customerDao.updateCustomer(updated);
+        customerDao.deleteCustomer((int) second);
+        underTest.customersChanged(List.of((int) first, (int) second));
+
+        // Then
+        assertThat(underTest.query(columns -> columns.countByName(name))).isEqualTo(2);
+        for (int age : new int[]{30, 31, 40, 50}) {
+            assertThat(underTest.ageReport(age, age).customers())
+                    .isEqualTo(getJdbcTemplate().queryForObject(
+                            "SELECT count(*) FROM customer WHERE age = ?", Long.class, age));
+        }
+    }
+
+    @Test
+    void unannouncedChangesWaitForReload() {
+        // GIVEN
+        underTest.refresh();
+
+        // When
+        insert(30);
+
+        // Then
+        assertThat(underTest.query(columns -> columns.countByName(name))).isZero();
+        underTest.allCustomersChanged();
+        assertThat(underTest.query(columns -> columns.countByName(name))).isEqualTo(1);
+    }
+
+    private long insert(int age) {
+        return customerDao.insertCustomerIfAbsent(
+                new Customer(name, UUID.randomUUID() + "@johan.com", age, Gender.FEMALE)).orElseThrow();
+    }
+}
@@ -0,0 +1,75 @@
+package com.johan.repository;
+
+import com.johan.model.Customer;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// mvn test -Dtest=CustomerColumnsBenchmark -Dbenchmark=true -Dbenchmark.rows=10000000
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CustomerColumnsBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 5_000_000);
+    private static final int ROUNDS = 10;
+
+    @Test
+    void columnsVersusCustomerList() {
+        // GIVEN
+        long heapBefore = usedHeap();
+        List<Customer> list = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            list.add(new Customer((long) i + 1, "name" + i % 1000, "customer-" + i + "@johan.com", 18 + i % 80,
+                    i % 2 == 0 ? Gender.MALE : Gender.FEMALE));
+        }
+        long listHeap = usedHeap() - heapBefore;
+        heapBefore = usedHeap();
+        CustomerColumns columns = new CustomerColumns(ROWS);
+        for (Customer customer : list) {
+            columns.append(customer.getId(), customer.getName(), customer.getAge(), customer.getGender());
+        }
+        long columnsHeap = usedHeap() - heapBefore;
+
+        // When
+        long[] listScan = measure(() -> list.stream()
+                .filter(c -> c.getAge() >= 30 && c.getAge() <= 50 && c.getGender() == Gender.FEMALE)
+                .count());
+        long[] columnsScan = measure(() -> columns.countByAge(30, 50, Gender.FEMALE));
+
+        // Then
+        System.out.printf("%,d rows%n", ROWS);
+        System.out.printf("%-8s %14s %16s %12s%n", "", "heap bytes", "scan bytes/op", "scan ms");
+        System.out.printf("%-8s %,14d %,16d %,12d%n", "list", listHeap, listScan[1], listScan[0]);
+        System.out.printf("%-8s %,14d %,16d %,12d   + %,d bytes off-heap%n", "columns", columnsHeap, columnsScan[1],
+                columnsScan[0], columns.offHeapBytes());
+        assertThat(columnsScan[2]).isEqualTo(listScan[2]);
+    }
+
+    // best time in ms, allocated bytes of that round and the result
+    private static long[] measure(LongSupplier scan) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] best = {Long.MAX_VALUE, 0, 0};
+        for (int round = 0; round < ROUNDS; round++) {
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            long started = System.nanoTime();
+            long result = scan.getAsLong();
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            if (millis < best[0]) {
+                best = new long[]{millis, threads.getCurrentThreadAllocatedBytes() - allocated, result};
+            }
+        }
+        return best;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
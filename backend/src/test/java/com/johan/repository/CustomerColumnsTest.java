@@ -0,0 +1,107 @@
+package com.johan.repository;
+
+import com.johan.model.Customer;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerColumnsTest {
+
+    private final CustomerColumns underTest = new CustomerColumns(0);
+
+    @Test
+    void aggregatesSkipDeletedRows() {
+        // GIVEN
+        underTest.append(1, "Alex", 21, Gender.MALE);
+        underTest.append(2, "Jamila", 25, Gender.FEMALE);
+        underTest.append(3, "Alex", 40, Gender.FEMALE);
+
+        // When
+        underTest.delete(2);
+
+        // Then
+        assertThat(underTest.count()).isEqualTo(2);
+        assertThat(underTest.countByAge(20, 30, null)).isEqualTo(1);
+        assertThat(underTest.countByGender(0, 150)).containsExactly(1, 1);
+        assertThat(underTest.countByName("Alex")).isEqualTo(2);
+        assertThat(underTest.countByName("Jamila")).isZero();
+        assertThat(underTest.averageAge(0, 150)).isEqualTo(30.5);
+        assertThat(underTest.averageAge(26, 39)).isNull();
+    }
+
+    @Test
+    void upsertRevivesAndMovesRowsBetweenGenders() {
+        // GIVEN
+        underTest.append(1, "Alex", 21, Gender.MALE);
+        underTest.delete(1);
+
+        // When
+        boolean placed = underTest.upsert(1, "Alexa", 22, Gender.FEMALE);
+
+        // Then
+        assertThat(placed).isTrue();
+        assertThat(underTest.count()).isEqualTo(1);
+        assertThat(underTest.countByAge(0, 150, Gender.MALE)).isZero();
+        assertThat(underTest.countByAge(22, 22, Gender.FEMALE)).isEqualTo(1);
+    }
+
+    @Test
+    void upsertCannotPlaceIdBetweenLoadedRows() {
+        // GIVEN
+        underTest.append(1, "Alex", 21, Gender.MALE);
+        underTest.append(5, "Jamila", 25, Gender.FEMALE);
+
+        // When
+        boolean placed = underTest.upsert(3, "Budi", 30, Gender.MALE);
+
+        // Then
+        assertThat(placed).isFalse();
+        assertThat(underTest.count()).isEqualTo(2);
+        assertThatThrownBy(() -> underTest.append(4, "Budi", 30, Gender.MALE))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void matchesRowByRowEvaluationAcrossGrowth() {
+        // GIVEN
+        Random random = new Random(42);
+        Map<Long, Customer> expected = new TreeMap<>();
+        long id = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (random.nextInt(4) > 0 || expected.isEmpty()) {
+                id += 1 + random.nextInt(3);
+                Customer customer = new Customer(id, "name" + random.nextInt(20), null, random.nextInt(100),
+                        random.nextBoolean() ? Gender.MALE : Gender.FEMALE);
+                underTest.append(id, customer.getName(), customer.getAge(), customer.getGender());
+                expected.put(id, customer);
+            } else {
+                long deleted = 1 + random.nextInt((int) id);
+                underTest.delete(deleted);
+                expected.remove(deleted);
+            }
+        }
+
+        // When
+        long females = underTest.countByAge(20, 40, Gender.FEMALE);
+        long[] histogram = underTest.ageHistogram();
+
+        // Then
+        assertThat(underTest.count()).isEqualTo(expected.size());
+        assertThat(females).isEqualTo(expected.values().stream()
+                .filter(c -> c.getAge() >= 20 && c.getAge() <= 40 && c.getGender() == Gender.FEMALE)
+                .count());
+        assertThat(underTest.countByName("name7")).isEqualTo(expected.values().stream()
+                .filter(c -> c.getName().equals("name7"))
+                .count());
+        for (int age = 0; age < 100; age++) {
+            int a = age;
+            assertThat(histogram[age]).isEqualTo(expected.values().stream().filter(c -> c.getAge() == a).count());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.johan.repository;
+
+import com.johan.AbstractTestContainers;
+import com.johan.model.CustomerIngestReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// mvn test -Dtest=CustomerCsvIngesterBenchmark -Dbenchmark=true -Dbenchmark.rows=5000000
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CustomerCsvIngesterBenchmark extends AbstractTestContainers {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void ingestThroughput() throws IOException {
+        // GIVEN
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        String run = UUID.randomUUID().toString();
+        Path csv = dir.resolve("customers.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            writer.write("name,email,age,gender\n");
+            for (int i = 0; i < rows; i++) {
+                writer.write("Customer " + i + ",customer-" + i + "-" + run + "@johan.com,"
+                        + (18 + i % 80) + "," + (i % 2 == 0 ? "MALE" : "FEMALE") + "\n");
+            }
+        }
+        CustomerCsvIngester underTest = new CustomerCsvIngester(getJdbcTemplate().getDataSource(), 16 * 1024 * 1024,
+                256L * 1024 * 1024);
+
+        // When
+        CustomerIngestReport report = underTest.ingest(csv, dir.resolve("rejects.csv"), progress -> { });
+
+        // Then
+        System.out.printf("Ingested %,d rows (%,d bytes) in %,d ms: %,d rows/s, %,d rows/min%n",
+                report.rowsInserted(), Files.size(csv), report.elapsedMillis(),
+                report.rowsPerSecond(), report.rowsPerSecond() * 60);
+        assertThat(report.rowsInserted()).isEqualTo(rows);
+    }
+}
@@ -0,0 +1,95 @@
+package com.johan.repository;
+
+import com.johan.AbstractTestContainers;
+import com.johan.model.Customer;
+import com.johan.model.CustomerIngestReport;
+import com.johan.model.CustomerRowMapper;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerCsvIngesterTest extends AbstractTestContainers {
+
+    private CustomerCsvIngester underTest;
+    private CustomerJDBCAccessService customerDao;
+
+    @TempDir
+    private Path dir;
+
+    @BeforeEach
+    void setUp() {
+        // tiny chunks so even a handful of rows is split across several parsers, and a byte budget that holds
+        // the look-ahead to a couple of them
+        underTest = new CustomerCsvIngester(getJdbcTemplate().getDataSource(), 64, 160);
+        customerDao = new CustomerJDBCAccessService(getJdbcTemplate(), new CustomerRowMapper());
+    }
+
+    @Test
+    void ingestInsertsValidRowsAndRejectsTheRest() throws IOException {
+        // GIVEN
+        String taken = "taken-" + UUID.randomUUID() + "@johan.com";
+        customerDao.insertCustomer(new Customer(FAKER.name().fullName(), taken, 30, Gender.MALE));
+        String first = "first-" + UUID.randomUUID() + "@johan.com";
+        String second = "second-" + UUID.randomUUID() + "@johan.com";
+        Path csv = dir.resolve("customers.csv");
+        Files.writeString(csv, String.join("\n",
+                "name,email,age,gender",
+                "\"Widodo, Joko\"," + first + ",20,male",
+                "Siti," + second + ",31,FEMALE",
+                "Budi," + first + ",40,MALE",
+                "Rina," + taken + ",22,FEMALE",
+                "Agus,agus-" + UUID.randomUUID() + "@johan.com,old,MALE",
+                "Dewi,dewi-" + UUID.randomUUID() + "@johan.com,25,OTHER",
+                ""));
+        Path rejects = dir.resolve("rejects.csv");
+
+        // When
+        CustomerIngestReport actual = underTest.ingest(csv, rejects, progress -> { });
+
+        // Then
+        assertThat(actual.rowsRead()).isEqualTo(6);
+        assertThat(actual.rowsInserted()).isEqualTo(2);
+        assertThat(actual.rowsRejected()).isEqualTo(4);
+        assertThat(customerDao.selectExistingEmails(List.of(first, second)))
+                .containsExactlyInAnyOrder(first, second);
+        assertThat(customerDao.selectAllCustomer().stream()
+                .filter(c -> c.getEmail().equals(first))
+                .map(Customer::getName))
+                .containsExactly("Widodo, Joko");
+
+        List<String> rejected = Files.readAllLines(rejects);
+        assertThat(rejected).hasSize(5);
+        assertThat(rejected.subList(1, 5)).extracting(line -> line.split(",")[0] + "," + line.split(",")[1])
+                .containsExactlyInAnyOrder(
+                        "4,DUPLICATE_IN_FILE",
+                        "5,EMAIL_TAKEN",
+                        "6,INVALID_AGE",
+                        "7,INVALID_GENDER");
+    }
+
+    @Test
+    void splitCsvHandlesQuotedFields() {
+        assertThat(CustomerCsvIngester.splitCsv("\"a, \"\"b\"\"\",c,1,MALE"))
+                .containsExactly("a, \"b\"", "c", "1", "MALE");
+        assertThat(CustomerCsvIngester.splitCsv("\"unterminated,c,1,MALE")).isNull();
+    }
+
+    @Test
+    void validateRejectsMalformedRows() {
+        assertThat(CustomerCsvIngester.validate(List.of("a", "b@c", "20", "male"))).isNull();
+        assertThat(CustomerCsvIngester.validate(List.of("a", "b@c", "20"))).isEqualTo("MALFORMED");
+        assertThat(CustomerCsvIngester.validate(List.of(" ", "b@c", "20", "MALE"))).isEqualTo("MISSING_NAME");
+        assertThat(CustomerCsvIngester.validate(List.of("a", "", "20", "MALE"))).isEqualTo("MISSING_EMAIL");
+        assertThat(CustomerCsvIngester.validate(List.of("a", "b@c", "-1", "MALE"))).isEqualTo("INVALID_AGE");
+        assertThat(CustomerCsvIngester.validate(List.of("a", "b@c", "20", "X"))).isEqualTo("INVALID_GENDER");
+    }
+}
@@ -0,0 +1,88 @@
+package com.johan.repository;
+
+import com.johan.AbstractTestContainers;
+import com.johan.model.Customer;
+import com.johan.model.CustomerRowMapper;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// mvn test -Dtest=CustomerDaoThroughputBenchmark -Dbenchmark=true -Dbenchmark.threads=16
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CustomerDaoThroughputBenchmark extends AbstractTestContainers {
+
+    private static final int ROWS = 10_000;
+    private static final int THREADS = Integer.getInteger("benchmark.threads", Runtime.getRuntime().availableProcessors());
+    private static final long DURATION_MILLIS = Long.getLong("benchmark.millis", 5_000);
+
+    @Test
+    void listVersusJdbc() throws Exception {
+        // GIVEN
+        CustomerDao list = new CustomerListDataAccessService(List.of());
+        CustomerDao jdbc = new CustomerJDBCAccessService(getJdbcTemplate(), new CustomerRowMapper());
+        String run = UUID.randomUUID().toString();
+        List<Integer> listIds = seed(list, run + "-list");
+        List<Integer> jdbcIds = seed(jdbc, run + "-jdbc");
+
+        // When
+        long listReads = measure(i -> list.getByCustomerId(listIds.get(ThreadLocalRandom.current().nextInt(listIds.size()))));
+        long jdbcReads = measure(i -> jdbc.getByCustomerId(jdbcIds.get(ThreadLocalRandom.current().nextInt(jdbcIds.size()))));
+        long listWrites = measure(i -> list.insertCustomerIfAbsent(customer(UUID.randomUUID().toString())));
+        long jdbcWrites = measure(i -> jdbc.insertCustomerIfAbsent(customer(UUID.randomUUID().toString())));
+
+        // Then
+        System.out.printf("%d threads, %d ms per run%n", THREADS, DURATION_MILLIS);
+        System.out.printf("getByCustomerId:        list %,12d ops/s   jdbc %,10d ops/s%n", listReads, jdbcReads);
+        System.out.printf("insertCustomerIfAbsent: list %,12d ops/s   jdbc %,10d ops/s%n", listWrites, jdbcWrites);
+        assertThat(listReads).isPositive();
+        assertThat(jdbcReads).isPositive();
+    }
+
+    private static List<Integer> seed(CustomerDao dao, String run) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            dao.insertCustomerIfAbsent(customer(i + "-" + run))
+                    .ifPresent(id -> ids.add(id.intValue()));
+        }
+        return ids;
+    }
+
+    private static Customer customer(String key) {
+        return new Customer("customer " + key, "customer-" + key + "@johan.com", 30, Gender.FEMALE);
+    }
+
+    // runs the operation from every thread for a fixed time and returns completed operations per second
+    private static long measure(IntConsumer operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                long ops = 0;
+                while (System.nanoTime() < deadline) {
+                    operation.accept((int) ops);
+                    ops++;
+                }
+                return ops;
+            }));
+        }
+        long total = 0;
+        for (Future<Long> future : futures) {
+            total += future.get();
+        }
+        executor.shutdown();
+        return total * 1000 / DURATION_MILLIS;
+    }
+}
@@ -2,14 +2,30 @@ package com.johan.repository;
 
 import com.johan.AbstractTestContainers;
 import com.johan.model.Customer;
+import com.johan.model.CustomerCollectionVersion;
+import com.johan.model.CustomerCursor;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerPatchResult;
 import com.johan.model.CustomerRowMapper;
+import com.johan.model.CustomerSearchMatch;
+import com.johan.model.CustomerSort;
 import com.johan.model.Gender;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -45,6 +61,28 @@ class CustomerJDBCAccessServiceTest extends AbstractTestContainers {
 
     }
 
+    @Test
+    void streamAllCustomers() {
+        // GIVEN
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(
+                FAKER.name().firstName(),
+                email,
+                20,
+                Gender.MALE);
+        underTest.insertCustomer(customer);
+
+        // When
+        List<Customer> actual;
+        try (Stream<Customer> customers = underTest.streamAllCustomers()) {
+            actual = customers.toList();
+        }
+
+        // Then
+        assertThat(actual).extracting(Customer::getEmail).contains(email);
+        assertThat(actual).isSortedAccordingTo(Comparator.comparing(Customer::getId));
+    }
+
     @Test
     void getByCustomerId() {
         // GIVEN
@@ -141,6 +179,91 @@ class CustomerJDBCAccessServiceTest extends AbstractTestContainers {
     }
 
 
+    @Test
+    void insertCustomerIfAbsentReturnsGeneratedId() {
+        // GIVEN
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(FAKER.name().fullName(), email, 25, Gender.MALE);
+
+        // When
+        Optional<Long> actual = underTest.insertCustomerIfAbsent(customer);
+
+        // Then
+        assertThat(actual).isPresent();
+        assertThat(underTest.getByCustomerId(actual.get().intValue()))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo(email));
+    }
+
+    @Test
+    void insertCustomerIfAbsentReturnsEmptyWhenEmailTaken() {
+        // GIVEN
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 25, Gender.MALE));
+
+        // When
+        Optional<Long> actual = underTest.insertCustomerIfAbsent(
+                new Customer(FAKER.name().fullName(), email, 30, Gender.FEMALE));
+
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void insertCustomerIfAbsentAdmitsOneOfManyConcurrentSignups() throws Exception {
+        // GIVEN
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Optional<Long>>> signups = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            signups.add(() -> underTest.insertCustomerIfAbsent(
+                    new Customer(FAKER.name().fullName(), email, 25, Gender.MALE)));
+        }
+
+        // When
+        List<Optional<Long>> actual = new ArrayList<>();
+        try {
+            for (Future<Optional<Long>> result : executor.invokeAll(signups)) {
+                actual.add(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Then
+        assertThat(actual).filteredOn(Optional::isPresent).hasSize(1);
+    }
+
+    @Test
+    void insertCustomersSkipsEmailsAlreadyTaken() {
+        // GIVEN
+        String taken = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String fresh = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), taken, 25, Gender.MALE));
+
+        // When
+        int[] actual = underTest.insertCustomers(List.of(
+                new Customer(FAKER.name().fullName(), taken, 30, Gender.MALE),
+                new Customer(FAKER.name().fullName(), fresh, 31, Gender.FEMALE)));
+
+        // Then
+        assertThat(actual).containsExactly(0, 1);
+        assertThat(underTest.existsPersonWithEmail(fresh)).isTrue();
+    }
+
+    @Test
+    void selectExistingEmails() {
+        // GIVEN
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String missing = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 25, Gender.MALE));
+
+        // When
+        Set<String> actual = underTest.selectExistingEmails(List.of(email, missing));
+
+        // Then
+        assertThat(actual).containsExactly(email);
+    }
+
     @Test
     void deleteCustomer() {
         // GIVEN
@@ -159,11 +282,13 @@ class CustomerJDBCAccessServiceTest extends AbstractTestContainers {
                 .orElseThrow();
 
         // When
-        underTest.deleteCustomer(id.intValue());
+        Optional<Customer> deleted = underTest.deleteCustomer(id.intValue());
 
         // Then
+        assertThat(deleted).map(Customer::getEmail).contains(email);
         Optional<Customer> actual = underTest.getByCustomerId(id.intValue());
         assertThat(actual).isNotPresent();
+        assertThat(underTest.deleteCustomer(id.intValue())).isEmpty();
 
     }
 
@@ -235,4 +360,286 @@ class CustomerJDBCAccessServiceTest extends AbstractTestContainers {
         });
 
     }
+
+    @Test
+    void selectCustomerPageSeeksPastCursor() {
+        // GIVEN
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+            underTest.insertCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    email,
+                    20 + i,
+                    Gender.FEMALE));
+            ids.add(underTest.selectAllCustomer().stream()
+                    .filter(c -> c.getEmail().equals(email))
+                    .map(Customer::getId)
+                    .findFirst()
+                    .orElseThrow());
+        }
+
+        // When
+        List<Customer> actual = underTest.selectCustomerPage(
+                CustomerSort.ID,
+                new CustomerCursor(CustomerSort.ID, null, ids.get(0)),
+                2);
+
+        // Then
+        assertThat(actual).extracting(Customer::getId)
+                .containsExactly(ids.get(1), ids.get(2));
+    }
+
+    @Test
+    void selectCustomerPageOrdersBySortKeyThenId() {
+        // GIVEN
+        underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                30,
+                Gender.MALE));
+
+        // When
+        List<Customer> actual = underTest.selectCustomerPage(CustomerSort.AGE, null, 50);
+
+        // Then
+        assertThat(actual).isNotEmpty()
+                .isSortedAccordingTo(Comparator.comparing(Customer::getAge)
+                        .thenComparing(Customer::getId));
+    }
+
+    @Test
+    void patchCustomerUpdatesOnlyGivenColumns() {
+        // GIVEN
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.insertCustomerIfAbsent(
+                new Customer(FAKER.name().fullName(), email, 25, Gender.MALE)).orElseThrow();
+        Customer changes = new Customer();
+        changes.setAge(26);
+
+        // When
+        CustomerPatchResult actual = underTest.patchCustomer(id.intValue(), changes);
+
+        // Then
+        assertThat(actual.status()).isEqualTo(CustomerPatchResult.Status.UPDATED);
+        assertThat(actual.customer().getAge()).isEqualTo(26);
+        assertThat(actual.customer().getEmail()).isEqualTo(email);
+        assertThat(actual.previous().getAge()).isEqualTo(25);
+        assertThat(actual.previous().getEmail()).isEqualTo(email);
+    }
+
+    @Test
+    void updateCustomerWithVersionOnlyAppliesAtThatVersion() {
+        // GIVEN
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.insertCustomerIfAbsent(
+                new Customer(FAKER.name().fullName(), email, 25, Gender.MALE)).orElseThrow();
+        Customer update = underTest.getByCustomerId(id.intValue()).orElseThrow();
+        update.setAge(26);
+
+        // When
+        boolean first = underTest.updateCustomer(update, 0);
+        update.setAge(27);
+        boolean stale = underTest.updateCustomer(update, 0);
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(stale).isFalse();
+        assertThat(underTest.getByCustomerId(id.intValue())).hasValueSatisfying(c -> {
+            assertThat(c.getAge()).isEqualTo(26);
+            assertThat(c.getVersion()).isEqualTo(1L);
+        });
+    }
+
+    @Test
+    void writesBumpVersionAndCollectionVersion() {
+        // GIVEN
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.insertCustomerIfAbsent(
+                new Customer(FAKER.name().fullName(), email, 25, Gender.FEMALE)).orElseThrow();
+        CustomerFilter filter = new CustomerFilter(Gender.FEMALE, 25, 25);
+        CustomerCollectionVersion before = underTest.collectionVersion(filter);
+        Customer changes = new Customer();
+        changes.setName("Renamed");
+
+        // When
+        CustomerPatchResult patched = underTest.patchCustomer(id.intValue(), changes);
+        CustomerCollectionVersion after = underTest.collectionVersion(filter);
+
+        // Then
+        assertThat(patched.customer().getVersion()).isEqualTo(1L);
+        assertThat(patched.previous().getVersion()).isEqualTo(0L);
+        assertThat(after.customers()).isEqualTo(before.customers());
+        assertThat(after.checksum()).isNotEqualTo(before.checksum());
+    }
+
+    @Test
+    void patchCustomerReportsUnchangedNotFoundAndEmailTaken() {
+        // GIVEN
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String other = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.insertCustomerIfAbsent(
+                new Customer(FAKER.name().fullName(), email, 25, Gender.MALE)).orElseThrow();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), other, 25, Gender.MALE));
+
+        Customer same = new Customer();
+        same.setAge(25);
+        Customer empty = new Customer();
+        Customer taken = new Customer();
+        taken.setEmail(other);
+
+        // When
+        // Then
+        assertThat(underTest.patchCustomer(id.intValue(), same).status())
+                .isEqualTo(CustomerPatchResult.Status.UNCHANGED);
+        assertThat(underTest.patchCustomer(-1, same).status())
+                .isEqualTo(CustomerPatchResult.Status.NOT_FOUND);
+        assertThat(underTest.patchCustomer(id.intValue(), empty).status())
+                .isEqualTo(CustomerPatchResult.Status.UNCHANGED);
+        assertThat(underTest.patchCustomer(-1, empty).status())
+                .isEqualTo(CustomerPatchResult.Status.NOT_FOUND);
+        assertThat(underTest.patchCustomer(id.intValue(), taken).status())
+                .isEqualTo(CustomerPatchResult.Status.EMAIL_TAKEN);
+    }
+
+    @Test
+    void searchMatchesNameOrEmailIgnoringCase() {
+        // GIVEN
+        String marker = UUID.randomUUID().toString().substring(0, 8);
+        Long byName = underTest.insertCustomerIfAbsent(
+                new Customer("Search" + marker, UUID.randomUUID() + "@johan.com", 25, Gender.MALE)).orElseThrow();
+        Long byEmail = underTest.insertCustomerIfAbsent(
+                new Customer(FAKER.name().fullName(), "x" + marker + "@johan.com", 25, Gender.MALE)).orElseThrow();
+
+        // When
+        List<Customer> substring = underTest.searchCustomers(marker.toUpperCase(), CustomerSearchMatch.SUBSTRING, 10);
+        List<Customer> prefix = underTest.searchCustomers("search" + marker, CustomerSearchMatch.PREFIX, 10);
+
+        // Then
+        assertThat(substring).extracting(Customer::getId).containsExactly(byName, byEmail);
+        assertThat(prefix).extracting(Customer::getId).containsExactly(byName);
+    }
+
+    @Test
+    void searchTreatsWildcardsLiterally() {
+        // GIVEN
+        underTest.insertCustomerIfAbsent(
+                new Customer(FAKER.name().fullName(), UUID.randomUUID() + "@johan.com", 25, Gender.MALE));
+
+        // When
+        List<Customer> actual = underTest.searchCustomers("%_%", CustomerSearchMatch.SUBSTRING, 10);
+
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void selectCustomerPageFiltersByGenderAndAgeRange() {
+        // GIVEN
+        String name = "filter-" + UUID.randomUUID();
+        for (int age = 20; age < 40; age++) {
+            underTest.insertCustomerIfAbsent(new Customer(name, UUID.randomUUID() + "@johan.com", age,
+                    age % 2 == 0 ? Gender.MALE : Gender.FEMALE));
+        }
+        CustomerFilter filter = new CustomerFilter(Gender.FEMALE, 25, 34);
+
+        // When
+        List<Customer> actual = new ArrayList<>();
+        CustomerCursor cursor = null;
+        List<Customer> page;
+        do {
+            page = underTest.selectCustomerPage(filter, CustomerSort.AGE, cursor, 50);
+            actual.addAll(page);
+            cursor = page.isEmpty() ? null : CustomerCursor.of(CustomerSort.AGE, page.get(page.size() - 1));
+        } while (page.size() == 50);
+
+        // Then
+        assertThat(actual).allMatch(filter::matches);
+        assertThat(actual).filteredOn(c -> c.getName().equals(name))
+                .extracting(Customer::getAge)
+                .containsExactly(25, 27, 29, 31, 33);
+    }
+
+    @Test
+    void selectCustomerPageReadsOnlyRequestedColumns() {
+        // GIVEN
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20, Gender.MALE));
+        long id = underTest.selectAllCustomer()
+                .stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        // When
+        List<Customer> page = underTest.selectCustomerPage(CustomerFilter.NONE, EnumSet.of(CustomerField.EMAIL),
+                CustomerSort.AGE, new CustomerCursor(CustomerSort.AGE, "20", id - 1), 1);
+        Optional<Customer> byId = underTest.getByCustomerId((int) id, EnumSet.of(CustomerField.GENDER));
+
+        // Then
+        assertThat(page).singleElement().satisfies(c -> {
+            // the id and the sort key are read for the next cursor
+            assertThat(c.getId()).isEqualTo(id);
+            assertThat(c.getAge()).isEqualTo(20);
+            assertThat(c.getEmail()).isEqualTo(email);
+            assertThat(c.getName()).isNull();
+            assertThat(c.getGender()).isNull();
+        });
+        assertThat(byId).hasValueSatisfying(c -> {
+            assertThat(c.getGender()).isEqualTo(Gender.MALE);
+            assertThat(c.getName()).isNull();
+            assertThat(c.getEmail()).isNull();
+        });
+    }
+
+    @Test
+    void streamCustomersAppliesFilterAndReadsOnlyRequestedColumns() {
+        // GIVEN
+        String name = "stream-" + UUID.randomUUID();
+        for (int age = 20; age < 30; age++) {
+            underTest.insertCustomerIfAbsent(new Customer(name, UUID.randomUUID() + "@johan.com", age, Gender.FEMALE));
+        }
+        CustomerFilter filter = new CustomerFilter(Gender.FEMALE, 25, 26);
+
+        // When
+        List<Customer> actual;
+        try (Stream<Customer> customers = underTest.streamCustomers(filter, EnumSet.of(CustomerField.AGE))) {
+            actual = customers.toList();
+        }
+
+        // Then
+        assertThat(actual).isSortedAccordingTo(Comparator.comparing(Customer::getId));
+        assertThat(actual).allSatisfy(c -> {
+            assertThat(c.getAge()).isBetween(25, 26);
+            assertThat(c.getName()).isNull();
+        });
+    }
+
+    @Test
+    void pageSqlContainsOnlyFilterShape() {
+        // When
+        String actual = CustomerJDBCAccessService.pageSql(new CustomerFilter(Gender.FEMALE, null, 34),
+                EnumSet.of(CustomerField.ID, CustomerField.NAME), CustomerSort.NAME, true);
+
+        // Then
+        assertThat(actual)
+                .contains("SELECT id, name, version\n")
+                .contains("WHERE gender = ? AND age <= ? AND (name, id) > (?, ?)")
+                .contains("ORDER BY name, id")
+                .doesNotContain("FEMALE")
+                .doesNotContain("age >= ?");
+    }
+
+    @Test
+    void patchSqlIsBuiltForChangedColumnsOnly() {
+        // When
+        String actual = CustomerJDBCAccessService.patchSql(0b0101);
+
+        // Then
+        assertThat(actual)
+                .contains("SET name = ?, age = ?")
+                .contains("name IS DISTINCT FROM ? OR age IS DISTINCT FROM ?")
+                .doesNotContain("email = ?");
+    }
 }
\ No newline at end of file
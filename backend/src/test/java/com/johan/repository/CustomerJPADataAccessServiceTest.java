@@ -1,13 +1,31 @@
 package com.johan.repository;
 
 import com.johan.model.Customer;
+import com.johan.model.CustomerCursor;
+import com.johan.model.CustomerPatchResult;
+import com.johan.model.CustomerSort;
 import com.johan.model.Gender;
+import jakarta.persistence.EntityManager;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class CustomerJPADataAccessServiceTest {
 
@@ -16,11 +34,13 @@ class CustomerJPADataAccessServiceTest {
 
     @Mock
     private CustomerRepository customerRepository;
+    @Mock
+    private EntityManager entityManager;
 
     @BeforeEach
     void setUp() {
         autoCloseable = MockitoAnnotations.openMocks(this);
-        underTest = new CustomerJPADataAccessService(customerRepository);
+        underTest = new CustomerJPADataAccessService(customerRepository, entityManager);
     }
 
     @AfterEach
@@ -38,6 +58,23 @@ class CustomerJPADataAccessServiceTest {
                 .findAll();
     }
 
+    @Test
+    void streamAllCustomersDetachesEachRow() {
+        // GIVEN
+        Customer customer = new Customer(
+                1L, "johan", "johan@gmail.com", 2,
+                Gender.MALE);
+        Mockito.when(customerRepository.streamAll())
+                .thenReturn(Stream.of(customer));
+
+        // When
+        List<Customer> actual = underTest.streamAllCustomers().toList();
+
+        // Then
+        assertThat(actual).containsExactly(customer);
+        Mockito.verify(entityManager).detach(customer);
+    }
+
     @Test
     void getByCustomerId() {
         // GIVEN
@@ -56,15 +93,88 @@ class CustomerJPADataAccessServiceTest {
     void insertCustomer() {
         // GIVEN
         Customer customer = new Customer(
-                1L, "johan", "johan@gmail.com", 2,
+                "johan", "johan@gmail.com", 2,
                 Gender.MALE);
+        Mockito.when(customerRepository.insertCustomer("johan", "johan@gmail.com", 2, "MALE",
+                        CustomerChangeNotifier.CHANNEL))
+                .thenReturn(1L);
 
         // When
         underTest.insertCustomer(customer);
 
+        // Then
+        assertThat(customer.getId()).isEqualTo(1L);
+        assertThat(customer.getVersion()).isZero();
+        Mockito.verify(customerRepository, Mockito.never())
+                .save(Mockito.any());
+    }
+
+    @Test
+    void insertCustomerIfAbsent() {
+        // GIVEN
+        Customer customer = new Customer(
+                "johan", "johan@gmail.com", 2,
+                Gender.MALE);
+
+        // When
+        underTest.insertCustomerIfAbsent(customer);
+
         // Then
         Mockito.verify(customerRepository)
-                .save(customer);
+                .insertIfAbsent("johan", "johan@gmail.com", 2, "MALE", CustomerChangeNotifier.CHANNEL);
+    }
+
+    @Test
+    void insertCustomers() {
+        // GIVEN
+        List<Customer> customers = List.of(
+                new Customer("johan", "johan@gmail.com", 2, Gender.MALE),
+                new Customer("budi", "budi@gmail.com", 3, Gender.MALE),
+                new Customer("johan", "johan@gmail.com", 4, Gender.MALE));
+        Mockito.when(customerRepository.insertAllIfAbsent(
+                        new String[]{"johan", "budi", "johan"},
+                        new String[]{"johan@gmail.com", "budi@gmail.com", "johan@gmail.com"},
+                        new Integer[]{2, 3, 4},
+                        new String[]{"MALE", "MALE", "MALE"},
+                        CustomerChangeNotifier.CHANNEL,
+                        CustomerChangeNotifier.INSERTED))
+                .thenReturn(List.of("johan@gmail.com"));
+
+        // When
+        int[] actual = underTest.insertCustomers(customers);
+
+        // Then
+        Mockito.verify(customerRepository, Mockito.never())
+                .saveAll(Mockito.any());
+        assertThat(actual).containsExactly(1, 0, 0);
+    }
+
+    @Test
+    void insertCustomersAllTakenCountsNothing() {
+        // GIVEN
+        List<Customer> customers = List.of(new Customer("johan", "johan@gmail.com", 2, Gender.MALE));
+        Mockito.when(customerRepository.insertAllIfAbsent(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(),
+                        Mockito.any(), Mockito.any()))
+                .thenReturn(List.of());
+
+        // When
+        int[] actual = underTest.insertCustomers(customers);
+
+        // Then
+        assertThat(actual).containsExactly(0);
+    }
+
+    @Test
+    void selectExistingEmails() {
+        // GIVEN
+        List<String> emails = List.of("johan@gmail.com");
+
+        // When
+        underTest.selectExistingEmails(emails);
+
+        // Then
+        Mockito.verify(customerRepository)
+                .findExistingEmails(emails);
     }
 
     @Test
@@ -84,13 +194,30 @@ class CustomerJPADataAccessServiceTest {
     void deleteCustomer() {
         // GIVEN
         int id = 1;
+        Customer customer = new Customer(1L, "johan", "johan@gmail.com", 20, Gender.MALE);
+        Mockito.when(customerRepository.deleteCustomerById(1L, CustomerChangeNotifier.CHANNEL))
+                .thenReturn(Optional.of(customer));
 
         // When
-        underTest.deleteCustomer(id);
+        Optional<Customer> actual = underTest.deleteCustomer(id);
 
         // Then
-        Mockito.verify(customerRepository)
-                .deleteById(id);
+        assertThat(actual).contains(customer);
+        Mockito.verify(customerRepository, Mockito.never())
+                .findById(Mockito.any());
+    }
+
+    @Test
+    void deleteMissingCustomerReturnsNothing() {
+        // GIVEN
+        Mockito.when(customerRepository.deleteCustomerById(1L, CustomerChangeNotifier.CHANNEL))
+                .thenReturn(Optional.empty());
+
+        // When
+        Optional<Customer> actual = underTest.deleteCustomer(1);
+
+        // Then
+        assertThat(actual).isEmpty();
     }
 
     @Test
@@ -100,11 +227,185 @@ class CustomerJPADataAccessServiceTest {
                 1L, "johan", "johan@gmail.com", 2,
                 Gender.MALE);
 
+        Mockito.when(customerRepository.updateCustomer(1L, "johan", "johan@gmail.com", 2, "MALE",
+                        CustomerChangeNotifier.CHANNEL))
+                .thenReturn(Optional.of(4L));
+
+        // When
+        underTest.updateCustomer(customer);
+
+        // Then
+        assertThat(customer.getVersion()).isEqualTo(4L);
+        Mockito.verify(customerRepository, Mockito.never())
+                .save(Mockito.any());
+    }
+
+    @Test
+    void updateMissingCustomerKeepsVersion() {
+        // GIVEN
+        Customer customer = new Customer(
+                1L, "johan", "johan@gmail.com", 2,
+                Gender.MALE);
+        Mockito.when(customerRepository.updateCustomer(1L, "johan", "johan@gmail.com", 2, "MALE",
+                        CustomerChangeNotifier.CHANNEL))
+                .thenReturn(Optional.empty());
+
         // When
         underTest.updateCustomer(customer);
 
+        // Then
+        assertThat(customer.getVersion()).isNull();
+    }
+
+    @Test
+    void selectCustomerPageWithoutCursor() {
+        // When
+        underTest.selectCustomerPage(CustomerSort.NAME, null, 10);
+
         // Then
         Mockito.verify(customerRepository)
-                .save(customer);
+                .findPage(PageRequest.of(0, 10, Sort.by("name", "id")));
+    }
+
+    @Test
+    void selectCustomerPageAfterCursor() {
+        // GIVEN
+        CustomerCursor cursor = new CustomerCursor(CustomerSort.AGE, "30", 7L);
+
+        // When
+        underTest.selectCustomerPage(CustomerSort.AGE, cursor, 10);
+
+        // Then
+        Mockito.verify(customerRepository)
+                .findPageAfterAge(30, 7L, PageRequest.of(0, 10, Sort.by("age", "id")));
+    }
+
+    @Test
+    void patchCustomerReturnsNotFoundWhenMissing() {
+        // GIVEN
+        Mockito.when(customerRepository.findById(1))
+                .thenReturn(Optional.empty());
+
+        // When
+        CustomerPatchResult actual = underTest.patchCustomer(1, new Customer());
+
+        // Then
+        assertThat(actual.status()).isEqualTo(CustomerPatchResult.Status.NOT_FOUND);
+        Mockito.verifyNoMoreInteractions(customerRepository);
+    }
+
+    @Test
+    void patchCustomerSavesChangedFields() {
+        // GIVEN
+        Customer customer = new Customer(
+                1L, "johan", "johan@gmail.com", 2,
+                Gender.MALE);
+        customer.setVersion(3L);
+        Mockito.when(customerRepository.findById(1))
+                .thenReturn(Optional.of(customer));
+        Mockito.when(customerRepository.updateIfVersion(1L, 3L, "joko", "johan@gmail.com", 2, "MALE",
+                        CustomerChangeNotifier.CHANNEL))
+                .thenReturn(Optional.of(4L));
+        Customer changes = new Customer();
+        changes.setName("joko");
+
+        // When
+        CustomerPatchResult actual = underTest.patchCustomer(1, changes);
+
+        // Then
+        assertThat(actual.status()).isEqualTo(CustomerPatchResult.Status.UPDATED);
+        assertThat(actual.customer().getName()).isEqualTo("joko");
+        assertThat(actual.customer().getVersion()).isEqualTo(4L);
+        // the loaded entity is left as read, so nothing else is flushed at commit
+        assertThat(customer.getName()).isEqualTo("johan");
+        Mockito.verify(customerRepository, Mockito.never()).saveAndFlush(Mockito.any());
+    }
+
+    @Test
+    void patchCustomerToTakenEmailReportsEmailTaken() {
+        // GIVEN
+        Customer customer = new Customer(
+                1L, "johan", "johan@gmail.com", 2,
+                Gender.MALE);
+        customer.setVersion(3L);
+        Mockito.when(customerRepository.findById(1))
+                .thenReturn(Optional.of(customer));
+        // what HibernateJpaDialect makes of the unique violation
+        Mockito.when(customerRepository.updateIfVersion(1L, 3L, "johan", "taken@gmail.com", 2, "MALE",
+                        CustomerChangeNotifier.CHANNEL))
+                .thenThrow(new DataIntegrityViolationException("could not execute statement",
+                        new ConstraintViolationException("could not execute statement",
+                                new SQLException("duplicate key value", "23505"), "customer_email_constraint")));
+        Customer changes = new Customer();
+        changes.setEmail("taken@gmail.com");
+
+        // When
+        CustomerPatchResult actual = underTest.patchCustomer(1, changes);
+
+        // Then
+        assertThat(actual.status()).isEqualTo(CustomerPatchResult.Status.EMAIL_TAKEN);
+    }
+
+    @Test
+    void patchCustomerRethrowsOtherViolations() {
+        // GIVEN
+        Customer customer = new Customer(
+                1L, "johan", "johan@gmail.com", 2,
+                Gender.MALE);
+        customer.setVersion(3L);
+        Mockito.when(customerRepository.findById(1))
+                .thenReturn(Optional.of(customer));
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement",
+                        new SQLException("value too long", "22001"), null));
+        Mockito.when(customerRepository.updateIfVersion(1L, 3L, "joko", "johan@gmail.com", 2, "MALE",
+                        CustomerChangeNotifier.CHANNEL))
+                .thenThrow(violation);
+        Customer changes = new Customer();
+        changes.setName("joko");
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.patchCustomer(1, changes))
+                .isSameAs(violation);
+    }
+
+    @Test
+    void patchCustomerChangedMeanwhileThrows() {
+        // GIVEN
+        Customer customer = new Customer(
+                1L, "johan", "johan@gmail.com", 2,
+                Gender.MALE);
+        customer.setVersion(3L);
+        Mockito.when(customerRepository.findById(1))
+                .thenReturn(Optional.of(customer));
+        Mockito.when(customerRepository.updateIfVersion(1L, 3L, "joko", "johan@gmail.com", 2, "MALE",
+                        CustomerChangeNotifier.CHANNEL))
+                .thenReturn(Optional.empty());
+        Customer changes = new Customer();
+        changes.setName("joko");
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.patchCustomer(1, changes))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    void updateCustomerToTakenEmailThrowsDuplicateKey() {
+        // GIVEN
+        Customer customer = new Customer(
+                1L, "johan", "taken@gmail.com", 2,
+                Gender.MALE);
+        Mockito.when(customerRepository.updateCustomer(1L, "johan", "taken@gmail.com", 2, "MALE",
+                        CustomerChangeNotifier.CHANNEL))
+                .thenThrow(new DataIntegrityViolationException("could not execute statement",
+                        new ConstraintViolationException("could not execute statement",
+                                new SQLException("duplicate key value", "23505"), "customer_email_constraint")));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(customer))
+                .isInstanceOf(DuplicateKeyException.class);
     }
-}
\ No newline at end of file
+}
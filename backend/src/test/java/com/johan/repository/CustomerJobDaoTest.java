@@ -0,0 +1,204 @@
+package com.johan.repository;
+
+import com.johan.AbstractTestContainers;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerJob;
+import com.johan.model.CustomerJobStatus;
+import com.johan.model.CustomerJobType;
+import com.johan.model.CustomerRegistrationRequest;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerJobDaoTest extends AbstractTestContainers {
+
+    private CustomerJobDao underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerJobDao(getJdbcTemplate());
+    }
+
+    @Test
+    void insertJobStartsQueued() {
+        // When
+        CustomerJob job = underTest.insertJob(CustomerJobType.EXPORT, "{}", 10);
+
+        // Then
+        CustomerJob actual = underTest.findJob(job.id()).orElseThrow();
+        assertThat(actual.status()).isEqualTo(CustomerJobStatus.QUEUED);
+        assertThat(actual.total()).isEqualTo(10);
+        assertThat(actual.processed()).isZero();
+        assertThat(actual.lastKey()).isZero();
+    }
+
+    @Test
+    void readItemsPagesBySequence() {
+        // GIVEN
+        CustomerJob job = underTest.insertJob(CustomerJobType.IMPORT, null, 3);
+        underTest.insertItems(job.id(), List.of(
+                new CustomerRegistrationRequest("A", "a@johan.com", 20, Gender.MALE),
+                new CustomerRegistrationRequest("B", "b@johan.com", null, null),
+                new CustomerRegistrationRequest("C", "c@johan.com", 40, Gender.FEMALE)));
+
+        // When
+        List<CustomerJobDao.Item> first = underTest.readItems(job.id(), 0, 2);
+        List<CustomerJobDao.Item> rest = underTest.readItems(job.id(), first.get(1).seq(), 2);
+
+        // Then
+        assertThat(first).extracting(CustomerJobDao.Item::seq).containsExactly(1, 2);
+        assertThat(first.get(1).request()).isEqualTo(new CustomerRegistrationRequest("B", "b@johan.com", null, null));
+        assertThat(rest).extracting(item -> item.request().name()).containsExactly("C");
+    }
+
+    @Test
+    void claimNextTakesQueuedJobOnlyOnce() {
+        // GIVEN
+        CustomerJob job = underTest.insertJob(CustomerJobType.EXPORT, "{}", 0);
+        String owner = UUID.randomUUID().toString();
+
+        // When
+        List<Long> claimed = claimAll(owner, Duration.ofHours(1));
+        List<Long> again = claimAll(UUID.randomUUID().toString(), Duration.ofHours(1));
+
+        // Then
+        assertThat(claimed).contains(job.id());
+        assertThat(again).doesNotContain(job.id());
+        assertThat(underTest.findJob(job.id()).orElseThrow().status()).isEqualTo(CustomerJobStatus.RUNNING);
+        assertThat(underTest.lockRunning(job.id(), owner)).isTrue();
+        assertThat(underTest.lockRunning(job.id(), "someone-else")).isFalse();
+    }
+
+    @Test
+    void claimNextTakesOverStaleJobFromItsPosition() {
+        // GIVEN
+        CustomerJob job = underTest.insertJob(CustomerJobType.EXPORT, "{}", 100);
+        String crashed = UUID.randomUUID().toString();
+        claimAll(crashed, Duration.ofHours(1));
+        underTest.recordProgress(job.id(), 42, 42, 1, 1024);
+
+        // When
+        String owner = UUID.randomUUID().toString();
+        boolean claimed = claimStale(owner, job.id());
+
+        // Then
+        assertThat(claimed).isTrue();
+        CustomerJob actual = underTest.findJob(job.id()).orElseThrow();
+        assertThat(actual.lastKey()).isEqualTo(42);
+        assertThat(actual.processed()).isEqualTo(42);
+        assertThat(actual.failed()).isEqualTo(1);
+        assertThat(actual.outputSize()).isEqualTo(1024);
+        assertThat(underTest.lockRunning(job.id(), crashed)).isFalse();
+        assertThat(underTest.finish(job.id(), crashed, CustomerJobStatus.COMPLETED, null)).isFalse();
+        assertThat(underTest.finish(job.id(), owner, CustomerJobStatus.COMPLETED, null)).isTrue();
+    }
+
+    @Test
+    void resetProgressStartsJobOver() {
+        // GIVEN
+        CustomerJob job = underTest.insertJob(CustomerJobType.EXPORT, "{}", 100);
+        underTest.recordProgress(job.id(), 42, 42, 1, 1024);
+
+        // When
+        underTest.resetProgress(job.id());
+
+        // Then
+        CustomerJob actual = underTest.findJob(job.id()).orElseThrow();
+        assertThat(actual.lastKey()).isZero();
+        assertThat(actual.processed()).isZero();
+        assertThat(actual.failed()).isZero();
+        assertThat(actual.outputSize()).isZero();
+    }
+
+    @Test
+    void requeueHandsRunningJobsBack() {
+        // GIVEN
+        CustomerJob job = underTest.insertJob(CustomerJobType.EXPORT, "{}", 0);
+        String owner = UUID.randomUUID().toString();
+        claimAll(owner, Duration.ofHours(1));
+
+        // When
+        underTest.requeue(owner);
+
+        // Then
+        assertThat(underTest.findJob(job.id()).orElseThrow().status()).isEqualTo(CustomerJobStatus.QUEUED);
+        assertThat(underTest.lockRunning(job.id(), owner)).isFalse();
+    }
+
+    @Test
+    void cancelStopsRunningJobAndDropsItems() {
+        // GIVEN
+        CustomerJob job = underTest.insertJob(CustomerJobType.IMPORT, null, 1);
+        underTest.insertItems(job.id(), List.of(new CustomerRegistrationRequest("A", "a@johan.com", 20, Gender.MALE)));
+        String owner = UUID.randomUUID().toString();
+        claimAll(owner, Duration.ofHours(1));
+
+        // When
+        boolean cancelled = underTest.cancel(job.id());
+
+        // Then
+        assertThat(cancelled).isTrue();
+        assertThat(underTest.cancel(job.id())).isFalse();
+        assertThat(underTest.lockRunning(job.id(), owner)).isFalse();
+        assertThat(underTest.readItems(job.id(), 0, 10)).isEmpty();
+        assertThat(underTest.finish(job.id(), owner, CustomerJobStatus.COMPLETED, null)).isFalse();
+        assertThat(underTest.findJob(job.id()).orElseThrow().status()).isEqualTo(CustomerJobStatus.CANCELLED);
+    }
+
+    @Test
+    void updateCustomersPagesThroughMatchingCustomers() {
+        // GIVEN
+        // an age no other test uses, so the filter covers exactly these rows
+        int age = 143;
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            rows.add(new Object[]{FAKER.name().fullName(), "job-" + UUID.randomUUID() + "@johan.com", age});
+        }
+        getJdbcTemplate().batchUpdate("INSERT INTO customer (name, email, age, gender) VALUES (?, ?, ?, 'MALE')", rows);
+        CustomerFilter filter = new CustomerFilter(null, age, age);
+        CustomerRegistrationRequest changes = new CustomerRegistrationRequest("Renamed", null, null, null);
+
+        // When
+        List<Long> first = underTest.updateCustomers(filter, changes, 0, 3);
+        List<Long> rest = underTest.updateCustomers(filter, changes, first.get(first.size() - 1), 3);
+
+        // Then
+        assertThat(first).hasSize(3).isSorted();
+        assertThat(rest).hasSize(2).allMatch(id -> id > first.get(2));
+        assertThat(getJdbcTemplate().queryForList(
+                "SELECT DISTINCT name FROM customer WHERE age = ?", String.class, age)).containsExactly("Renamed");
+        assertThat(getJdbcTemplate().queryForList(
+                "SELECT DISTINCT version FROM customer WHERE age = ?", Long.class, age)).containsExactly(1L);
+    }
+
+    private List<Long> claimAll(String owner, Duration staleAfter) {
+        List<Long> claimed = new ArrayList<>();
+        Optional<CustomerJob> job;
+        while ((job = underTest.claimNext(owner, staleAfter)).isPresent()) {
+            claimed.add(job.get().id());
+        }
+        return claimed;
+    }
+
+    // every running job is stale at zero, including the ones just claimed, so stop at the wanted one
+    private boolean claimStale(String owner, long jobId) {
+        for (int i = 0; i < 100; i++) {
+            Optional<CustomerJob> job = underTest.claimNext(owner, Duration.ZERO);
+            if (job.isEmpty()) {
+                return false;
+            }
+            if (job.get().id() == jobId) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
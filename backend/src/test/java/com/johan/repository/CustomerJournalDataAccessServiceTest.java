@@ -0,0 +1,199 @@
+package com.johan.repository;
+
+import com.johan.model.Customer;
+import com.johan.model.CustomerPatchResult;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerJournalDataAccessServiceTest {
+
+    private static final int JOURNAL_SIZE = 1 << 20;
+
+    @TempDir
+    private Path dir;
+
+    private final List<CustomerJournalDataAccessService> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (CustomerJournalDataAccessService store : opened) {
+            store.close();
+        }
+    }
+
+    @Test
+    void writesSurviveRestart() throws IOException {
+        // GIVEN
+        CustomerJournalDataAccessService underTest = open(dir, JOURNAL_SIZE);
+        int johan = insert(underTest, "johan");
+        int budi = insert(underTest, "budi");
+        int siti = insert(underTest, "siti");
+        Customer updated = underTest.getByCustomerId(johan).orElseThrow();
+        updated.setName("johan updated");
+        underTest.updateCustomer(updated);
+        underTest.patchCustomer(budi, new Customer(null, "budi@yahoo.com", 40, null));
+        underTest.deleteCustomer(siti);
+        List<Customer> expected = underTest.selectAllCustomer();
+        underTest.close();
+        opened.remove(underTest);
+
+        // When
+        CustomerJournalDataAccessService reopened = open(dir, JOURNAL_SIZE);
+
+        // Then
+        assertThat(reopened.selectAllCustomer()).isEqualTo(expected);
+        assertThat(reopened.existsPersonWithEmail("budi@yahoo.com")).isTrue();
+        assertThat(reopened.existsPersonWithEmail("siti@gmail.com")).isFalse();
+        // ids are never handed out twice, not even the deleted one
+        assertThat(insert(reopened, "joko")).isGreaterThan(siti);
+    }
+
+    @Test
+    void recoversAfterCrashWithoutClose() throws IOException {
+        // GIVEN
+        Path store = dir.resolve("store");
+        CustomerJournalDataAccessService underTest = open(store, JOURNAL_SIZE);
+        for (int i = 0; i < 100; i++) {
+            insert(underTest, "customer" + i);
+        }
+        List<Customer> expected = underTest.selectAllCustomer();
+
+        // When
+        // copying the files while the store is still open is what a killed process leaves behind
+        Path crashed = copy(store, Files.createDirectory(dir.resolve("crashed")));
+        CustomerJournalDataAccessService recovered = open(crashed, JOURNAL_SIZE);
+
+        // Then
+        assertThat(recovered.selectAllCustomer()).isEqualTo(expected);
+    }
+
+    @Test
+    void tornLastRecordIsDropped() throws IOException {
+        // GIVEN
+        CustomerJournalDataAccessService underTest = open(dir, JOURNAL_SIZE);
+        insert(underTest, "johan");
+        insert(underTest, "budi");
+        insert(underTest, "siti");
+        underTest.close();
+        opened.remove(underTest);
+        Path journal = newest(dir, "journal");
+        byte[] bytes = Files.readAllBytes(journal);
+        int last = bytes.length - 1;
+        while (bytes[last] == 0) {
+            last--;
+        }
+        bytes[last] ^= 0x5A;
+        Files.write(journal, bytes);
+
+        // When
+        CustomerJournalDataAccessService recovered = open(dir, JOURNAL_SIZE);
+
+        // Then
+        assertThat(recovered.selectAllCustomer())
+                .extracting(Customer::getName)
+                .containsExactly("johan", "budi");
+    }
+
+    @Test
+    void rotationSnapshotsStateAndDeletesOldFiles() throws IOException {
+        // GIVEN
+        CustomerJournalDataAccessService underTest = open(dir, 512);
+
+        // When
+        for (int i = 0; i < 200; i++) {
+            insert(underTest, "customer" + i);
+        }
+        List<Customer> expected = underTest.selectAllCustomer();
+        underTest.close();
+        opened.remove(underTest);
+
+        // Then
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files.filter(path -> path.getFileName().toString().startsWith("snapshot")).count())
+                    .isEqualTo(1);
+        }
+        assertThat(open(dir, 512).selectAllCustomer()).isEqualTo(expected);
+    }
+
+    @Test
+    void incompleteSnapshotFallsBackToOlderOne() throws IOException {
+        // GIVEN
+        CustomerJournalDataAccessService underTest = open(dir, JOURNAL_SIZE);
+        insert(underTest, "johan");
+        insert(underTest, "budi");
+        List<Customer> expected = underTest.selectAllCustomer();
+        underTest.close();
+        opened.remove(underTest);
+        Path snapshot = newest(dir, "snapshot");
+        byte[] bytes = Files.readAllBytes(snapshot);
+        // a newer snapshot that lost its END record, as if the writer died mid-file
+        Files.write(dir.resolve("snapshot-%019d.bin".formatted(Long.MAX_VALUE / 2)),
+                Arrays.copyOf(bytes, bytes.length - 4));
+
+        // When
+        CustomerJournalDataAccessService recovered = open(dir, JOURNAL_SIZE);
+
+        // Then
+        assertThat(recovered.selectAllCustomer()).isEqualTo(expected);
+    }
+
+    @Test
+    void patchOutcomeIsJournaledOnlyWhenUpdated() throws IOException {
+        // GIVEN
+        CustomerJournalDataAccessService underTest = open(dir, JOURNAL_SIZE);
+        int johan = insert(underTest, "johan");
+        insert(underTest, "budi");
+
+        // When
+        CustomerPatchResult taken = underTest.patchCustomer(johan, new Customer(null, "budi@gmail.com", null, null));
+        underTest.close();
+        opened.remove(underTest);
+
+        // Then
+        assertThat(taken.status()).isEqualTo(CustomerPatchResult.Status.EMAIL_TAKEN);
+        assertThat(open(dir, JOURNAL_SIZE).getByCustomerId(johan).orElseThrow().getEmail())
+                .isEqualTo("johan@gmail.com");
+    }
+
+    private CustomerJournalDataAccessService open(Path directory, int journalSize) throws IOException {
+        CustomerJournalDataAccessService store = new CustomerJournalDataAccessService(directory, journalSize);
+        opened.add(store);
+        return store;
+    }
+
+    private static int insert(CustomerJournalDataAccessService store, String name) {
+        return store.insertCustomerIfAbsent(new Customer(name, name + "@gmail.com", 30, Gender.FEMALE))
+                .orElseThrow()
+                .intValue();
+    }
+
+    private static Path newest(Path directory, String kind) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(kind))
+                    .filter(path -> !path.getFileName().toString().endsWith(".tmp"))
+                    .max(Path::compareTo)
+                    .orElseThrow();
+        }
+    }
+
+    private static Path copy(Path from, Path to) throws IOException {
+        try (Stream<Path> files = Files.list(from)) {
+            for (Path file : files.toList()) {
+                Files.copy(file, to.resolve(file.getFileName()));
+            }
+        }
+        return to;
+    }
+}
@@ -0,0 +1,65 @@
+package com.johan.repository;
+
+import com.johan.model.Customer;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// mvn test -Dtest=CustomerJournalRecoveryBenchmark -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CustomerJournalRecoveryBenchmark {
+
+    private static final int JOURNAL_SIZE = 1 << 30;
+    private static final int BATCH = 1_000;
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void recoveryTimeAgainstJournalSize() throws IOException {
+        System.out.printf("%12s %14s %16s %18s%n", "records", "journal bytes", "replay ms", "from snapshot ms");
+        for (int records : new int[]{10_000, 100_000, 1_000_000, 5_000_000}) {
+            // GIVEN
+            Path store = Files.createDirectory(dir.resolve("store-" + records));
+            CustomerJournalDataAccessService writer = new CustomerJournalDataAccessService(store, JOURNAL_SIZE);
+            List<Customer> batch = new ArrayList<>(BATCH);
+            long journalBytes = 0;
+            for (int i = 0; i < records; i++) {
+                Customer customer = new Customer((long) i, "customer " + i, "customer-" + i + "@johan.com", 18 + i % 80,
+                        i % 2 == 0 ? Gender.MALE : Gender.FEMALE);
+                journalBytes += CustomerJournal.encode(CustomerJournal.UPSERT, customer).length;
+                batch.add(customer);
+                if (batch.size() == BATCH) {
+                    writer.insertCustomers(batch);
+                    batch.clear();
+                }
+            }
+            writer.insertCustomers(batch);
+            writer.close();
+
+            // When
+            long started = System.nanoTime();
+            CustomerJournalDataAccessService replayed = new CustomerJournalDataAccessService(store, JOURNAL_SIZE);
+            long replayMillis = (System.nanoTime() - started) / 1_000_000;
+            // closing waits for the startup snapshot, so the next open starts from it
+            replayed.close();
+            started = System.nanoTime();
+            CustomerJournalDataAccessService fromSnapshot = new CustomerJournalDataAccessService(store, JOURNAL_SIZE);
+            long snapshotMillis = (System.nanoTime() - started) / 1_000_000;
+
+            // Then
+            System.out.printf("%,12d %,14d %,16d %,18d%n", records, journalBytes, replayMillis, snapshotMillis);
+            assertThat(fromSnapshot.selectAllCustomer()).hasSize(records);
+            fromSnapshot.close();
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package com.johan.repository;
+
+import com.johan.model.Customer;
+import com.johan.model.CustomerCollectionVersion;
+import com.johan.model.CustomerCursor;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerPatchResult;
+import com.johan.model.CustomerSearchMatch;
+import com.johan.model.CustomerSort;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerListDataAccessServiceTest {
+
+    private static final int THREADS = 8;
+
+    private CustomerListDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerListDataAccessService(List.of());
+    }
+
+    @Test
+    void insertAndGetByCustomerId() {
+        // GIVEN
+        Customer customer = new Customer("johan", "johan@gmail.com", 20, Gender.MALE);
+
+        // When
+        Optional<Long> id = underTest.insertCustomerIfAbsent(customer);
+
+        // Then
+        assertThat(id).isPresent();
+        assertThat(underTest.getByCustomerId(id.get().intValue())).get()
+                .extracting(Customer::getEmail)
+                .isEqualTo("johan@gmail.com");
+        assertThat(underTest.existsPersonWithEmail("johan@gmail.com")).isTrue();
+    }
+
+    @Test
+    void insertRejectsTakenEmail() {
+        // GIVEN
+        underTest.insertCustomer(new Customer("johan", "johan@gmail.com", 20, Gender.MALE));
+
+        // When
+        Optional<Long> actual = underTest.insertCustomerIfAbsent(new Customer("budi", "johan@gmail.com", 30, Gender.MALE));
+
+        // Then
+        assertThat(actual).isEmpty();
+        assertThatThrownBy(() -> underTest.insertCustomer(new Customer("budi", "johan@gmail.com", 30, Gender.MALE)))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void updateWithVersionBumpsVersionAndRejectsStaleOne() {
+        // GIVEN
+        int id = underTest.insertCustomerIfAbsent(new Customer("johan", "johan@gmail.com", 20, Gender.MALE))
+                .orElseThrow().intValue();
+        Customer update = underTest.getByCustomerId(id).orElseThrow();
+        update.setAge(21);
+
+        // When
+        boolean first = underTest.updateCustomer(update, 0);
+        boolean stale = underTest.updateCustomer(update, 0);
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(stale).isFalse();
+        assertThat(underTest.getByCustomerId(id)).get()
+                .extracting(Customer::getVersion)
+                .isEqualTo(1L);
+        assertThat(underTest.collectionVersion(CustomerFilter.NONE).checksum())
+                .isEqualTo(CustomerCollectionVersion.rowHash(id, 1));
+    }
+
+    @Test
+    void collectionVersionChangesWhenUpdateAndFilterChangeCancelOut() {
+        // GIVEN
+        int leaving = underTest.insertCustomerIfAbsent(new Customer("johan", "johan@gmail.com", 30, Gender.MALE))
+                .orElseThrow().intValue();
+        int entering = underTest.insertCustomerIfAbsent(new Customer("budi", "budi@gmail.com", 40, Gender.MALE))
+                .orElseThrow().intValue();
+        underTest.insertCustomer(new Customer("siti", "siti@gmail.com", 30, Gender.FEMALE));
+        Customer renamed = underTest.getByCustomerId(leaving).orElseThrow();
+        renamed.setName("johan budi");
+        underTest.updateCustomer(renamed);
+        CustomerFilter filter = new CustomerFilter(null, 30, 30);
+        CustomerCollectionVersion before = underTest.collectionVersion(filter);
+
+        // When
+        // the same count, highest id and sum of versions as before, but other rows
+        Customer left = underTest.getByCustomerId(leaving).orElseThrow();
+        left.setAge(40);
+        underTest.updateCustomer(left);
+        Customer entered = underTest.getByCustomerId(entering).orElseThrow();
+        entered.setAge(30);
+        underTest.updateCustomer(entered);
+        CustomerCollectionVersion after = underTest.collectionVersion(filter);
+
+        // Then
+        assertThat(after.customers()).isEqualTo(before.customers());
+        assertThat(after).isNotEqualTo(before);
+    }
+
+    @Test
+    void mutatingReturnedCustomerDoesNotChangeStore() {
+        // GIVEN
+        int id = underTest.insertCustomerIfAbsent(new Customer("johan", "johan@gmail.com", 20, Gender.MALE))
+                .orElseThrow().intValue();
+
+        // When
+        underTest.getByCustomerId(id).orElseThrow().setName("budi");
+
+        // Then
+        assertThat(underTest.getByCustomerId(id).orElseThrow().getName()).isEqualTo("johan");
+    }
+
+    @Test
+    void updateCustomerMovesEmailIndex() {
+        // GIVEN
+        int id = underTest.insertCustomerIfAbsent(new Customer("johan", "johan@gmail.com", 20, Gender.MALE))
+                .orElseThrow().intValue();
+        Customer customer = underTest.getByCustomerId(id).orElseThrow();
+        customer.setEmail("johan@yahoo.com");
+
+        // When
+        underTest.updateCustomer(customer);
+
+        // Then
+        assertThat(underTest.existsPersonWithEmail("johan@gmail.com")).isFalse();
+        assertThat(underTest.existsPersonWithEmail("johan@yahoo.com")).isTrue();
+    }
+
+    @Test
+    void updateCustomerToTakenEmailFailsWithoutChanges() {
+        // GIVEN
+        int id = underTest.insertCustomerIfAbsent(new Customer("johan", "johan@gmail.com", 20, Gender.MALE))
+                .orElseThrow().intValue();
+        underTest.insertCustomerIfAbsent(new Customer("budi", "budi@gmail.com", 30, Gender.MALE));
+        Customer customer = underTest.getByCustomerId(id).orElseThrow();
+        customer.setEmail("budi@gmail.com");
+        customer.setName("joko");
+
+        // When / Then
+        assertThatThrownBy(() -> underTest.updateCustomer(customer))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(underTest.getByCustomerId(id).orElseThrow().getName()).isEqualTo("johan");
+        assertThat(underTest.existsPersonWithEmail("johan@gmail.com")).isTrue();
+    }
+
+    @Test
+    void patchCustomerReportsEachOutcome() {
+        // GIVEN
+        int id = underTest.insertCustomerIfAbsent(new Customer("johan", "johan@gmail.com", 20, Gender.MALE))
+                .orElseThrow().intValue();
+        underTest.insertCustomerIfAbsent(new Customer("budi", "budi@gmail.com", 30, Gender.MALE));
+
+        // When
+        CustomerPatchResult updated = underTest.patchCustomer(id, new Customer(null, null, 21, null));
+        CustomerPatchResult unchanged = underTest.patchCustomer(id, new Customer(null, null, 21, null));
+        CustomerPatchResult taken = underTest.patchCustomer(id, new Customer(null, "budi@gmail.com", null, null));
+        CustomerPatchResult missing = underTest.patchCustomer(999, new Customer(null, null, 21, null));
+
+        // Then
+        assertThat(updated.status()).isEqualTo(CustomerPatchResult.Status.UPDATED);
+        assertThat(updated.customer().getAge()).isEqualTo(21);
+        assertThat(unchanged.status()).isEqualTo(CustomerPatchResult.Status.UNCHANGED);
+        assertThat(taken.status()).isEqualTo(CustomerPatchResult.Status.EMAIL_TAKEN);
+        assertThat(missing.status()).isEqualTo(CustomerPatchResult.Status.NOT_FOUND);
+    }
+
+    @Test
+    void deleteCustomerFreesEmail() {
+        // GIVEN
+        int id = underTest.insertCustomerIfAbsent(new Customer("johan", "johan@gmail.com", 20, Gender.MALE))
+                .orElseThrow().intValue();
+
+        // When
+        Optional<Customer> deleted = underTest.deleteCustomer(id);
+
+        // Then
+        assertThat(deleted).map(Customer::getEmail).contains("johan@gmail.com");
+        assertThat(underTest.deleteCustomer(id)).isEmpty();
+        assertThat(underTest.getByCustomerId(id)).isEmpty();
+        assertThat(underTest.insertCustomerIfAbsent(new Customer("johan", "johan@gmail.com", 20, Gender.MALE)))
+                .isPresent();
+    }
+
+    @Test
+    void selectCustomerPageSeeksAfterCursor() {
+        // GIVEN
+        for (int i = 0; i < 10; i++) {
+            underTest.insertCustomerIfAbsent(new Customer("customer " + i, i + "@johan.com", 20 + i, Gender.MALE));
+        }
+
+        // When
+        List<Customer> first = underTest.selectCustomerPage(CustomerSort.ID, null, 4);
+        List<Customer> second = underTest.selectCustomerPage(CustomerSort.ID,
+                CustomerCursor.of(CustomerSort.ID, first.get(3)), 4);
+
+        // Then
+        assertThat(first).extracting(Customer::getId).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(second).extracting(Customer::getId).containsExactly(5L, 6L, 7L, 8L);
+    }
+
+    @Test
+    void selectCustomerPageAppliesFilterBeforeLimit() {
+        // GIVEN
+        for (int i = 0; i < 20; i++) {
+            underTest.insertCustomerIfAbsent(new Customer("customer " + i, i + "@johan.com", 20 + i,
+                    i % 2 == 0 ? Gender.MALE : Gender.FEMALE));
+        }
+        CustomerFilter filter = new CustomerFilter(Gender.FEMALE, 25, 34);
+
+        // When
+        List<Customer> first = underTest.selectCustomerPage(filter, CustomerSort.ID, null, 3);
+        List<Customer> second = underTest.selectCustomerPage(filter, CustomerSort.AGE,
+                CustomerCursor.of(CustomerSort.AGE, first.get(2)), 3);
+
+        // Then
+        assertThat(first).extracting(Customer::getAge).containsExactly(25, 27, 29);
+        assertThat(second).extracting(Customer::getAge).containsExactly(31, 33);
+    }
+
+    @Test
+    void searchFollowsInsertsUpdatesAndDeletes() {
+        // GIVEN
+        int johan = underTest.insertCustomerIfAbsent(new Customer("Johan", "johan@gmail.com", 20, Gender.MALE))
+                .orElseThrow().intValue();
+        int budi = underTest.insertCustomerIfAbsent(new Customer("Budi", "budi@johan.com", 30, Gender.MALE))
+                .orElseThrow().intValue();
+        underTest.insertCustomerIfAbsent(new Customer("Siti", "siti@gmail.com", 25, Gender.FEMALE));
+
+        // When
+        underTest.patchCustomer(johan, new Customer("Joko", "joko@gmail.com", null, null));
+        underTest.deleteCustomer(budi);
+
+        // Then
+        assertThat(underTest.searchCustomers("JOHAN", CustomerSearchMatch.SUBSTRING, 10)).isEmpty();
+        assertThat(underTest.searchCustomers("jok", CustomerSearchMatch.PREFIX, 10))
+                .extracting(Customer::getName)
+                .containsExactly("Joko");
+        assertThat(underTest.searchCustomers("gmail", CustomerSearchMatch.SUBSTRING, 10))
+                .extracting(Customer::getName)
+                .containsExactly("Joko", "Siti");
+        assertThat(underTest.searchCustomers("mail", CustomerSearchMatch.PREFIX, 10)).isEmpty();
+        assertThat(underTest.searchCustomers("gmail", CustomerSearchMatch.SUBSTRING, 1)).hasSize(1);
+    }
+
+    @Test
+    void concurrentInsertsOfSameEmailHaveOneWinner() throws Exception {
+        // GIVEN
+        int emails = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        Map<String, Set<Long>> winners = new ConcurrentHashMap<>();
+
+        // When
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < emails; i++) {
+                    String email = "customer-" + i + "@johan.com";
+                    underTest.insertCustomerIfAbsent(new Customer("customer", email, 20, Gender.MALE))
+                            .ifPresent(id -> winners.computeIfAbsent(email, e -> ConcurrentHashMap.newKeySet()).add(id));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(winners).hasSize(emails);
+        assertThat(winners.values()).allSatisfy(ids -> assertThat(ids).hasSize(1));
+        assertThat(underTest.selectAllCustomer()).hasSize(emails);
+        assertIndexesConsistent();
+    }
+
+    @Test
+    void concurrentEmailChangesKeepIndexesConsistent() throws Exception {
+        // GIVEN
+        int rows = 64;
+        for (int i = 0; i < rows; i++) {
+            underTest.insertCustomerIfAbsent(new Customer("customer", "customer-" + i + "@johan.com", 20, Gender.MALE));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int seed = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 20_000; i++) {
+                    int id = 1 + (seed * 31 + i * 7) % rows;
+                    // a small pool of emails makes writers fight over the same addresses
+                    String email = "contested-" + (i % (rows * 2)) + "@johan.com";
+                    underTest.patchCustomer(id, new Customer(null, email, null, null));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(underTest.selectAllCustomer()).hasSize(rows);
+        assertIndexesConsistent();
+        Set<String> owned = new HashSet<>();
+        underTest.streamAllEmails().forEach(owned::add);
+        for (int i = 0; i < rows * 2; i++) {
+            String email = "contested-" + i + "@johan.com";
+            // an email released by one row must not linger in the unique index
+            assertThat(underTest.existsPersonWithEmail(email)).isEqualTo(owned.contains(email));
+        }
+    }
+
+    @Test
+    void snapshotsNeverSeeLaterWriteWithoutEarlierOne() throws Exception {
+        // GIVEN
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        int perWriter = 5_000;
+
+        // When
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int writer = t;
+            writers.add(executor.submit(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    underTest.insertCustomer(new Customer("writer-" + writer, writer + "-" + i + "@johan.com", i, Gender.MALE));
+                }
+                return null;
+            }));
+        }
+        Future<Integer> reader = executor.submit(() -> {
+            int snapshots = 0;
+            while (writing.get()) {
+                // each writer inserts in sequence, so a point-in-time view holds a gap-free prefix per writer
+                Map<String, Set<Integer>> seen = new HashMap<>();
+                for (Customer customer : underTest.selectAllCustomer()) {
+                    seen.computeIfAbsent(customer.getName(), n -> new HashSet<>()).add(customer.getAge());
+                }
+                for (Set<Integer> ages : seen.values()) {
+                    assertThat(ages).allSatisfy(age -> assertThat(age).isLessThan(ages.size()));
+                }
+                snapshots++;
+            }
+            return snapshots;
+        });
+        for (Future<?> future : writers) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        int snapshots = reader.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Then
+        assertThat(snapshots).isPositive();
+        assertThat(underTest.selectAllCustomer()).hasSize(THREADS * perWriter);
+    }
+
+    private void assertIndexesConsistent() {
+        List<Customer> customers = underTest.selectAllCustomer();
+        Set<String> emails = new HashSet<>();
+        for (Customer customer : customers) {
+            assertThat(emails.add(customer.getEmail())).isTrue();
+            assertThat(underTest.existsPersonWithEmail(customer.getEmail())).isTrue();
+        }
+        assertThat(underTest.selectExistingEmails(emails)).hasSize(customers.size());
+        assertThat(underTest.streamAllEmails()).hasSize(customers.size());
+    }
+}
@@ -0,0 +1,140 @@
+package com.johan.repository;
+
+import com.johan.AbstractTestContainers;
+import com.johan.model.Customer;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerFilter;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerR2dbcAccessServiceTest extends AbstractTestContainers {
+
+    private CustomerR2dbcAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerR2dbcAccessService(getConnectionFactory());
+    }
+
+    @Test
+    void insertCustomerIfAbsentReturnsIdOnlyForNewEmail() {
+        // GIVEN
+        Customer customer = customer(20, Gender.MALE);
+
+        // When
+        Long id = underTest.insertCustomerIfAbsent(customer).block();
+        Long duplicate = underTest.insertCustomerIfAbsent(customer).block();
+
+        // Then
+        assertThat(id).isNotNull();
+        assertThat(duplicate).isNull();
+        Customer actual = underTest.getByCustomerId(id.intValue(), CustomerField.ALL).block();
+        assertThat(actual).isNotNull();
+        assertThat(actual.getEmail()).isEqualTo(customer.getEmail());
+        assertThat(actual.getVersion()).isZero();
+    }
+
+    @Test
+    void getByCustomerIdReadsOnlySelectedFields() {
+        // GIVEN
+        Customer customer = customer(20, Gender.FEMALE);
+        Long id = underTest.insertCustomerIfAbsent(customer).block();
+
+        // When
+        Customer actual = underTest.getByCustomerId(id.intValue(), EnumSet.of(CustomerField.NAME)).block();
+
+        // Then
+        assertThat(actual.getId()).isEqualTo(id);
+        assertThat(actual.getName()).isEqualTo(customer.getName());
+        assertThat(actual.getEmail()).isNull();
+        assertThat(actual.getAge()).isNull();
+    }
+
+    @Test
+    void streamCustomersReturnsMatchingRowsInIdOrder() {
+        // GIVEN
+        int age = 100 + (int) (Math.random() * 40);
+        Long first = underTest.insertCustomerIfAbsent(customer(age, Gender.FEMALE)).block();
+        underTest.insertCustomerIfAbsent(customer(age, Gender.MALE)).block();
+        Long second = underTest.insertCustomerIfAbsent(customer(age, Gender.FEMALE)).block();
+
+        // When
+        List<Customer> actual = underTest.streamCustomers(new CustomerFilter(Gender.FEMALE, age, age),
+                        EnumSet.of(CustomerField.AGE))
+                .collectList()
+                .block();
+
+        // Then
+        assertThat(actual).extracting(Customer::getId).containsExactly(first, second);
+        assertThat(actual).extracting(Customer::getAge).containsOnly(age);
+        assertThat(actual).extracting(Customer::getName).containsOnlyNulls();
+    }
+
+    @Test
+    void streamCustomersStopsFetchingWhenCancelled() {
+        // GIVEN
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomerIfAbsent(customer(20, Gender.MALE)).block();
+        }
+
+        // When
+        List<Customer> actual = underTest.streamCustomers(CustomerFilter.NONE, CustomerField.ALL)
+                .take(2)
+                .collectList()
+                .block();
+
+        // Then
+        assertThat(actual).hasSize(2);
+        // the connection went back to the pool in a usable state
+        assertThat(underTest.existsPersonWithEmail(actual.get(0).getEmail()).block()).isTrue();
+    }
+
+    @Test
+    void updateCustomerChecksExpectedVersion() {
+        // GIVEN
+        Long id = underTest.insertCustomerIfAbsent(customer(20, Gender.MALE)).block();
+        Customer customer = underTest.getByCustomerId(id.intValue(), CustomerField.ALL).block();
+        customer.setName("updated");
+
+        // When
+        Long updated = underTest.updateCustomer(customer, 0L).block();
+        Long stale = underTest.updateCustomer(customer, 0L).block();
+
+        // Then
+        assertThat(updated).isEqualTo(1L);
+        assertThat(stale).isNull();
+        assertThat(underTest.getByCustomerId(id.intValue(), CustomerField.ALL).block().getName())
+                .isEqualTo("updated");
+    }
+
+    @Test
+    void deleteCustomerReturnsDeletedRow() {
+        // GIVEN
+        Customer customer = customer(20, Gender.FEMALE);
+        Long id = underTest.insertCustomerIfAbsent(customer).block();
+
+        // When
+        Customer deleted = underTest.deleteCustomer(id.intValue()).block();
+        Customer again = underTest.deleteCustomer(id.intValue()).block();
+
+        // Then
+        assertThat(deleted.getEmail()).isEqualTo(customer.getEmail());
+        assertThat(again).isNull();
+        assertThat(underTest.existsPersonWithEmail(customer.getEmail()).block()).isFalse();
+    }
+
+    private static Customer customer(int age, Gender gender) {
+        return new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                age,
+                gender);
+    }
+}
@@ -10,6 +10,8 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.ApplicationContext;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -60,4 +62,98 @@ class CustomerRepositoryTest extends AbstractTestContainers {
         // Then
         assertThat(actual).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateCustomerWithoutVersionBumpsIt() {
+        // GIVEN
+        String email = FAKER.internet().safeEmailAddress()+"-"+ UUID.randomUUID();
+        Long id = underTest.saveAndFlush(new Customer(FAKER.name().fullName(), email, 29, Gender.MALE)).getId();
+
+        // When
+        Optional<Long> actual = underTest.updateCustomer(id, "johan", email, 30, Gender.FEMALE.name(),
+                CustomerChangeNotifier.CHANNEL);
+
+        // Then
+        assertThat(actual).contains(1L);
+    }
+
+    @Test
+    void insertCustomerReturnsGeneratedId() {
+        // GIVEN
+        String email = FAKER.internet().safeEmailAddress()+"-"+ UUID.randomUUID();
+
+        // When
+        Long id = underTest.insertCustomer("johan", email, 30, Gender.MALE.name(), CustomerChangeNotifier.CHANNEL);
+
+        // Then
+        assertThat(underTest.findById(id.intValue())).get()
+                .extracting(Customer::getEmail)
+                .isEqualTo(email);
+    }
+
+    @Test
+    void updateIfVersionSkipsStaleVersion() {
+        // GIVEN
+        String email = FAKER.internet().safeEmailAddress()+"-"+ UUID.randomUUID();
+        Long id = underTest.saveAndFlush(new Customer(FAKER.name().fullName(), email, 29, Gender.MALE)).getId();
+
+        // When
+        Optional<Long> first = underTest.updateIfVersion(id, 0L, "johan", email, 30, Gender.MALE.name(),
+                CustomerChangeNotifier.CHANNEL);
+        Optional<Long> stale = underTest.updateIfVersion(id, 0L, "budi", email, 30, Gender.MALE.name(),
+                CustomerChangeNotifier.CHANNEL);
+
+        // Then
+        assertThat(first).contains(1L);
+        assertThat(stale).isEmpty();
+    }
+
+    @Test
+    void updateMissingCustomerReturnsNoVersion() {
+        // When
+        Optional<Long> actual = underTest.updateCustomer(-1L, "johan", "johan@gmail.com", 30, Gender.MALE.name(),
+                CustomerChangeNotifier.CHANNEL);
+
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void insertAllIfAbsentSkipsTakenEmails() {
+        // GIVEN
+        String taken = FAKER.internet().safeEmailAddress()+"-"+ UUID.randomUUID();
+        String fresh = FAKER.internet().safeEmailAddress()+"-"+ UUID.randomUUID();
+        underTest.saveAndFlush(new Customer(FAKER.name().fullName(), taken, 29, Gender.MALE));
+
+        // When
+        List<String> actual = underTest.insertAllIfAbsent(
+                new String[]{"johan", "budi", "siti"},
+                new String[]{taken, fresh, fresh},
+                new Integer[]{20, 30, 40},
+                new String[]{"MALE", "MALE", "FEMALE"},
+                CustomerChangeNotifier.CHANNEL,
+                CustomerChangeNotifier.INSERTED);
+
+        // Then
+        assertThat(actual).containsExactly(fresh);
+        assertThat(underTest.existsCustomerByEmail(fresh)).isTrue();
+    }
+
+    @Test
+    void deleteCustomerByIdReturnsDeletedRow() {
+        // GIVEN
+        String email = FAKER.internet().safeEmailAddress()+"-"+ UUID.randomUUID();
+        Long id = underTest.saveAndFlush(new Customer(FAKER.name().fullName(), email, 29, Gender.MALE)).getId();
+
+        // When
+        Optional<Customer> deleted = underTest.deleteCustomerById(id, CustomerChangeNotifier.CHANNEL);
+        Optional<Customer> again = underTest.deleteCustomerById(id, CustomerChangeNotifier.CHANNEL);
+
+        // Then
+        assertThat(deleted).get()
+                .extracting(Customer::getEmail)
+                .isEqualTo(email);
+        assertThat(again).isEmpty();
+        assertThat(underTest.existsCustomerByEmail(email)).isFalse();
+    }
+}
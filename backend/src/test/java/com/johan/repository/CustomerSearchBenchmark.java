@@ -0,0 +1,87 @@
+package com.johan.repository;
+
+import com.johan.AbstractTestContainers;
+import com.johan.model.Customer;
+import com.johan.model.CustomerRowMapper;
+import com.johan.model.CustomerSearchMatch;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// mvn test -Dtest=CustomerSearchBenchmark -Dbenchmark=true -Dbenchmark.rows=5000000
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CustomerSearchBenchmark extends AbstractTestContainers {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 2_000_000);
+    // the in-memory index holds a boxed id per trigram per row, so it gets a smaller table
+    private static final int LIST_ROWS = Math.min(ROWS, 200_000);
+    private static final int ROUNDS = 20;
+    private static final int LIMIT = 20;
+
+    @Test
+    void trigramIndexVersusSequentialScan() {
+        // GIVEN
+        getJdbcTemplate().update("""
+                INSERT INTO customer (name, email, age, gender)
+                SELECT 'search ' || md5(i::text), 'search-' || i || '-' || md5(i::text) || '@johan.com',
+                       18 + i % 80, CASE WHEN i % 2 = 0 THEN 'MALE' ELSE 'FEMALE' END
+                FROM generate_series(1, ?) AS i
+                """, ROWS);
+        getJdbcTemplate().execute("ANALYZE customer");
+        CustomerJDBCAccessService jdbc = new CustomerJDBCAccessService(getJdbcTemplate(), new CustomerRowMapper());
+        List<Customer> seed = new ArrayList<>();
+        for (int i = 1; i <= LIST_ROWS; i++) {
+            seed.add(new Customer((long) i, "search " + i, "search-" + i + "@johan.com", 18 + i % 80, Gender.MALE));
+        }
+        CustomerListDataAccessService list = new CustomerListDataAccessService(seed);
+        String query = getJdbcTemplate().queryForObject(
+                "SELECT substr(md5((? / 2)::text), 5, 8)", String.class, ROWS);
+        String listQuery = "-" + (LIST_ROWS / 2) + "@";
+        String naive = """
+                SELECT id, name, email, age, gender, version
+                FROM customer
+                WHERE lower(name) LIKE ? OR lower(email) LIKE ?
+                ORDER BY id
+                LIMIT ?
+                """;
+
+        // When
+        // lower() hides the columns from the trigram indexes, which is the plan a LIKE without them gets
+        double naiveMillis = measure(() -> getJdbcTemplate().query(naive, new CustomerRowMapper(),
+                "%" + query + "%", "%" + query + "%", LIMIT));
+        double trigramMillis = measure(() -> jdbc.searchCustomers(query, CustomerSearchMatch.SUBSTRING, LIMIT));
+        double listScanMillis = measure(() -> list.selectAllCustomer().stream()
+                .filter(c -> c.getEmail().toLowerCase(Locale.ROOT).contains(listQuery))
+                .limit(LIMIT)
+                .toList());
+        double listIndexMillis = measure(() -> list.searchCustomers(listQuery, CustomerSearchMatch.SUBSTRING, LIMIT));
+
+        // Then
+        System.out.printf("median of %d searches%n", ROUNDS);
+        System.out.printf("postgres LIKE scan   %,10d rows %10.2f ms%n", ROWS, naiveMillis);
+        System.out.printf("postgres pg_trgm     %,10d rows %10.2f ms%n", ROWS, trigramMillis);
+        System.out.printf("in-memory scan       %,10d rows %10.2f ms%n", LIST_ROWS, listScanMillis);
+        System.out.printf("in-memory trigram    %,10d rows %10.2f ms%n", LIST_ROWS, listIndexMillis);
+        assertThat(jdbc.searchCustomers(query, CustomerSearchMatch.SUBSTRING, LIMIT)).isNotEmpty();
+        assertThat(list.searchCustomers(listQuery, CustomerSearchMatch.SUBSTRING, LIMIT)).hasSize(1);
+    }
+
+    private static double measure(Supplier<List<Customer>> search) {
+        double[] millis = new double[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long started = System.nanoTime();
+            search.get();
+            millis[round] = (System.nanoTime() - started) / 1e6;
+        }
+        Arrays.sort(millis);
+        return millis[ROUNDS / 2];
+    }
+}
@@ -0,0 +1,122 @@
+package com.johan.repository;
+
+import com.johan.AbstractTestContainers;
+import com.johan.model.Customer;
+import com.johan.model.CustomerRowMapper;
+import com.johan.model.Gender;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// mvn test -Dtest=CustomerVirtualThreadBenchmark -Dbenchmark=true -Dbenchmark.requests=20000
+// the virtual thread run needs a Java 21+ JVM and is skipped otherwise
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CustomerVirtualThreadBenchmark extends AbstractTestContainers {
+
+    private static final int ROWS = 10_000;
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 20_000);
+    // Tomcat's default server.tomcat.threads.max
+    private static final int PLATFORM_THREADS = Integer.getInteger("benchmark.threads", 200);
+    private static final int POOL_SIZE = Integer.getInteger("benchmark.pool", 20);
+    // time each request spends blocked outside the database, e.g. on a downstream call
+    private static final long BLOCKED_MILLIS = Long.getLong("benchmark.blocked.millis", 10);
+
+    @Test
+    void platformVersusVirtualThreads() throws Exception {
+        // GIVEN
+        try (HikariDataSource dataSource = dataSource()) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            CustomerDao jdbc = new CustomerJDBCAccessService(jdbcTemplate, new CustomerRowMapper());
+            List<Integer> ids = seed(jdbc, UUID.randomUUID().toString());
+
+            // When
+            Result platform = measure(Executors.newFixedThreadPool(PLATFORM_THREADS), jdbc, ids);
+            Result virtual = measure(virtualThreadPerTaskExecutor(), jdbc, ids);
+
+            // Then
+            System.out.printf("%,d requests, %d ms blocked each, %d connections%n", REQUESTS, BLOCKED_MILLIS, POOL_SIZE);
+            System.out.printf("platform (%d threads): %s%n", PLATFORM_THREADS, platform);
+            System.out.printf("virtual:               %s%n", virtual);
+            assertThat(platform.completed()).isEqualTo(REQUESTS);
+            assertThat(virtual.completed()).isEqualTo(REQUESTS);
+        }
+    }
+
+    private static HikariDataSource dataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(postgreSQLContainer.getJdbcUrl());
+        config.setUsername(postgreSQLContainer.getUsername());
+        config.setPassword(postgreSQLContainer.getPassword());
+        config.setMaximumPoolSize(POOL_SIZE);
+        config.setConnectionTimeout(TimeUnit.SECONDS.toMillis(30));
+        return new HikariDataSource(config);
+    }
+
+    // compiled for Java 17, so the factory is looked up rather than called
+    private static ExecutorService virtualThreadPerTaskExecutor() throws Exception {
+        Assumptions.assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+
+    private static List<Integer> seed(CustomerDao dao, String run) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            dao.insertCustomerIfAbsent(customer(i + "-" + run))
+                    .ifPresent(id -> ids.add(id.intValue()));
+        }
+        return ids;
+    }
+
+    private static Customer customer(String key) {
+        return new Customer("customer " + key, "customer-" + key + "@johan.com", 30, Gender.FEMALE);
+    }
+
+    // submits every request at once, as a burst of connections would, and times each from submission
+    private static Result measure(ExecutorService executor, CustomerDao dao, List<Integer> ids) throws Exception {
+        long started = System.nanoTime();
+        List<Future<Long>> futures = new ArrayList<>(REQUESTS);
+        try {
+            for (int i = 0; i < REQUESTS; i++) {
+                long submitted = System.nanoTime();
+                futures.add(executor.submit(() -> {
+                    Thread.sleep(BLOCKED_MILLIS);
+                    dao.getByCustomerId(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+                    return System.nanoTime() - submitted;
+                }));
+            }
+            long[] latencies = new long[REQUESTS];
+            for (int i = 0; i < REQUESTS; i++) {
+                latencies[i] = futures.get(i).get();
+            }
+            long elapsed = System.nanoTime() - started;
+            Arrays.sort(latencies);
+            return new Result(REQUESTS, REQUESTS * TimeUnit.SECONDS.toNanos(1) / elapsed,
+                    latencies[REQUESTS / 2], latencies[REQUESTS * 99 / 100]);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private record Result(int completed, long perSecond, long p50Nanos, long p99Nanos) {
+
+        @Override
+        public String toString() {
+            return "%,10d req/s   p50 %,8d us   p99 %,8d us".formatted(perSecond, p50Nanos / 1_000, p99Nanos / 1_000);
+        }
+    }
+}
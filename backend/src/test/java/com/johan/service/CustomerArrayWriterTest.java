@@ -0,0 +1,57 @@
+package com.johan.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johan.model.Customer;
+import com.johan.model.CustomerField;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerArrayWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writesArrayOfRequestedFields() throws IOException {
+        // GIVEN
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator generator = objectMapper.createGenerator(out);
+        CustomerArrayWriter underTest = new CustomerArrayWriter(generator, EnumSet.of(CustomerField.ID, CustomerField.GENDER));
+
+        // When
+        underTest.start();
+        underTest.accept(new Customer(1L, "Joko", "joko@gmail.com", 20, Gender.MALE));
+        underTest.accept(new Customer(2L, "Siti", "siti@gmail.com", 30, Gender.FEMALE));
+        underTest.finish();
+
+        // Then
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .isEqualTo("[{\"id\":1,\"gender\":\"MALE\"},{\"id\":2,\"gender\":\"FEMALE\"}]");
+    }
+
+    @Test
+    void flushesEveryFlushRows() throws IOException {
+        // GIVEN
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator generator = objectMapper.createGenerator(out);
+        CustomerArrayWriter underTest = new CustomerArrayWriter(generator, CustomerField.ALL);
+        underTest.start();
+
+        // When
+        for (int i = 0; i < CustomerArrayWriter.FLUSH_ROWS; i++) {
+            underTest.accept(new Customer((long) i, "Joko", "joko@gmail.com", 20, Gender.MALE));
+        }
+
+        // Then
+        String written = out.toString(StandardCharsets.UTF_8);
+        assertThat(written).startsWith("[{\"id\":0,\"name\":\"Joko\",\"email\":\"joko@gmail.com\",\"age\":20,\"gender\":\"MALE\"}");
+        assertThat(written).endsWith("{\"id\":999,\"name\":\"Joko\",\"email\":\"joko@gmail.com\",\"age\":20,\"gender\":\"MALE\"}");
+    }
+}
@@ -0,0 +1,81 @@
+package com.johan.service;
+
+import com.johan.repository.CustomerDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerEmailFilterTest {
+
+    private final CustomerDao customerDao = Mockito.mock(CustomerDao.class);
+    private CustomerEmailFilter underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerEmailFilter(
+                customerDao,
+                Mockito.mock(PlatformTransactionManager.class),
+                1_000,
+                0.01,
+                Duration.ZERO);
+    }
+
+    @Test
+    void everyEmailMightExistBeforeFirstBuild() {
+        assertThat(underTest.mightContain("johan@gmail.com")).isTrue();
+    }
+
+    @Test
+    void rebuildLoadsEmailsFromDao() {
+        // GIVEN
+        Mockito.when(customerDao.streamAllEmails())
+                .thenReturn(Stream.of("johan@gmail.com", "joko@gmail.com"));
+
+        // When
+        underTest.rebuild();
+        underTest.add("siti@gmail.com");
+
+        // Then
+        assertThat(underTest.mightContain("johan@gmail.com")).isTrue();
+        assertThat(underTest.mightContain("joko@gmail.com")).isTrue();
+        assertThat(underTest.mightContain("siti@gmail.com")).isTrue();
+    }
+
+    @Test
+    void rebuildDropsDeletedEmails() {
+        // GIVEN
+        Mockito.when(customerDao.streamAllEmails())
+                .thenReturn(Stream.of("johan@gmail.com"))
+                .thenReturn(Stream.empty());
+        underTest.rebuild();
+
+        // When
+        underTest.rebuild();
+
+        // Then
+        assertThat(underTest.mightContain("johan@gmail.com")).isFalse();
+    }
+
+    @Test
+    void emailAddedDuringRebuildLandsInReplacement() {
+        // GIVEN
+        Mockito.when(customerDao.streamAllEmails())
+                .thenReturn(Stream.of("johan@gmail.com"))
+                .thenAnswer(invocation -> Stream.of("johan@gmail.com")
+                        // committed after the stream read past it
+                        .peek(email -> underTest.add("siti@gmail.com")));
+        underTest.rebuild();
+
+        // When
+        underTest.rebuild();
+
+        // Then
+        assertThat(underTest.mightContain("siti@gmail.com")).isTrue();
+    }
+}
@@ -0,0 +1,50 @@
+package com.johan.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johan.model.Customer;
+import com.johan.model.ExportFormat;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerExportWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writesCsvWithHeaderAndQuotedFields() {
+        // GIVEN
+        StringWriter out = new StringWriter();
+        CustomerExportWriter underTest = new CustomerExportWriter(out, ExportFormat.CSV, objectMapper);
+
+        // When
+        underTest.writeHeader();
+        underTest.accept(new Customer(1L, "Widodo, \"Joko\"", "joko@gmail.com", 20, Gender.MALE));
+
+        // Then
+        assertThat(out.toString()).isEqualTo("""
+                id,name,email,age,gender
+                1,"Widodo, ""Joko\""",joko@gmail.com,20,MALE
+                """);
+    }
+
+    @Test
+    void writesOneJsonObjectPerLine() {
+        // GIVEN
+        StringWriter out = new StringWriter();
+        CustomerExportWriter underTest = new CustomerExportWriter(out, ExportFormat.NDJSON, objectMapper);
+
+        // When
+        underTest.writeHeader();
+        underTest.accept(new Customer(1L, "Joko", "joko@gmail.com", 20, Gender.MALE));
+        underTest.accept(new Customer(2L, "Siti", "siti@gmail.com", 30, Gender.FEMALE));
+
+        // Then
+        assertThat(out.toString().lines()).containsExactly(
+                "{\"id\":1,\"name\":\"Joko\",\"email\":\"joko@gmail.com\",\"age\":20,\"gender\":\"MALE\"}",
+                "{\"id\":2,\"name\":\"Siti\",\"email\":\"siti@gmail.com\",\"age\":30,\"gender\":\"FEMALE\"}");
+    }
+}
@@ -0,0 +1,132 @@
+package com.johan.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johan.exception.RequestValidationException;
+import com.johan.exception.ResourceNotFound;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerJob;
+import com.johan.model.CustomerJobStatus;
+import com.johan.model.CustomerJobType;
+import com.johan.model.CustomerRegistrationRequest;
+import com.johan.model.Gender;
+import com.johan.repository.CustomerDao;
+import com.johan.repository.CustomerJobDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerJobServiceTest {
+
+    @Mock
+    private CustomerJobDao customerJobDao;
+    @Mock
+    private CustomerDao customerDao;
+    @Mock
+    private CustomerJobRunner customerJobRunner;
+    private CustomerJobService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerJobService(customerJobDao, customerDao, customerJobRunner, new ObjectMapper());
+    }
+
+    @Test
+    void submitImportStoresItemsAndWakesRunner() {
+        // GIVEN
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("Johan", "johan@gmail.com", 20, Gender.MALE));
+        CustomerJob job = job(CustomerJobType.IMPORT, CustomerJobStatus.QUEUED);
+        Mockito.when(customerJobDao.insertJob(CustomerJobType.IMPORT, null, 1))
+                .thenReturn(job);
+
+        // When
+        CustomerJob actual = underTest.submitImport(requests);
+
+        // Then
+        assertThat(actual).isEqualTo(job);
+        Mockito.verify(customerJobDao).insertItems(1L, requests);
+        Mockito.verify(customerJobRunner).wakeUp();
+    }
+
+    @Test
+    void submitImportRejectsEmptyImport() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.submitImport(List.of()))
+                .isInstanceOf(RequestValidationException.class);
+        Mockito.verifyNoInteractions(customerJobDao);
+    }
+
+    @Test
+    void submitUpdateRejectsEmailChange() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.submitUpdate(CustomerFilter.NONE,
+                new CustomerRegistrationRequest(null, "johan@gmail.com", null, null)))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Email cannot be changed in bulk");
+        Mockito.verifyNoInteractions(customerJobDao);
+    }
+
+    @Test
+    void submitUpdateRejectsEmptyChanges() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.submitUpdate(CustomerFilter.NONE,
+                new CustomerRegistrationRequest(null, null, null, null)))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("No data changes found");
+    }
+
+    @Test
+    void getJobThrowsWhenMissing() {
+        // GIVEN
+        Mockito.when(customerJobDao.findJob(1L))
+                .thenReturn(Optional.empty());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getJob(1L))
+                .isInstanceOf(ResourceNotFound.class)
+                .hasMessage("Job with id [1] not found");
+    }
+
+    @Test
+    void cancelJobThrowsWhenAlreadyFinished() {
+        // GIVEN
+        Mockito.when(customerJobDao.cancel(1L))
+                .thenReturn(false);
+        Mockito.when(customerJobDao.findJob(1L))
+                .thenReturn(Optional.of(job(CustomerJobType.EXPORT, CustomerJobStatus.COMPLETED)));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.cancelJob(1L))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Job with id [1] is already COMPLETED");
+    }
+
+    @Test
+    void getOutputRejectsUnfinishedExport() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getOutput(job(CustomerJobType.EXPORT, CustomerJobStatus.RUNNING)))
+                .isInstanceOf(RequestValidationException.class);
+        Mockito.verifyNoInteractions(customerJobRunner);
+    }
+
+    private static CustomerJob job(CustomerJobType type, CustomerJobStatus status) {
+        Instant now = Instant.now();
+        return new CustomerJob(1L, type, status, 1, 0, 0, null, now, now, null, 0, 0);
+    }
+}
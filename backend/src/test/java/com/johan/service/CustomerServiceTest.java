@@ -1,10 +1,19 @@
 package com.johan.service;
 
 import com.johan.exception.DuplicateResourceException;
+import com.johan.exception.PreconditionFailedException;
 import com.johan.exception.RequestValidationException;
 import com.johan.exception.ResourceNotFound;
 import com.johan.model.Customer;
+import com.johan.model.CustomerBatchResult;
+import com.johan.model.CustomerCursor;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerPage;
+import com.johan.model.CustomerPatchResult;
 import com.johan.model.CustomerRegistrationRequest;
+import com.johan.model.CustomerSearchMatch;
+import com.johan.model.CustomerSort;
 import com.johan.model.Gender;
 import com.johan.repository.CustomerDao;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,8 +23,18 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -24,12 +43,17 @@ class CustomerServiceTest {
 
     @Mock
     private CustomerDao customerDao;
+    @Mock
+    private CustomerEmailFilter customerEmailFilter;
+    @Mock
+    private CustomerStatistics customerStatistics;
     private CustomerService underTest;
 
     @BeforeEach
     void setUp() {
-
-        underTest = new CustomerService(customerDao);
+        Mockito.lenient().when(customerEmailFilter.mightContain(Mockito.any()))
+                .thenReturn(true);
+        underTest = new CustomerService(customerDao, customerEmailFilter, customerStatistics);
     }
 
     @Test
@@ -43,6 +67,23 @@ class CustomerServiceTest {
 
     }
 
+    @Test
+    void exportCustomersPassesEveryRowToConsumer() {
+        // GIVEN
+        Customer customer = new Customer(
+                1L, "Johan", "johan@gmail.com",20,
+                Gender.MALE);
+        Mockito.when(customerDao.streamAllCustomers())
+                .thenReturn(Stream.of(customer));
+        List<Customer> exported = new ArrayList<>();
+
+        // When
+        underTest.exportCustomers(exported::add);
+
+        // Then
+        assertThat(exported).containsExactly(customer);
+    }
+
     @Test
     void canGetCustomer() {
         // GIVEN
@@ -84,8 +125,8 @@ class CustomerServiceTest {
     void addCustomer() {
         // GIVEN
         String email = "johan@gmail.com";
-        Mockito.when(customerDao.existsPersonWithEmail(email))
-                .thenReturn(false);
+        Mockito.when(customerDao.insertCustomerIfAbsent(Mockito.any()))
+                .thenReturn(Optional.of(1L));
 
         CustomerRegistrationRequest request = new CustomerRegistrationRequest(
                 "johan", email, 22, Gender.MALE
@@ -96,7 +137,8 @@ class CustomerServiceTest {
 
         // Then
         ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
-        Mockito.verify(customerDao).insertCustomer(customerArgumentCaptor.capture());
+        Mockito.verify(customerDao).insertCustomerIfAbsent(customerArgumentCaptor.capture());
+        Mockito.verify(customerDao, Mockito.never()).existsPersonWithEmail(Mockito.any());
 
         Customer captureCustomer = customerArgumentCaptor.getValue();
 
@@ -111,8 +153,8 @@ class CustomerServiceTest {
     void willThrowWhenEmailExistsWhileAddCustomer() {
         // GIVEN
         String email = "johan@gmail.com";
-        Mockito.when(customerDao.existsPersonWithEmail(email))
-                .thenReturn(true);
+        Mockito.when(customerDao.insertCustomerIfAbsent(Mockito.any()))
+                .thenReturn(Optional.empty());
 
         CustomerRegistrationRequest request = new CustomerRegistrationRequest(
                 "johan", email, 22, Gender.MALE
@@ -131,10 +173,9 @@ class CustomerServiceTest {
     void deleteCustomer() {
         // GIVEN
         int id = 1;
-        Mockito.when(customerDao.getByCustomerId(id))
-                .thenReturn(Optional.of(new Customer(
-                        1L, "Johan", "johan@gmail.com",20,
-                        Gender.MALE)));
+        Customer deleted = new Customer(1L, "johan", "johan@gmail.com", 20, Gender.MALE);
+        Mockito.when(customerDao.deleteCustomer(id))
+                .thenReturn(Optional.of(deleted));
 
         // When
         underTest.deleteCustomer(id);
@@ -142,13 +183,15 @@ class CustomerServiceTest {
         // Then
         Mockito.verify(customerDao)
                 .deleteCustomer(id);
+        Mockito.verify(customerDao, Mockito.never()).getByCustomerId(Mockito.any());
+        Mockito.verify(customerStatistics).customerRemoved(deleted);
     }
 
     @Test
     void willThrowDeleteCustomerWhenIdDoesNotExist() {
         // GIVEN
         int id = 1;
-        Mockito.when(customerDao.getByCustomerId(id))
+        Mockito.when(customerDao.deleteCustomer(id))
                 .thenReturn(Optional.empty());
 
         // When
@@ -190,6 +233,27 @@ class CustomerServiceTest {
 
     }
 
+    @Test
+    void willThrowWhenUpdateIsNotAtExpectedVersion() {
+        // GIVEN
+        int id = 1;
+        Customer customer = new Customer(1L, "johan", "johan@gmail.com", 20, Gender.MALE);
+        customer.setVersion(4L);
+        Mockito.when(customerDao.getByCustomerId(id))
+                .thenReturn(Optional.of(customer));
+        Mockito.when(customerDao.updateCustomer(customer, 3L))
+                .thenReturn(false);
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest("Joko", null, null, null);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, request, 3L))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("Customer with id [1] is not at version [3]");
+        Mockito.verify(customerDao, Mockito.never()).updateCustomer(Mockito.any());
+        Mockito.verify(customerStatistics, Mockito.never()).customerChanged(Mockito.any(), Mockito.any());
+    }
+
     @Test
     void canUpdateOnlyCustomerName() {
         // GIVEN
@@ -332,4 +396,393 @@ class CustomerServiceTest {
         Mockito.verify(customerDao,Mockito.never()).updateCustomer(Mockito.any());
 
     }
+
+    @Test
+    void getCustomerPageReturnsNextCursorWhenMoreRowsExist() {
+        // GIVEN
+        Customer first = new Customer(1L, "Alex", "alex@gmail.com", 20, Gender.MALE);
+        Customer second = new Customer(2L, "Budi", "budi@gmail.com", 21, Gender.MALE);
+        Customer third = new Customer(3L, "Citra", "citra@gmail.com", 22, Gender.FEMALE);
+        Mockito.when(customerDao.selectCustomerPage(CustomerFilter.NONE, CustomerField.ALL, CustomerSort.NAME, null, 3))
+                .thenReturn(List.of(first, second, third));
+
+        // When
+        CustomerPage actual = underTest.getCustomerPage(null, 2, CustomerSort.NAME);
+
+        // Then
+        assertThat(actual.customers()).containsExactly(first, second);
+        assertThat(CustomerCursor.decode(actual.nextCursor()))
+                .isEqualTo(new CustomerCursor(CustomerSort.NAME, "Budi", 2L));
+    }
+
+    @Test
+    void getCustomerPageHasNoNextCursorOnLastPage() {
+        // GIVEN
+        Customer customer = new Customer(5L, "Alex", "alex@gmail.com", 20, Gender.MALE);
+        Mockito.when(customerDao.selectCustomerPage(
+                        CustomerFilter.NONE, CustomerField.ALL, CustomerSort.ID, new CustomerCursor(CustomerSort.ID, null, 4L), 11))
+                .thenReturn(List.of(customer));
+
+        // When
+        CustomerPage actual = underTest.getCustomerPage("4", 10, CustomerSort.ID);
+
+        // Then
+        assertThat(actual.customers()).containsExactly(customer);
+        assertThat(actual.nextCursor()).isNull();
+    }
+
+    @Test
+    void getCustomerPageProjectsFieldsAfterBuildingCursor() {
+        // GIVEN
+        Set<CustomerField> fields = EnumSet.of(CustomerField.EMAIL);
+        Customer first = new Customer(1L, "Alex", "alex@gmail.com", 20, Gender.MALE);
+        Customer second = new Customer(2L, "Budi", "budi@gmail.com", 21, Gender.MALE);
+        Mockito.when(customerDao.selectCustomerPage(CustomerFilter.NONE, fields, CustomerSort.AGE, null, 2))
+                .thenReturn(List.of(first, second));
+
+        // When
+        CustomerPage actual = underTest.getCustomerPage(CustomerFilter.NONE, "email", null, 1, CustomerSort.AGE);
+
+        // Then
+        assertThat(actual.customers()).singleElement().satisfies(customer -> {
+            assertThat(customer.getEmail()).isEqualTo("alex@gmail.com");
+            assertThat(customer.getId()).isNull();
+            assertThat(customer.getAge()).isNull();
+        });
+        assertThat(CustomerCursor.decode(actual.nextCursor()))
+                .isEqualTo(new CustomerCursor(CustomerSort.AGE, "20", 1L));
+    }
+
+    @Test
+    void getCustomerReadsOnlyRequestedFields() {
+        // GIVEN
+        Set<CustomerField> fields = EnumSet.of(CustomerField.ID, CustomerField.NAME);
+        Mockito.when(customerDao.getByCustomerId(7, fields))
+                .thenReturn(Optional.of(new Customer(7L, "Alex", "alex@gmail.com", 20, Gender.MALE)));
+
+        // When
+        Customer actual = underTest.getCustomer(7, " name,id ");
+
+        // Then
+        assertThat(actual.getId()).isEqualTo(7L);
+        assertThat(actual.getName()).isEqualTo("Alex");
+        assertThat(actual.getEmail()).isNull();
+        Mockito.verify(customerDao, Mockito.never()).getByCustomerId(7);
+    }
+
+    @Test
+    void willThrowWhenFieldIsUnknown() {
+        assertThatThrownBy(() -> underTest.getCustomer(1, "id,password"))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Invalid fields [id,password]");
+
+        Mockito.verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void searchTrimsQueryBeforeDelegating() {
+        // GIVEN
+        Customer customer = new Customer(1L, "johan", "johan@gmail.com", 20, Gender.MALE);
+        Mockito.when(customerDao.searchCustomers("joh", CustomerSearchMatch.PREFIX, 20))
+                .thenReturn(List.of(customer));
+
+        // When
+        List<Customer> actual = underTest.searchCustomers("  joh ", CustomerSearchMatch.PREFIX, 20);
+
+        // Then
+        assertThat(actual).containsExactly(customer);
+    }
+
+    @Test
+    void willThrowWhenSearchQueryTooShort() {
+        assertThatThrownBy(() -> underTest.searchCustomers(" jo ", CustomerSearchMatch.SUBSTRING, 20))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Search query must be at least 3 characters");
+        assertThatThrownBy(() -> underTest.searchCustomers("johan", CustomerSearchMatch.SUBSTRING, 0))
+                .isInstanceOf(RequestValidationException.class);
+
+        Mockito.verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void getCustomerPagePassesFilterToDao() {
+        // GIVEN
+        CustomerFilter filter = new CustomerFilter(Gender.FEMALE, 25, 34);
+        Customer customer = new Customer(3L, "Citra", "citra@gmail.com", 30, Gender.FEMALE);
+        Mockito.when(customerDao.selectCustomerPage(filter, CustomerField.ALL, CustomerSort.AGE, null, 11))
+                .thenReturn(List.of(customer));
+
+        // When
+        CustomerPage actual = underTest.getCustomerPage(filter, null, 10, CustomerSort.AGE);
+
+        // Then
+        assertThat(actual.customers()).containsExactly(customer);
+    }
+
+    @Test
+    void willThrowWhenAgeRangeInvalid() {
+        assertThatThrownBy(() -> underTest.getCustomerPage(new CustomerFilter(null, 40, 30), null, 10, CustomerSort.ID))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Age range [40, 30] is invalid");
+        assertThatThrownBy(() -> underTest.getCustomers(new CustomerFilter(null, -1, null)))
+                .isInstanceOf(RequestValidationException.class);
+
+        Mockito.verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void willThrowWhenPageLimitOutOfRange() {
+        assertThatThrownBy(() -> underTest.getCustomerPage(null, 0, CustomerSort.ID))
+                .isInstanceOf(RequestValidationException.class);
+        assertThatThrownBy(() -> underTest.getCustomerPage(null, CustomerService.MAX_PAGE_SIZE + 1, CustomerSort.ID))
+                .isInstanceOf(RequestValidationException.class);
+
+        Mockito.verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void willThrowWhenCursorDoesNotMatchSort() {
+        // GIVEN
+        String cursor = new CustomerCursor(CustomerSort.AGE, "20", 1L).encode();
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomerPage(cursor, 10, CustomerSort.NAME))
+                .isInstanceOf(RequestValidationException.class);
+        assertThatThrownBy(() -> underTest.getCustomerPage("not-a-cursor", 10, CustomerSort.NAME))
+                .isInstanceOf(RequestValidationException.class);
+    }
+
+    @Test
+    void addCustomersReportsResultPerItem() {
+        // GIVEN
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("johan", "johan@gmail.com", 22, Gender.MALE),
+                new CustomerRegistrationRequest("joko", "johan@gmail.com", 23, Gender.MALE),
+                new CustomerRegistrationRequest("siti", null, 24, Gender.FEMALE),
+                new CustomerRegistrationRequest("budi", "budi@gmail.com", 25, Gender.MALE),
+                new CustomerRegistrationRequest("rina", "rina@gmail.com", 26, Gender.FEMALE)
+        );
+        Mockito.when(customerDao.selectExistingEmails(List.of("johan@gmail.com", "budi@gmail.com", "rina@gmail.com")))
+                .thenReturn(Set.of("budi@gmail.com"));
+        Mockito.when(customerDao.insertCustomers(Mockito.anyList()))
+                .thenReturn(new int[]{1, 0});
+
+        // When
+        List<CustomerBatchResult> actual = underTest.addCustomers(requests);
+
+        // Then
+        assertThat(actual).extracting(CustomerBatchResult::status).containsExactly(
+                CustomerBatchResult.Status.CREATED,
+                CustomerBatchResult.Status.DUPLICATE_IN_BATCH,
+                CustomerBatchResult.Status.INVALID,
+                CustomerBatchResult.Status.EMAIL_TAKEN,
+                CustomerBatchResult.Status.EMAIL_TAKEN);
+
+        ArgumentCaptor<List<Customer>> customersCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(customerDao).insertCustomers(customersCaptor.capture());
+        assertThat(customersCaptor.getValue())
+                .extracting(Customer::getEmail)
+                .containsExactly("johan@gmail.com", "rina@gmail.com");
+    }
+
+    @Test
+    void willThrowWhenBatchIsTooLarge() {
+        // GIVEN
+        List<CustomerRegistrationRequest> requests = Collections.nCopies(
+                CustomerService.MAX_BATCH_SIZE + 1,
+                new CustomerRegistrationRequest("johan", "johan@gmail.com", 22, Gender.MALE));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.addCustomers(requests))
+                .isInstanceOf(RequestValidationException.class);
+        Mockito.verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void patchCustomerReturnsUpdatedCustomer() {
+        // GIVEN
+        int id = 1;
+        Customer updated = new Customer(1L, "Joko", "johan@gmail.com", 20, Gender.MALE);
+        Mockito.when(customerDao.patchCustomer(Mockito.eq(id), Mockito.any()))
+                .thenReturn(new CustomerPatchResult(CustomerPatchResult.Status.UPDATED, updated));
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                "Joko", null, null, null
+        );
+
+        // When
+        Customer actual = underTest.patchCustomer(id, request);
+
+        // Then
+        assertThat(actual).isEqualTo(updated);
+        ArgumentCaptor<Customer> changesCaptor = ArgumentCaptor.forClass(Customer.class);
+        Mockito.verify(customerDao).patchCustomer(Mockito.eq(id), changesCaptor.capture());
+        assertThat(changesCaptor.getValue().getName()).isEqualTo("Joko");
+        assertThat(changesCaptor.getValue().getEmail()).isNull();
+        Mockito.verify(customerDao, Mockito.never()).getByCustomerId(Mockito.any());
+        Mockito.verify(customerStatistics).customerChanged(null, updated);
+    }
+
+    @Test
+    void patchCustomerMapsOutcomesToExceptions() {
+        // GIVEN
+        int id = 1;
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                "Joko", "joko@gmail.com", null, null
+        );
+        Mockito.when(customerDao.patchCustomer(Mockito.eq(id), Mockito.any()))
+                .thenReturn(CustomerPatchResult.of(CustomerPatchResult.Status.NOT_FOUND))
+                .thenReturn(CustomerPatchResult.of(CustomerPatchResult.Status.EMAIL_TAKEN))
+                .thenReturn(CustomerPatchResult.of(CustomerPatchResult.Status.UNCHANGED));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.patchCustomer(id, request))
+                .isInstanceOf(ResourceNotFound.class)
+                .hasMessage("Customer with id [%s] not found".formatted(id));
+        assertThatThrownBy(() -> underTest.patchCustomer(id, request))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Email already taken");
+        assertThatThrownBy(() -> underTest.patchCustomer(id, request))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("No data changes found");
+    }
+
+    @Test
+    void updateCustomerSkipsEmailLookupOnDefiniteFilterMiss() {
+        // GIVEN
+        int id = 1;
+        Customer customer = new Customer(
+                "johan", "johan@gmail.com",20,
+                Gender.MALE);
+        Mockito.when(customerDao.getByCustomerId(id))
+                .thenReturn(Optional.of(customer));
+        Mockito.when(customerEmailFilter.mightContain("joko@gmail.com"))
+                .thenReturn(false);
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                null, "joko@gmail.com", null, null
+        );
+
+        // When
+        underTest.updateCustomer(id, request);
+
+        // Then
+        Mockito.verify(customerDao, Mockito.never()).existsPersonWithEmail(Mockito.any());
+        Mockito.verify(customerDao).updateCustomer(customer);
+        Mockito.verify(customerEmailFilter).add("joko@gmail.com");
+    }
+
+    @Test
+    void updateCustomerMapsConstraintViolationToDuplicate() {
+        // GIVEN
+        int id = 1;
+        Customer customer = new Customer(
+                "johan", "johan@gmail.com",20,
+                Gender.MALE);
+        Mockito.when(customerDao.getByCustomerId(id))
+                .thenReturn(Optional.of(customer));
+        Mockito.when(customerEmailFilter.mightContain("joko@gmail.com"))
+                .thenReturn(false);
+        Mockito.doThrow(new DuplicateKeyException("customer_email_constraint"))
+                .when(customerDao).updateCustomer(customer);
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                null, "joko@gmail.com", null, null
+        );
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, request))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Email already taken");
+    }
+
+    @Test
+    void updateCustomerDoesNotReportOtherViolationsAsDuplicate() {
+        // GIVEN
+        int id = 1;
+        Customer customer = new Customer(
+                "johan", "johan@gmail.com",20,
+                Gender.MALE);
+        Mockito.when(customerDao.getByCustomerId(id))
+                .thenReturn(Optional.of(customer));
+        Mockito.doThrow(new DataIntegrityViolationException("customer_age_check"))
+                .when(customerDao).updateCustomer(customer);
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                null, null, 21, null
+        );
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, request))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void addCustomersOnlyChecksEmailsTheFilterCannotRuleOut() {
+        // GIVEN
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("johan", "johan@gmail.com", 22, Gender.MALE),
+                new CustomerRegistrationRequest("rina", "rina@gmail.com", 26, Gender.FEMALE)
+        );
+        Mockito.when(customerEmailFilter.mightContain("rina@gmail.com"))
+                .thenReturn(false);
+        Mockito.when(customerDao.selectExistingEmails(List.of("johan@gmail.com")))
+                .thenReturn(Set.of());
+        Mockito.when(customerDao.insertCustomers(Mockito.anyList()))
+                .thenReturn(new int[]{1, 1});
+
+        // When
+        underTest.addCustomers(requests);
+
+        // Then
+        Mockito.verify(customerDao).selectExistingEmails(List.of("johan@gmail.com"));
+        Mockito.verify(customerEmailFilter).add("johan@gmail.com");
+        Mockito.verify(customerEmailFilter).add("rina@gmail.com");
+    }
+
+    @Test
+    void addCustomersInTransactionCountsOnlyOnceCommitted() {
+        // GIVEN
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("johan", "johan@gmail.com", 22, Gender.MALE));
+        Mockito.when(customerDao.selectExistingEmails(List.of("johan@gmail.com")))
+                .thenReturn(Set.of());
+        Mockito.when(customerDao.insertCustomers(Mockito.anyList()))
+                .thenReturn(new int[]{1});
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            underTest.addCustomers(requests);
+
+            // Then
+            Mockito.verifyNoInteractions(customerStatistics);
+            Mockito.verify(customerEmailFilter, Mockito.never()).add(Mockito.any());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            Mockito.verify(customerStatistics).customerAdded(Mockito.any());
+            Mockito.verify(customerEmailFilter).add("johan@gmail.com");
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void deleteCustomerInRolledBackTransactionLeavesStatistics() {
+        // GIVEN
+        Customer customer = new Customer(1L, "johan", "johan@gmail.com", 22, Gender.MALE);
+        Mockito.when(customerDao.deleteCustomer(1))
+                .thenReturn(Optional.of(customer));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            underTest.deleteCustomer(1);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+            // Then
+            Mockito.verifyNoInteractions(customerStatistics);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package com.johan.service;
+
+import com.johan.model.Customer;
+import com.johan.model.CustomerStats;
+import com.johan.model.Gender;
+import com.johan.repository.CustomerStatisticsDao;
+import com.johan.repository.CustomerStatisticsDao.AgeGenderCount;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerStatisticsTest {
+
+    @Mock
+    private CustomerStatisticsDao customerStatisticsDao;
+    private CustomerStatistics underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerStatistics(customerStatisticsDao, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void writesAdjustCountersAndPercentiles() {
+        // GIVEN
+        Customer alex = new Customer(1L, "Alex", "alex@gmail.com", 20, Gender.MALE);
+        Customer jamila = new Customer(2L, "Jamila", "jamila@gmail.com", 30, Gender.FEMALE);
+        Customer budi = new Customer(3L, "Budi", "budi@gmail.com", 40, Gender.MALE);
+
+        // When
+        underTest.customerAdded(alex);
+        underTest.customerAdded(jamila);
+        underTest.customerAdded(budi);
+        underTest.customerChanged(budi, new Customer(3L, "Budi", "budi@gmail.com", 50, Gender.MALE));
+        underTest.customerRemoved(alex);
+        CustomerStats actual = underTest.snapshot();
+
+        // Then
+        assertThat(actual.customers()).isEqualTo(2);
+        assertThat(actual.customersByGender()).containsEntry(Gender.MALE, 1L).containsEntry(Gender.FEMALE, 1L);
+        assertThat(actual.ageHistogram()).isEqualTo(Map.of(30, 1L, 50, 1L));
+        assertThat(actual.agePercentiles()).containsEntry("p50", 30).containsEntry("p99", 50);
+        assertThat(actual.reconciledAt()).isNull();
+    }
+
+    @Test
+    void reconcileReplacesCountersWithTableAggregate() {
+        // GIVEN
+        underTest.customerAdded(new Customer(1L, "Alex", "alex@gmail.com", 20, Gender.MALE));
+        Mockito.when(customerStatisticsDao.countByAgeAndGender()).thenReturn(List.of(
+                new AgeGenderCount(25, Gender.FEMALE, 90),
+                new AgeGenderCount(60, Gender.MALE, 10),
+                new AgeGenderCount(500, Gender.MALE, 1)));
+
+        // When
+        underTest.reconcile();
+        CustomerStats actual = underTest.snapshot();
+
+        // Then
+        assertThat(actual.customers()).isEqualTo(101);
+        assertThat(actual.ageHistogram()).doesNotContainKey(20).containsEntry(CustomerStatistics.MAX_AGE, 1L);
+        assertThat(actual.agePercentiles())
+                .containsEntry("p50", 25)
+                .containsEntry("p90", 60)
+                .containsEntry("p99", 60);
+        assertThat(actual.reconciledAt()).isNotNull();
+    }
+}
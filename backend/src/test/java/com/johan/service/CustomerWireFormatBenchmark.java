@@ -0,0 +1,79 @@
+package com.johan.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johan.model.CustomerRegistrationRequest;
+import com.johan.model.CustomerResponse;
+import com.johan.model.Gender;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// mvn test -Dtest=CustomerWireFormatBenchmark -Dbenchmark=true -Dbenchmark.rows=1000000
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CustomerWireFormatBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 200_000);
+    private static final int ROUNDS = 10;
+
+    @Test
+    void binaryFormatsVersusJson() throws IOException {
+        // GIVEN
+        Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+        mappers.put("json", Jackson2ObjectMapperBuilder.json().build());
+        mappers.put("cbor", Jackson2ObjectMapperBuilder.cbor().build());
+        mappers.put("smile", Jackson2ObjectMapperBuilder.smile().build());
+        List<CustomerResponse> customers = new ArrayList<>(ROWS);
+        List<CustomerRegistrationRequest> requests = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Gender gender = i % 2 == 0 ? Gender.MALE : Gender.FEMALE;
+            customers.add(new CustomerResponse((long) i, "Customer " + i, "customer-" + i + "@johan.com", 18 + i % 80, gender));
+            requests.add(new CustomerRegistrationRequest("Customer " + i, "customer-" + i + "@johan.com", 18 + i % 80, gender));
+        }
+
+        // When
+        // Then
+        for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+            ObjectMapper mapper = entry.getValue();
+            byte[] payload = mapper.writeValueAsBytes(customers);
+            List<CustomerResponse> decoded = mapper.readValue(payload, new TypeReference<>() {
+            });
+            assertThat(decoded).isEqualTo(customers);
+            byte[] requestPayload = mapper.writeValueAsBytes(requests);
+            assertThat(mapper.readValue(requestPayload, new TypeReference<List<CustomerRegistrationRequest>>() {
+            })).isEqualTo(requests);
+
+            double encodeMillis = measure(() -> mapper.writeValueAsBytes(customers));
+            double decodeMillis = measure(() -> mapper.readValue(payload, new TypeReference<List<CustomerResponse>>() {
+            }));
+            System.out.printf("%-5s customers: %,d bytes (%.1f bytes/row), encode %.1f ms, decode %.1f ms; "
+                            + "requests: %,d bytes%n",
+                    entry.getKey(), payload.length, (double) payload.length / ROWS, encodeMillis, decodeMillis,
+                    requestPayload.length);
+        }
+    }
+
+    private static double measure(Codec codec) throws IOException {
+        // the first rounds warm up the serializers and the JIT
+        for (int i = 0; i < ROUNDS; i++) {
+            codec.run();
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            codec.run();
+        }
+        return (System.nanoTime() - started) / 1e6 / ROUNDS;
+    }
+
+    private interface Codec {
+        void run() throws IOException;
+    }
+}
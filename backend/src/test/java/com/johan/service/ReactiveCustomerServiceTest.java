@@ -0,0 +1,175 @@
+package com.johan.service;
+
+import com.johan.exception.DuplicateResourceException;
+import com.johan.exception.PreconditionFailedException;
+import com.johan.exception.RequestValidationException;
+import com.johan.exception.ResourceNotFound;
+import com.johan.model.Customer;
+import com.johan.model.CustomerField;
+import com.johan.model.CustomerFilter;
+import com.johan.model.CustomerRegistrationRequest;
+import com.johan.model.Gender;
+import com.johan.repository.ReactiveCustomerDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveCustomerServiceTest {
+
+    @Mock
+    private ReactiveCustomerDao customerDao;
+    @Mock
+    private CustomerEmailFilter customerEmailFilter;
+    @Mock
+    private CustomerStatistics customerStatistics;
+    private ReactiveCustomerService underTest;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.lenient().when(customerEmailFilter.mightContain(Mockito.any()))
+                .thenReturn(true);
+        underTest = new ReactiveCustomerService(customerDao, customerEmailFilter, customerStatistics);
+    }
+
+    @Test
+    void getCustomersRejectsInvalidAgeRangeBeforeQuerying() {
+        // When
+        Flux<Customer> customers = underTest.getCustomers(new CustomerFilter(null, 30, 20), null);
+
+        // Then
+        assertThatThrownBy(customers::blockLast)
+                .isInstanceOf(RequestValidationException.class);
+        Mockito.verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void getCustomersProjectsRequestedFields() {
+        // GIVEN
+        Customer customer = new Customer(1L, "Johan", "johan@gmail.com", 20, Gender.MALE);
+        Mockito.when(customerDao.streamCustomers(CustomerFilter.NONE, EnumSet.of(CustomerField.NAME)))
+                .thenReturn(Flux.just(customer));
+
+        // When
+        List<Customer> actual = underTest.getCustomers(CustomerFilter.NONE, "name").collectList().block();
+
+        // Then
+        assertThat(actual).hasSize(1);
+        assertThat(actual.get(0).getName()).isEqualTo("Johan");
+        assertThat(actual.get(0).getId()).isNull();
+    }
+
+    @Test
+    void getCustomerThrowsWhenMissing() {
+        // GIVEN
+        Mockito.when(customerDao.getByCustomerId(1, CustomerField.ALL))
+                .thenReturn(Mono.empty());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomer(1, null).block())
+                .isInstanceOf(ResourceNotFound.class)
+                .hasMessage("Customer with id [1] not found");
+    }
+
+    @Test
+    void addCustomerThrowsWhenEmailTaken() {
+        // GIVEN
+        Mockito.when(customerDao.insertCustomerIfAbsent(Mockito.any()))
+                .thenReturn(Mono.empty());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.addCustomer(
+                new CustomerRegistrationRequest("Johan", "johan@gmail.com", 20, Gender.MALE)).block())
+                .isInstanceOf(DuplicateResourceException.class);
+        Mockito.verifyNoInteractions(customerStatistics);
+    }
+
+    @Test
+    void addCustomerRecordsNewCustomer() {
+        // GIVEN
+        Mockito.when(customerDao.insertCustomerIfAbsent(Mockito.any()))
+                .thenReturn(Mono.just(7L));
+
+        // When
+        underTest.addCustomer(new CustomerRegistrationRequest("Johan", "johan@gmail.com", 20, Gender.MALE)).block();
+
+        // Then
+        Mockito.verify(customerEmailFilter).add("johan@gmail.com");
+        Mockito.verify(customerStatistics).customerAdded(Mockito.argThat(customer -> customer.getId() == 7L));
+    }
+
+    @Test
+    void updateCustomerThrowsWhenVersionMoved() {
+        // GIVEN
+        Customer customer = new Customer(1L, "Johan", "johan@gmail.com", 20, Gender.MALE);
+        Mockito.when(customerDao.getByCustomerId(1, CustomerField.ALL))
+                .thenReturn(Mono.just(customer));
+        Mockito.when(customerDao.updateCustomer(customer, 3L))
+                .thenReturn(Mono.empty());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(1,
+                new CustomerRegistrationRequest("Other", null, null, null), 3L).block())
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("Customer with id [1] is not at version [3]");
+    }
+
+    @Test
+    void updateCustomerThrowsWhenEmailTaken() {
+        // GIVEN
+        Customer customer = new Customer(1L, "Johan", "johan@gmail.com", 20, Gender.MALE);
+        Mockito.when(customerDao.getByCustomerId(1, CustomerField.ALL))
+                .thenReturn(Mono.just(customer));
+        Mockito.when(customerDao.existsPersonWithEmail("taken@gmail.com"))
+                .thenReturn(Mono.just(true));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(1,
+                new CustomerRegistrationRequest(null, "taken@gmail.com", null, null), null).block())
+                .isInstanceOf(DuplicateResourceException.class);
+        Mockito.verify(customerDao, Mockito.never()).updateCustomer(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void updateCustomerThrowsWhenNothingChanges() {
+        // GIVEN
+        Customer customer = new Customer(1L, "Johan", "johan@gmail.com", 20, Gender.MALE);
+        Mockito.when(customerDao.getByCustomerId(1, CustomerField.ALL))
+                .thenReturn(Mono.just(customer));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(1,
+                new CustomerRegistrationRequest("Johan", null, 20, null), null).block())
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("No data changes found");
+    }
+
+    @Test
+    void deleteCustomerRecordsRemovedRow() {
+        // GIVEN
+        Customer customer = new Customer(1L, "Johan", "johan@gmail.com", 20, Gender.MALE);
+        Mockito.when(customerDao.deleteCustomer(1))
+                .thenReturn(Mono.just(customer));
+
+        // When
+        underTest.deleteCustomer(1).block();
+
+        // Then
+        Mockito.verify(customerStatistics).customerRemoved(customer);
+    }
+}
@@ -0,0 +1,81 @@
+package com.johan.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScalableBloomFilterTest {
+
+    @Test
+    void hasNoFalseNegativesAfterGrowing() {
+        // GIVEN
+        ScalableBloomFilter underTest = new ScalableBloomFilter(1_000, 0.01);
+
+        // When
+        for (int i = 0; i < 10_000; i++) {
+            underTest.add("customer-" + i + "@johan.com");
+        }
+
+        // Then
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(underTest.mightContain("customer-" + i + "@johan.com")).isTrue();
+        }
+        assertThat(underTest.stageCount()).isGreaterThan(1);
+    }
+
+    @Test
+    void keepsFalsePositiveRateNearTarget() {
+        // GIVEN
+        ScalableBloomFilter underTest = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 20_000; i++) {
+            underTest.add("customer-" + i + "@johan.com");
+        }
+
+        // When
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (underTest.mightContain("stranger-" + i + "@johan.com")) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        assertThat((double) falsePositives / probes).isLessThan(0.02);
+        assertThat(underTest.expectedFalsePositiveRate()).isLessThan(0.02);
+        assertThat(underTest.sizeInBytes()).isPositive();
+    }
+
+    @Test
+    void supportsConcurrentAdds() throws InterruptedException {
+        // GIVEN
+        ScalableBloomFilter underTest = new ScalableBloomFilter(100, 0.01);
+        String[] keys = new String[8_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = UUID.randomUUID() + "@johan.com";
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            executor.execute(() -> {
+                for (int i = offset; i < keys.length; i += 8) {
+                    underTest.add(keys[i]);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        // Then
+        for (String key : keys) {
+            assertThat(underTest.mightContain(key)).isTrue();
+        }
+    }
+}